@@ -0,0 +1,49 @@
+package cardealership;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One keystroke of the customer search box: the original linear stream
+ * filter from {@code Main.viewCustomers} against {@link CustomerSearchIndex}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CustomerSearchBenchmark {
+
+    @Param({"1000", "100000", "1000000"})
+    public int size;
+
+    @Param({"ka", "kamau", "grace.smith12", "0712"})
+    public String query;
+
+    private List<Customer> customers;
+    private CustomerSearchIndex index;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        customers = SyntheticData.customers(size);
+        index = new CustomerSearchIndex(customers);
+    }
+
+    @Benchmark
+    public List<Customer> linearFilter() {
+        String newValue = query;
+        return customers.stream()
+                .filter(customer -> customer.getName().toLowerCase().contains(newValue.toLowerCase()) ||
+                        customer.getEmail().toLowerCase().contains(newValue.toLowerCase()) ||
+                        customer.getPhone().contains(newValue))
+                .toList();
+    }
+
+    @Benchmark
+    public List<Customer> indexSearch() {
+        return index.search(query);
+    }
+}
@@ -0,0 +1,60 @@
+package cardealership;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Batch pricing of many purchases by the default rules, and what one change
+ * to a shopping cart costs: adding or removing a car, then showing the
+ * summary.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PricingBenchmark {
+
+    @Param({"1", "10", "1000"})
+    public int cartSize;
+
+    private Cart cart;
+    private Car extra;
+    private Customer customer;
+    private double[] totals;
+    private double[] finalTotals;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        List<Car> cars = SyntheticData.cars(cartSize + 1);
+        cart = new Cart(PricingRules.DEFAULT, null);
+        for (Car car : cars.subList(0, cartSize)) {
+            cart.add(car);
+        }
+        extra = cars.get(cartSize);
+        customer = SyntheticData.customers(1).get(0);
+        totals = new double[1024];
+        for (int i = 0; i < totals.length; i++) {
+            totals[i] = i * 250.0;
+        }
+        finalTotals = new double[totals.length];
+    }
+
+    @Benchmark
+    public double[] quoteTotals() {
+        PricingRules.DEFAULT.quoteTotals(totals, null, 0, finalTotals);
+        return finalTotals;
+    }
+
+    @Benchmark
+    public void cartChange(Blackhole blackhole) {
+        cart.add(extra);
+        blackhole.consume(cart.summary(customer));
+        cart.remove(extra);
+        blackhole.consume(cart.summary(customer));
+    }
+}
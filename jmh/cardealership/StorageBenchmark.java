@@ -0,0 +1,83 @@
+package cardealership;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Full loads and saves of the car and customer data through
+ * {@link DataManager}, for each storage backend.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class StorageBenchmark {
+
+    @Param({"1000", "100000", "1000000"})
+    public int size;
+
+    @Param({"text", "journal", "sqlite"})
+    public String backend;
+
+    private Path directory;
+    private List<Car> cars;
+    private List<Customer> customers;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("storage-bench");
+        cars = SyntheticData.cars(size);
+        customers = SyntheticData.customers(size);
+        DataManager.setStorage(open(), directory);
+        DataManager.saveCars(cars);
+        DataManager.saveCustomers(customers);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        DataManager.shutdown();
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path path : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(path);
+            }
+        }
+    }
+
+    private Storage open() throws IOException {
+        String dir = directory.toString();
+        return switch (backend) {
+            case "journal" -> new JournalStorage(dir);
+            case "sqlite" -> new SqliteStorage(dir);
+            default -> new TextStorage(dir);
+        };
+    }
+
+    @Benchmark
+    public List<Car> loadCars() {
+        return DataManager.loadCars();
+    }
+
+    @Benchmark
+    public List<Customer> loadCustomers() {
+        return DataManager.loadCustomers();
+    }
+
+    @Benchmark
+    public void saveCars() {
+        DataManager.saveCars(cars);
+    }
+
+    @Benchmark
+    public void saveCustomers() {
+        DataManager.saveCustomers(customers);
+    }
+}
@@ -0,0 +1,64 @@
+package cardealership;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Deterministic test data for the benchmarks. The same seed always produces
+ * the same records, so results stay comparable between commits. Records
+ * are numbered from 1, as if the {@link IdAllocator} had handed out the ids.
+ */
+public class SyntheticData {
+    private static final long SEED = 42;
+
+    static final String[] BRANDS = {
+        "Toyota", "Honda", "Ford", "BMW", "Audi", "Mercedes", "Nissan", "Mazda", "Subaru", "Volkswagen",
+        "Hyundai", "Kia", "Lexus", "Porsche", "Volvo", "Jeep", "Tesla", "Peugeot", "Renault", "Bugatti"
+    };
+    private static final String[] MODELS = {
+        "Axela", "Corolla", "Civic", "Focus", "X5", "A4", "C200", "Note", "Demio", "Impreza",
+        "Golf", "Tucson", "Sportage", "RX", "Cayenne", "XC90", "Wrangler", "Model 3", "208", "Veron"
+    };
+    private static final String[] FIRST_NAMES = {
+        "Theo", "Mel", "Amina", "John", "Grace", "Peter", "Wanjiru", "Otieno", "Sarah", "David"
+    };
+    private static final String[] LAST_NAMES = {
+        "Kamau", "Smith", "Ochieng", "Mwangi", "Brown", "Njeri", "Wilson", "Kiptoo", "Taylor", "Achieng"
+    };
+    private static final String[] AREAS = {
+        "Langata", "Westlands", "Karen", "Kilimani", "Parklands", "Runda", "Kileleshwa", "Ruaka"
+    };
+
+    public static List<Car> cars(int count) {
+        Random random = new Random(SEED);
+        List<Car> cars = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Car car = new Car(
+                MODELS[random.nextInt(MODELS.length)],
+                BRANDS[random.nextInt(BRANDS.length)],
+                5000 + random.nextInt(195000) + random.nextInt(100) / 100.0);
+            car.setId(i + 1);
+            cars.add(car);
+        }
+        return cars;
+    }
+
+    public static List<Customer> customers(int count) {
+        Random random = new Random(SEED + 1);
+        List<Customer> customers = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            String first = FIRST_NAMES[random.nextInt(FIRST_NAMES.length)];
+            String last = LAST_NAMES[random.nextInt(LAST_NAMES.length)];
+            Customer customer = new Customer(
+                first + " " + last,
+                18 + random.nextInt(70),
+                random.nextInt(999) + " " + AREAS[random.nextInt(AREAS.length)] + " Road",
+                String.format("07%08d", random.nextInt(100_000_000)),
+                (first + "." + last + i + "@example.com").toLowerCase());
+            customer.setId(i + 1);
+            customers.add(customer);
+        }
+        return customers;
+    }
+}
@@ -0,0 +1,476 @@
+package cardealership;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
+
+/**
+ * JSON over HTTP access to a {@link DealershipService}, served by the JDK
+ * HTTP server with one virtual thread per request.
+ *
+ * <pre>
+ * GET  /api/inventory?brand=&amp;minPrice=&amp;maxPrice=&amp;sort=&amp;desc=&amp;offset=&amp;limit=
+ * POST /api/inventory   {"brand", "model", "price"}
+ * GET  /api/inventory/stats?brand=&amp;minPrice=&amp;maxPrice=
+ * GET  /api/customers?q=&amp;sort=&amp;desc=&amp;offset=&amp;limit=
+ * POST /api/customers   {"name", "age", "address", "phone", "email"}
+ * GET  /api/stores
+ * POST /api/stores      {"name", "location"}
+ * GET  /api/stock?brand=&amp;minPrice=&amp;maxPrice=&amp;limit=
+ * POST /api/transfers   {"carId", "from", "to"}
+ * POST /api/quote       {"carIds": [..], "customerId" (optional)}
+ * POST /api/checkout    {"customerId", "carIds": [..]}
+ * </pre>
+ *
+ * {@code sort} names a {@link DealershipService.CarOrder} or
+ * {@link DealershipService.CustomerOrder} in any case, {@code desc=true}
+ * reverses it.
+ *
+ * Invalid input is answered with 400, conflicts such as a car that is
+ * already in another cart with 409; both carry {@code {"error": "..."}}.
+ */
+public class ApiServer {
+    private static final int DEFAULT_PORT = 8080;
+    private static final int DEFAULT_LIMIT = 50;
+    private static final int MAX_LIMIT = 1000;
+    private static final String CREATED = "created";
+
+    private interface Handler {
+        String handle(HttpExchange exchange) throws IOException;
+    }
+
+    private static class ApiException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        final int status;
+
+        ApiException(int status, String message) {
+            super(message);
+            this.status = status;
+        }
+    }
+
+    private final DealershipService service;
+    private final HttpServer server;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    public ApiServer(DealershipService service, int port) throws IOException {
+        this.service = service;
+        this.server = HttpServer.create(new InetSocketAddress(port), 1024);
+        server.setExecutor(executor);
+        server.createContext("/api/inventory", exchange -> respond(exchange, this::inventory));
+        server.createContext("/api/inventory/stats", exchange -> respond(exchange, this::inventoryStats));
+        server.createContext("/api/customers", exchange -> respond(exchange, this::customers));
+        server.createContext("/api/stores", exchange -> respond(exchange, this::stores));
+        server.createContext("/api/stock", exchange -> respond(exchange, this::stock));
+        server.createContext("/api/transfers", exchange -> respond(exchange, this::transfers));
+        server.createContext("/api/quote", exchange -> respond(exchange, this::quote));
+        server.createContext("/api/checkout", exchange -> respond(exchange, this::checkout));
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    public void stop() {
+        server.stop(1);
+        executor.shutdown();
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    // Handlers
+
+    private String inventory(HttpExchange exchange) throws IOException {
+        Map<String, String> params = queryParams(exchange);
+        switch (exchange.getRequestMethod()) {
+            case "GET" -> {
+                QueryResult<Car> result = service.queryInventory(params.get("brand"),
+                        doubleParam(params, "minPrice"), doubleParam(params, "maxPrice"),
+                        orderParam(params, DealershipService.CarOrder.class),
+                        Boolean.parseBoolean(params.get("desc")));
+                return page(result.page(intParam(params, "offset", 0), limitParam(params)), this::car);
+            }
+            case "POST" -> {
+                Map<String, Object> body = body(exchange);
+                Car car = service.addCar(text(body, "brand"), text(body, "model"), text(body, "price"));
+                created(exchange);
+                return car(car);
+            }
+            default -> throw new ApiException(405, "Method not allowed");
+        }
+    }
+
+    private String inventoryStats(HttpExchange exchange) {
+        if (!exchange.getRequestMethod().equals("GET")) {
+            throw new ApiException(405, "Method not allowed");
+        }
+        Map<String, String> params = queryParams(exchange);
+        InventoryColumns.Stats stats = service.inventoryStats(params.get("brand"),
+                doubleParam(params, "minPrice"), doubleParam(params, "maxPrice"));
+        StringBuilder out = new StringBuilder("{\"count\":").append(stats.getCount())
+                .append(",\"total\":").append(Json.number(stats.getTotal()))
+                .append(",\"min\":").append(price(stats.getMin()))
+                .append(",\"max\":").append(price(stats.getMax()))
+                .append(",\"average\":").append(price(stats.getAverage()))
+                .append(",\"brands\":{");
+        String separator = "";
+        for (Map.Entry<String, Integer> brand : service.countCarsByBrand().entrySet()) {
+            out.append(separator).append(Json.quote(brand.getKey())).append(':').append(brand.getValue());
+            separator = ",";
+        }
+        return out.append("}}").toString();
+    }
+
+    private String stores(HttpExchange exchange) throws IOException {
+        switch (exchange.getRequestMethod()) {
+            case "GET" -> {
+                StringBuilder out = new StringBuilder("{\"stores\":[");
+                String separator = "";
+                for (Map.Entry<CarDealership, InventoryColumns.Stats> store
+                        : service.stockStats(null, null, null).entrySet()) {
+                    out.append(separator).append("{\"store\":").append(store(store.getKey()))
+                       .append(",\"count\":").append(store.getValue().getCount())
+                       .append(",\"total\":").append(Json.number(store.getValue().getTotal())).append('}');
+                    separator = ",";
+                }
+                return out.append("]}").toString();
+            }
+            case "POST" -> {
+                Map<String, Object> body = body(exchange);
+                CarDealership store = service.addStore(text(body, "name"), text(body, "location"));
+                created(exchange);
+                return store(store);
+            }
+            default -> throw new ApiException(405, "Method not allowed");
+        }
+    }
+
+    // The matching cars of every store, at most limit per store
+    private String stock(HttpExchange exchange) {
+        if (!exchange.getRequestMethod().equals("GET")) {
+            throw new ApiException(405, "Method not allowed");
+        }
+        Map<String, String> params = queryParams(exchange);
+        int limit = limitParam(params);
+        StringBuilder out = new StringBuilder("{\"stores\":[");
+        String separator = "";
+        for (Map.Entry<CarDealership, List<Car>> store : service.findStock(params.get("brand"),
+                doubleParam(params, "minPrice"), doubleParam(params, "maxPrice")).entrySet()) {
+            List<Car> cars = store.getValue();
+            out.append(separator).append("{\"store\":").append(store(store.getKey()))
+               .append(",\"total\":").append(cars.size())
+               .append(",\"cars\":[");
+            for (int i = 0; i < Math.min(limit, cars.size()); i++) {
+                out.append(i > 0 ? "," : "").append(car(cars.get(i)));
+            }
+            out.append("]}");
+            separator = ",";
+        }
+        return out.append("]}").toString();
+    }
+
+    private String transfers(HttpExchange exchange) throws IOException {
+        requirePost(exchange);
+        Map<String, Object> body = body(exchange);
+        int from = id(field(body, "from"), "from");
+        int to = id(field(body, "to"), "to");
+        Car car = service.transfer(id(field(body, "carId"), "carId"), from, to);
+        created(exchange);
+        return "{\"car\":" + car(car) + ",\"from\":" + from + ",\"to\":" + to + "}";
+    }
+
+    private String customers(HttpExchange exchange) throws IOException {
+        Map<String, String> params = queryParams(exchange);
+        switch (exchange.getRequestMethod()) {
+            case "GET" -> {
+                QueryResult<Customer> result = service.queryCustomers(params.get("q"),
+                        orderParam(params, DealershipService.CustomerOrder.class),
+                        Boolean.parseBoolean(params.get("desc")));
+                return page(result.page(intParam(params, "offset", 0), limitParam(params)), this::customer);
+            }
+            case "POST" -> {
+                Map<String, Object> body = body(exchange);
+                Customer customer = service.addCustomer(text(body, "name"), text(body, "age"),
+                        text(body, "address"), text(body, "phone"), text(body, "email"));
+                created(exchange);
+                return customer(customer);
+            }
+            default -> throw new ApiException(405, "Method not allowed");
+        }
+    }
+
+    private String quote(HttpExchange exchange) throws IOException {
+        requirePost(exchange);
+        Map<String, Object> body = body(exchange);
+        Customer customer = null;
+        if (body.get("customerId") != null) {
+            int customerId = id(body.get("customerId"), "customerId");
+            customer = service.getCustomer(customerId);
+            if (customer == null) {
+                throw new ApiException(404, "Customer " + customerId + " does not exist");
+            }
+        }
+        List<Car> cars = new ArrayList<>();
+        for (int id : ids(body, "carIds")) {
+            Car car = service.getCar(id);
+            if (car == null) {
+                throw new ApiException(404, "Car " + id + " is not in stock");
+            }
+            cars.add(car);
+        }
+        return quote(service.quote(cars, customer));
+    }
+
+    private String checkout(HttpExchange exchange) throws IOException {
+        requirePost(exchange);
+        Map<String, Object> body = body(exchange);
+        List<Sale> sales = service.checkout(id(field(body, "customerId"), "customerId"), ids(body, "carIds"));
+        created(exchange);
+        StringBuilder out = new StringBuilder("{\"sales\":[");
+        for (int i = 0; i < sales.size(); i++) {
+            Sale sale = sales.get(i);
+            if (i > 0) {
+                out.append(',');
+            }
+            out.append("{\"car\":").append(car(sale.getCar()))
+               .append(",\"basePrice\":").append(Json.number(sale.getBasePrice()))
+               .append(",\"tax\":").append(Json.number(sale.getTax()))
+               .append(",\"discount\":").append(Json.number(sale.getDiscount()))
+               .append(",\"finalPrice\":").append(Json.number(sale.getFinalPrice()))
+               .append('}');
+        }
+        out.append("],\"quote\":").append(quote(Quote.ofSales(sales))).append('}');
+        return out.toString();
+    }
+
+    // Serialization
+
+    private String car(Car car) {
+        return "{\"id\":" + car.getId()
+                + ",\"brand\":" + Json.quote(car.getBrand())
+                + ",\"model\":" + Json.quote(car.getModel())
+                + ",\"price\":" + Json.number(car.getPrice()) + "}";
+    }
+
+    private String store(CarDealership store) {
+        return "{\"id\":" + store.getId()
+                + ",\"name\":" + Json.quote(store.getStoreName())
+                + ",\"location\":" + Json.quote(store.getStoreLocation()) + "}";
+    }
+
+    private static String price(double value) {
+        return Double.isNaN(value) ? "null" : Json.number(value);
+    }
+
+    private String customer(Customer customer) {
+        return "{\"id\":" + customer.getId()
+                + ",\"name\":" + Json.quote(customer.getName())
+                + ",\"age\":" + customer.getAge()
+                + ",\"address\":" + Json.quote(customer.getAddress())
+                + ",\"phone\":" + Json.quote(customer.getPhone())
+                + ",\"email\":" + Json.quote(customer.getEmail()) + "}";
+    }
+
+    private String quote(Quote quote) {
+        return "{\"basePrice\":" + Json.number(quote.getBasePrice())
+                + ",\"taxRate\":" + Json.number(quote.getTaxRate())
+                + ",\"tax\":" + Json.number(quote.getTax())
+                + ",\"subtotal\":" + Json.number(quote.getSubtotal())
+                + ",\"discount\":" + Json.number(quote.getDiscount())
+                + ",\"finalTotal\":" + Json.number(quote.getFinalTotal()) + "}";
+    }
+
+    private <T> String page(Page<T> page, Function<T, String> item) {
+        StringBuilder out = new StringBuilder("{\"offset\":").append(page.getOffset())
+                .append(",\"limit\":").append(page.getLimit())
+                .append(",\"total\":").append(page.getTotal())
+                .append(",\"items\":[");
+        List<T> items = page.getItems();
+        for (int i = 0; i < items.size(); i++) {
+            if (i > 0) {
+                out.append(',');
+            }
+            out.append(item.apply(items.get(i)));
+        }
+        return out.append("]}").toString();
+    }
+
+    // Request helpers
+
+    private void respond(HttpExchange exchange, Handler handler) throws IOException {
+        int status = 200;
+        String response;
+        try {
+            response = handler.handle(exchange);
+            if (exchange.getAttribute(CREATED) != null) {
+                status = 201;
+            }
+        } catch (ApiException e) {
+            status = e.status;
+            response = error(e.getMessage());
+        } catch (IllegalArgumentException e) {
+            status = 400;
+            response = error(e.getMessage());
+        } catch (IllegalStateException e) {
+            status = 409;
+            response = error(e.getMessage());
+        } catch (RuntimeException e) {
+            status = 500;
+            response = error("Internal error: " + e.getMessage());
+        }
+
+        byte[] bytes = response.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private static void created(HttpExchange exchange) {
+        exchange.setAttribute(CREATED, Boolean.TRUE);
+    }
+
+    private static String error(String message) {
+        return "{\"error\":" + Json.quote(message) + "}";
+    }
+
+    private static void requirePost(HttpExchange exchange) {
+        if (!exchange.getRequestMethod().equals("POST")) {
+            throw new ApiException(405, "Method not allowed");
+        }
+    }
+
+    private static Map<String, Object> body(HttpExchange exchange) throws IOException {
+        try (InputStream in = exchange.getRequestBody()) {
+            return Json.parseObject(new String(in.readAllBytes(), StandardCharsets.UTF_8));
+        }
+    }
+
+    private static Object field(Map<String, Object> body, String name) {
+        Object value = body.get(name);
+        if (value == null) {
+            throw new IllegalArgumentException("Missing field '" + name + "'!");
+        }
+        return value;
+    }
+
+    /** Reads a field as the text a form would have sent, so the usual validation applies. */
+    private static String text(Map<String, Object> body, String name) {
+        Object value = body.get(name);
+        if (value == null) {
+            return "";
+        }
+        if (value instanceof Double number && number == Math.rint(number) && !Double.isInfinite(number)) {
+            return String.valueOf(number.longValue());
+        }
+        return value.toString();
+    }
+
+    private static List<Integer> ids(Map<String, Object> body, String name) {
+        if (!(field(body, name) instanceof List<?> list)) {
+            throw new IllegalArgumentException("Field '" + name + "' must be a list of ids!");
+        }
+        List<Integer> ids = new ArrayList<>(list.size());
+        for (Object value : list) {
+            ids.add(id(value, name));
+        }
+        return ids;
+    }
+
+    private static int id(Object value, String name) {
+        if (!(value instanceof Double number) || number != Math.rint(number)) {
+            throw new IllegalArgumentException("Field '" + name + "' must contain whole numbers!");
+        }
+        return number.intValue();
+    }
+
+    private static Map<String, String> queryParams(HttpExchange exchange) {
+        Map<String, String> params = new HashMap<>();
+        String query = exchange.getRequestURI().getRawQuery();
+        if (query == null || query.isEmpty()) {
+            return params;
+        }
+        for (String pair : query.split("&")) {
+            int eq = pair.indexOf('=');
+            String key = eq < 0 ? pair : pair.substring(0, eq);
+            String value = eq < 0 ? "" : pair.substring(eq + 1);
+            params.put(URLDecoder.decode(key, StandardCharsets.UTF_8), URLDecoder.decode(value, StandardCharsets.UTF_8));
+        }
+        return params;
+    }
+
+    private static int intParam(Map<String, String> params, String name, int defaultValue) {
+        String value = params.get(name);
+        if (value == null || value.isEmpty()) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Parameter '" + name + "' must be a whole number!");
+        }
+    }
+
+    private static int limitParam(Map<String, String> params) {
+        return Math.min(intParam(params, "limit", DEFAULT_LIMIT), MAX_LIMIT);
+    }
+
+    private static Double doubleParam(Map<String, String> params, String name) {
+        String value = params.get(name);
+        if (value == null || value.isEmpty()) {
+            return null;
+        }
+        try {
+            return Double.parseDouble(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Parameter '" + name + "' must be a number!");
+        }
+    }
+
+    private static <E extends Enum<E>> E orderParam(Map<String, String> params, Class<E> orders) {
+        String value = params.get("sort");
+        if (value == null || value.isEmpty()) {
+            return null;
+        }
+        try {
+            return Enum.valueOf(orders, value.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Parameter 'sort' must be one of "
+                    + Arrays.toString(orders.getEnumConstants()).toLowerCase(Locale.ROOT) + "!");
+        }
+    }
+
+    /** Runs the API without the JavaFX interface. */
+    public static void main(String[] args) throws IOException {
+        DataManager.initializeDataDirectory();
+        DealershipService service = DealershipService.load();
+        int port = args.length > 0 ? Integer.parseInt(args[0])
+                : Integer.getInteger("cardealership.api.port", DEFAULT_PORT);
+        ApiServer api = new ApiServer(service, port);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            api.stop();
+            service.shutdown();
+        }));
+        api.start();
+        System.out.println("Car dealership API listening on port " + api.getPort());
+    }
+}
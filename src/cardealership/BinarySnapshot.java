@@ -0,0 +1,227 @@
+package cardealership;
+
+import java.io.*;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Binary image of the dealership, its cars and the customers, used to start
+ * up without parsing the data files.
+ *
+ * Layout (big-endian):
+ * <pre>
+ * int    magic, int version, long fingerprint
+ * int    string count, then per string: int length, UTF-8 bytes
+ * int    dealership name, int location      (string indexes, -1 if none)
+ * int    car count, then per car: int id, int model, int brand, double price
+ * int    customer count, then per customer:
+ *        int id, int name, int age, int address, int phone, int email
+ * long   CRC32C of everything above
+ * </pre>
+ *
+ * Every distinct string is stored once and referenced by index, so repeated
+ * brands and models cost four bytes per record. The fingerprint describes the
+ * data files at the time the snapshot was written; a snapshot whose
+ * fingerprint no longer matches is stale and ignored.
+ */
+public class BinarySnapshot {
+    static final String FILE_NAME = "snapshot.bin";
+    private static final int MAGIC = 0x43445331; // "CDS1"
+    private static final int VERSION = 2; // 2: ids are persistent and match the data files
+
+    public static class Contents {
+        private final CarDealership dealership;
+        private final List<Car> cars;
+        private final List<Customer> customers;
+
+        public Contents(CarDealership dealership, List<Car> cars, List<Customer> customers) {
+            this.dealership = dealership;
+            this.cars = cars;
+            this.customers = customers;
+        }
+
+        public CarDealership getDealership() { return dealership; }
+        public List<Car> getCars() { return cars; }
+        public List<Customer> getCustomers() { return customers; }
+    }
+
+    private BinarySnapshot() {}
+
+    /**
+     * Summarises name, size and modification time of every data file except
+     * the snapshot, the sales summaries and the sales index. Any change to
+     * the data changes the fingerprint.
+     */
+    public static long fingerprint(Path directory) throws IOException {
+        long hash = 0xcbf29ce484222325L; // FNV-1a
+        if (!Files.isDirectory(directory)) {
+            return hash;
+        }
+        List<Path> files;
+        try (Stream<Path> stream = Files.list(directory)) {
+            files = stream.filter(path -> !isDerived(path.getFileName().toString()))
+                    .sorted()
+                    .toList();
+        }
+        for (Path file : files) {
+            String entry = file.getFileName() + ":" + Files.size(file) + ":"
+                    + Files.getLastModifiedTime(file).toMillis() + ";";
+            for (int i = 0; i < entry.length(); i++) {
+                hash ^= entry.charAt(i);
+                hash *= 0x100000001b3L;
+            }
+        }
+        return hash;
+    }
+
+    // Files written from the data at shutdown, stamped with the fingerprint of everything else
+    private static boolean isDerived(String name) {
+        return name.startsWith(FILE_NAME) || name.startsWith(SalesSummaries.FILE_NAME)
+                || name.startsWith(SalesLog.INDEX);
+    }
+
+    public static void write(Path file, long fingerprint, CarDealership dealership,
+                             List<Car> cars, List<Customer> customers) throws IOException {
+        List<String> strings = new ArrayList<>();
+        Map<String, Integer> indexes = new HashMap<>();
+        for (Car car : cars) {
+            intern(car.getModel(), strings, indexes);
+            intern(car.getBrand(), strings, indexes);
+        }
+        for (Customer customer : customers) {
+            intern(customer.getName(), strings, indexes);
+            intern(customer.getAddress(), strings, indexes);
+            intern(customer.getPhone(), strings, indexes);
+            intern(customer.getEmail(), strings, indexes);
+        }
+        if (dealership != null) {
+            intern(dealership.getStoreName(), strings, indexes);
+            intern(dealership.getStoreLocation(), strings, indexes);
+        }
+
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        CRC32C checksum = new CRC32C();
+        try (FileOutputStream fileOut = new FileOutputStream(temp.toFile())) {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                    new CheckedOutputStream(fileOut, checksum), 1 << 16));
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(fingerprint);
+
+            out.writeInt(strings.size());
+            for (String value : strings) {
+                byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+                out.writeInt(bytes.length);
+                out.write(bytes);
+            }
+
+            out.writeInt(dealership == null ? -1 : indexes.get(dealership.getStoreName()));
+            out.writeInt(dealership == null ? -1 : indexes.get(dealership.getStoreLocation()));
+
+            out.writeInt(cars.size());
+            for (Car car : cars) {
+                out.writeInt(car.getId());
+                out.writeInt(indexes.get(car.getModel()));
+                out.writeInt(indexes.get(car.getBrand()));
+                out.writeDouble(car.getPrice());
+            }
+
+            out.writeInt(customers.size());
+            for (Customer customer : customers) {
+                out.writeInt(customer.getId());
+                out.writeInt(indexes.get(customer.getName()));
+                out.writeInt(customer.getAge());
+                out.writeInt(indexes.get(customer.getAddress()));
+                out.writeInt(indexes.get(customer.getPhone()));
+                out.writeInt(indexes.get(customer.getEmail()));
+            }
+            out.flush();
+            // The checksum itself is not part of the checked data
+            new DataOutputStream(fileOut).writeLong(checksum.getValue());
+            fileOut.getFD().sync();
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static void intern(String value, List<String> strings, Map<String, Integer> indexes) {
+        if (!indexes.containsKey(value)) {
+            indexes.put(value, strings.size());
+            strings.add(value);
+        }
+    }
+
+    /**
+     * Reads a snapshot through a memory mapping.
+     *
+     * @return the contents, or {@code null} if the file is missing, corrupt,
+     *         of another version or does not match {@code fingerprint}
+     */
+    public static Contents read(Path file, long fingerprint) throws IOException {
+        if (!Files.exists(file)) {
+            return null;
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < 24 || size > Integer.MAX_VALUE) {
+                return null;
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+
+            CRC32C checksum = new CRC32C();
+            checksum.update(buffer.slice(0, (int) size - 8));
+            if (checksum.getValue() != buffer.getLong((int) size - 8)) {
+                return null;
+            }
+            if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION || buffer.getLong() != fingerprint) {
+                return null;
+            }
+            return parse(buffer);
+        } catch (BufferUnderflowException | IndexOutOfBoundsException | NegativeArraySizeException e) {
+            return null;
+        }
+    }
+
+    private static Contents parse(ByteBuffer buffer) {
+        String[] strings = new String[buffer.getInt()];
+        for (int i = 0; i < strings.length; i++) {
+            byte[] bytes = new byte[buffer.getInt()];
+            buffer.get(bytes);
+            strings[i] = new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        int name = buffer.getInt();
+        int location = buffer.getInt();
+        CarDealership dealership = name < 0 ? null : new CarDealership(strings[name], strings[location]);
+
+        int carCount = buffer.getInt();
+        List<Car> cars = new ArrayList<>(carCount);
+        for (int i = 0; i < carCount; i++) {
+            int id = buffer.getInt();
+            Car car = new Car(strings[buffer.getInt()], strings[buffer.getInt()], buffer.getDouble());
+            car.setId(id);
+            cars.add(car);
+        }
+
+        int customerCount = buffer.getInt();
+        List<Customer> customers = new ArrayList<>(customerCount);
+        for (int i = 0; i < customerCount; i++) {
+            int id = buffer.getInt();
+            Customer customer = new Customer(strings[buffer.getInt()], buffer.getInt(),
+                    strings[buffer.getInt()], strings[buffer.getInt()], strings[buffer.getInt()]);
+            customer.setId(id);
+            customers.add(customer);
+        }
+        return new Contents(dealership, cars, customers);
+    }
+}
@@ -1,40 +1,206 @@
 package cardealership;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.TreeSet;
 
-public class CarDealership extends Store {
-    private int id;
-    private List<Car> cars;
+/**
+ * Car inventory with lookup by id and sorted indexes on price and brand.
+ *
+ * Cars are kept in an {@link EntityTable} indexed by their persistent id, so
+ * finding a car by id is one array access. Ids come from the
+ * {@link IdAllocator}; a car without one, or whose id is already in stock,
+ * is refused. Adding, removing and the range queries are logarithmic in the
+ * size of the inventory (plus the size of the result). Change a car's price
+ * only while it is not in stock, or the price index will no longer find it.
+ *
+ * Statistics over the whole inventory come from {@link InventoryColumns},
+ * kept up to date alongside the indexes. With
+ * {@code -Dcardealership.columnar=false} the columns are not kept and are
+ * built from the cars for each query instead.
+ */
+public class CarDealership extends Store<Car> {
+    private static final boolean COLUMNAR =
+        Boolean.parseBoolean(System.getProperty("cardealership.columnar", "true"));
+    private static final Comparator<Car> BY_PRICE =
+        Comparator.comparingDouble(Car::getPrice).thenComparingInt(Car::getId);
+
+    private final EntityTable<Car> carsById = new EntityTable<>();
+    private final NavigableSet<Car> carsByPrice = new TreeSet<>(BY_PRICE);
+    private final Map<String, NavigableSet<Car>> carsByBrand = new HashMap<>();
+    private final InventoryColumns columns = COLUMNAR ? new InventoryColumns() : null;
+    private final ReservationManager reservations = new ReservationManager();
 
     public CarDealership() {
         super("Car Dealership", "Default Dealership", "Default Location");
-        cars = new ArrayList<>();
     }
 
     public CarDealership(String name, String location) {
         super("Car Dealership", name, location);
-        cars = new ArrayList<>();
     }
 
 
+    /** @throws IllegalArgumentException if the car has no id or a car with the same id is already in stock */
     public void addCar(Car car) {
-        cars.add(car);
-        addToInventory(car);
+        checkNew(car);
+        carsById.put(car.getId(), car);
+        carsByPrice.add(car);
+        carsByBrand.computeIfAbsent(brandKey(car.getBrand()), k -> new TreeSet<>(BY_PRICE)).add(car);
+        if (columns != null) {
+            columns.add(car);
+        }
+    }
+
+    /**
+     * Adds all the cars, or none of them.
+     *
+     * @throws IllegalArgumentException if a car has no id, or its id is already in stock or given twice
+     */
+    public void addCars(List<Car> list) {
+        Set<Integer> ids = new HashSet<>();
+        for (Car car : list) {
+            checkNew(car);
+            if (!ids.add(car.getId())) {
+                throw new IllegalArgumentException("Car id " + car.getId() + " is given twice!");
+            }
+        }
+        for (Car car : list) {
+            addCar(car);
+        }
+    }
+
+    private void checkNew(Car car) {
+        if (car.getId() <= 0) {
+            throw new IllegalArgumentException(car + " has no id!");
+        } else if (carsById.contains(car.getId())) {
+            throw new IllegalArgumentException("A car with id " + car.getId() + " is already in stock!");
+        }
+    }
+
+    /** @return {@code true} if the car was in stock */
+    public boolean removeCar(Car car) {
+        if (carsById.get(car.getId()) != car) {
+            return false;
+        }
+        carsById.remove(car.getId());
+        carsByPrice.remove(car);
+        String brand = brandKey(car.getBrand());
+        NavigableSet<Car> brandCars = carsByBrand.get(brand);
+        brandCars.remove(car);
+        if (brandCars.isEmpty()) {
+            carsByBrand.remove(brand);
+        }
+        if (columns != null) {
+            columns.remove(car);
+        }
+        reservations.forget(car);
+        return true;
+    }
+
+    public Car getCar(int carId) {
+        return carsById.get(carId);
+    }
+
+    public boolean hasCar(Car car) {
+        return carsById.get(car.getId()) == car;
+    }
+
+    public int getCarCount() {
+        return carsById.size();
     }
 
-    public int getId() { return id; }
-    public void setId(int id) { this.id = id; }
+    /** The inventory as columns, for scans over every car. Read only. */
+    public InventoryColumns getColumns() {
+        return columns != null ? columns : InventoryColumns.of(carsById.values());
+    }
+
+    public ReservationManager getReservations() {
+        return reservations;
+    }
+
+    @Override
+    public List<Car> getInventory() {
+        return getCars();
+    }
+
+    @Override
+    public int getInventorySize() {
+        return getCarCount();
+    }
 
     @Override
     public void displayInventory() {
         System.out.println("Current Car Inventory:");
-        for (Car car : cars) {
+        for (Car car : carsById.values()) {
             System.out.println(car);
         }
     }
 
+    /** Returns a snapshot of the inventory in the order the cars were added, which is id order. */
     public List<Car> getCars() {
-        return cars;
+        return carsById.values();
+    }
+
+    /** The cars as they are now, unaffected by later changes. */
+    EntityTable.Snapshot<Car> snapshotCars() {
+        return carsById.snapshot();
+    }
+
+    /** Returns all cars, cheapest first. */
+    public List<Car> getCarsByPrice() {
+        return new ArrayList<>(carsByPrice);
+    }
+
+    /** Returns the cars priced between {@code minPrice} and {@code maxPrice} (inclusive), cheapest first. */
+    public List<Car> findCars(double minPrice, double maxPrice) {
+        return new ArrayList<>(priceRange(carsByPrice, minPrice, maxPrice));
+    }
+
+    /** Returns the cars of {@code brand} (any case) priced between the bounds, cheapest first. */
+    public List<Car> findCars(String brand, double minPrice, double maxPrice) {
+        NavigableSet<Car> brandCars = carsByBrand.get(brandKey(brand));
+        if (brandCars == null) {
+            return new ArrayList<>();
+        }
+        return new ArrayList<>(priceRange(brandCars, minPrice, maxPrice));
+    }
+
+    public List<Car> findCarsByBrand(String brand) {
+        NavigableSet<Car> brandCars = carsByBrand.get(brandKey(brand));
+        return brandCars == null ? new ArrayList<>() : new ArrayList<>(brandCars);
+    }
+
+    public Car getCheapestCar() {
+        return carsByPrice.isEmpty() ? null : carsByPrice.first();
+    }
+
+    public Car getMostExpensiveCar() {
+        return carsByPrice.isEmpty() ? null : carsByPrice.last();
+    }
+
+    private static NavigableSet<Car> priceRange(NavigableSet<Car> cars, double minPrice, double maxPrice) {
+        if (minPrice > maxPrice) {
+            return Collections.emptyNavigableSet();
+        }
+        return cars.subSet(probe(minPrice, Integer.MIN_VALUE), true, probe(maxPrice, Integer.MAX_VALUE), true);
+    }
+
+    // Sorts before or after every real car with the same price
+    private static Car probe(double price, int id) {
+        Car car = new Car(null, null, price);
+        car.setId(id);
+        return car;
+    }
+
+    private static String brandKey(String brand) {
+        return brand.toLowerCase(Locale.ROOT);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,7 @@
+package cardealership;
+
+public enum CarStatus {
+    AVAILABLE,
+    RESERVED,
+    SOLD
+}
@@ -0,0 +1,137 @@
+package cardealership;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The cars a customer is about to buy, with their quote kept up to date.
+ *
+ * Adding, removing and membership tests are constant time: cars are kept
+ * by id, and the base total and the amount off for brand promotions are
+ * running sums in cents, priced by the {@link PricingRules} of the store
+ * the cart was opened at. The {@link Quote} is
+ * computed from that sum when first asked for and reused until the cart
+ * changes, so the summary and the checkout use the same figures. Each car's
+ * summary line is formatted once, when it is added.
+ *
+ * Not thread safe; a cart belongs to one screen.
+ */
+public class Cart {
+    // The cars and their summary lines, in the order they were added
+    private final Map<Integer, Car> cars = new LinkedHashMap<>();
+    private final Map<Integer, String> lines = new LinkedHashMap<>();
+    private final PricingRules rules;
+    private final String location;
+    private long baseCents;
+    private long promotionCents;
+    private double customerSpent;
+    private int lineLength;
+    private Quote quote;
+    private String summary;
+    private Customer summaryCustomer;
+
+    /** An empty cart priced by {@code rules} at the store in {@code location}. */
+    public Cart(PricingRules rules, String location) {
+        this.rules = rules;
+        this.location = location;
+    }
+
+    /** @return {@code false} if the car is already in the cart */
+    public boolean add(Car car) {
+        if (cars.putIfAbsent(car.getId(), car) != null) {
+            return false;
+        }
+        String line = String.format("%s %s - $%.2f\n", car.getBrand(), car.getModel(), car.getPrice());
+        lines.put(car.getId(), line);
+        lineLength += line.length();
+        baseCents += cents(car);
+        promotionCents += promotionCents(car);
+        changed();
+        return true;
+    }
+
+    /** @return {@code false} if the car was not in the cart */
+    public boolean remove(Car car) {
+        if (cars.remove(car.getId()) == null) {
+            return false;
+        }
+        lineLength -= lines.remove(car.getId()).length();
+        baseCents -= cents(car);
+        promotionCents -= promotionCents(car);
+        changed();
+        return true;
+    }
+
+    public boolean contains(Car car) {
+        return cars.containsKey(car.getId());
+    }
+
+    public int size() {
+        return cars.size();
+    }
+
+    public boolean isEmpty() {
+        return cars.isEmpty();
+    }
+
+    /** The cars in the order they were added. */
+    public List<Car> getCars() {
+        return new ArrayList<>(cars.values());
+    }
+
+    public void clear() {
+        cars.clear();
+        lines.clear();
+        baseCents = 0;
+        promotionCents = 0;
+        lineLength = 0;
+        changed();
+    }
+
+    /** Sets what the buyer has spent before, for the customer discount. */
+    public void setCustomerSpent(double spent) {
+        if (spent != customerSpent) {
+            customerSpent = spent;
+            changed();
+        }
+    }
+
+    /** The quote for the cars in the cart, computed once per change. */
+    public Quote quote() {
+        if (quote == null) {
+            quote = rules.quote(baseCents / 100.0, promotionCents / 100.0, location, customerSpent);
+        }
+        return quote;
+    }
+
+    /** The order summary for {@code customer}: the cars, then the quote. */
+    public String summary(Customer customer) {
+        if (summary == null || customer != summaryCustomer) {
+            String header = "Customer: " + customer.getName() + "\n\nSelected Cars:\n";
+            String totals = quote().toString();
+            StringBuilder text = new StringBuilder(header.length() + lineLength + 1 + totals.length());
+            text.append(header);
+            for (String line : lines.values()) {
+                text.append(line);
+            }
+            summary = text.append('\n').append(totals).toString();
+            summaryCustomer = customer;
+        }
+        return summary;
+    }
+
+    private void changed() {
+        quote = null;
+        summary = null;
+    }
+
+    private static long cents(Car car) {
+        return Math.round(car.getPrice() * 100);
+    }
+
+    private long promotionCents(Car car) {
+        return Math.round(car.getPrice() * rules.promotion(car.getBrand()) * 100);
+    }
+}
@@ -0,0 +1,156 @@
+package cardealership;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * Write-ahead record of a checkout for the file based backends.
+ *
+ * The intent is written and synced before any data file is touched. It ends
+ * with a {@code commit <crc>} line, the CRC32 of everything before it, which
+ * is written and synced last; once that line is on disk the checkout is
+ * committed. An intent without it was torn by a crash and never happened.
+ * Applying it is idempotent (files are truncated back to the recorded
+ * offsets before appending), so after a crash the backend simply applies a
+ * leftover intent again and deletes it.
+ */
+class CheckoutIntent {
+    private static final String COMMIT = "commit ";
+
+    String salesSegment;
+    long salesOffset;
+    final List<String> sales = new ArrayList<>();
+    int journalSegment = -1;
+    long journalOffset;
+    final List<String> removals = new ArrayList<>();
+
+    void write(Path file) throws IOException {
+        StringBuilder out = new StringBuilder();
+        out.append("sales ").append(salesOffset).append(' ').append(salesSegment).append('\n');
+        if (journalSegment >= 0) {
+            out.append("journal ").append(journalSegment).append(' ').append(journalOffset).append('\n');
+        }
+        for (String line : sales) {
+            out.append('S').append(line).append('\n');
+        }
+        for (String line : removals) {
+            out.append('R').append(line).append('\n');
+        }
+        byte[] body = out.toString().getBytes(StandardCharsets.UTF_8);
+        writeSynced(file, 0, out.toString());
+        // The commit line goes last, in a write of its own, so it is never on disk before the body
+        writeSynced(file, body.length, COMMIT + checksum(body, body.length) + "\n");
+    }
+
+    /** Reads the intent in {@code file}; one that was never committed is deleted and read as none. */
+    static CheckoutIntent read(Path file) throws IOException {
+        if (!Files.exists(file)) {
+            return null;
+        }
+        byte[] data = Files.readAllBytes(file);
+        int end = committedLength(data);
+        if (end < 0) {
+            Files.delete(file);
+            return null;
+        }
+        CheckoutIntent intent = new CheckoutIntent();
+        try (BufferedReader reader = new BufferedReader(
+                new StringReader(new String(data, 0, end, StandardCharsets.UTF_8)))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.startsWith("sales ")) {
+                    String[] parts = line.substring(6).trim().split(" ");
+                    intent.salesOffset = Long.parseLong(parts[0]);
+                    intent.salesSegment = parts.length > 1 ? parts[1] : SalesLog.LEGACY_KEY;
+                } else if (line.startsWith("journal ")) {
+                    String[] parts = line.substring(8).trim().split(" ");
+                    intent.journalSegment = Integer.parseInt(parts[0]);
+                    intent.journalOffset = Long.parseLong(parts[1]);
+                } else if (line.startsWith("S")) {
+                    intent.sales.add(line.substring(1));
+                } else if (line.startsWith("R")) {
+                    intent.removals.add(line.substring(1));
+                }
+            }
+        }
+        return intent;
+    }
+
+    // The length of the body if the intent ends with its commit line, otherwise -1
+    private static int committedLength(byte[] data) {
+        int end = data.length;
+        if (end == 0 || data[end - 1] != '\n') {
+            return -1;
+        }
+        int start = end - 1;
+        while (start > 0 && data[start - 1] != '\n') {
+            start--;
+        }
+        String last = new String(data, start, end - 1 - start, StandardCharsets.UTF_8);
+        if (!last.startsWith(COMMIT)) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(last.substring(COMMIT.length())) == checksum(data, start) ? start : -1;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private static long checksum(byte[] data, int length) {
+        CRC32 crc = new CRC32();
+        crc.update(data, 0, length);
+        return crc.getValue();
+    }
+
+    /** Truncates {@code file} to {@code offset}, appends {@code text} and syncs it to disk. */
+    static void writeSynced(Path file, long offset, String text) throws IOException {
+        try (FileChannel channel = FileChannel.open(file,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            if (channel.size() > offset) {
+                channel.truncate(offset);
+            }
+            channel.position(offset);
+            ByteBuffer buffer = ByteBuffer.wrap(text.getBytes(StandardCharsets.UTF_8));
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(true);
+        }
+    }
+
+    /**
+     * Syncs the entries of {@code directory}, so a file just moved into it
+     * stays moved after a crash. Platforms that cannot open a directory for
+     * this (Windows) are skipped.
+     */
+    static void syncDirectory(Path directory) throws IOException {
+        FileChannel channel;
+        try {
+            channel = FileChannel.open(directory, StandardOpenOption.READ);
+        } catch (IOException | UnsupportedOperationException e) {
+            return;
+        }
+        try (channel) {
+            channel.force(true);
+        }
+    }
+
+    static String lines(List<String> lines) {
+        StringBuilder out = new StringBuilder();
+        for (String line : lines) {
+            out.append(line).append(System.lineSeparator());
+        }
+        return out.toString();
+    }
+}
@@ -0,0 +1,77 @@
+package cardealership;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Small fixed-size pool of SQLite connections. Connections are opened once,
+ * configured for WAL mode and handed out with {@link #acquire()}.
+ */
+public class ConnectionPool implements AutoCloseable {
+    private final BlockingQueue<Connection> idle;
+    private final List<Connection> all = new ArrayList<>();
+
+    public ConnectionPool(String url, int size) throws SQLException {
+        idle = new ArrayBlockingQueue<>(size);
+        try {
+            for (int i = 0; i < size; i++) {
+                Connection connection = DriverManager.getConnection(url);
+                all.add(connection);
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("PRAGMA journal_mode=WAL");
+                    statement.execute("PRAGMA synchronous=NORMAL");
+                    statement.execute("PRAGMA busy_timeout=5000");
+                }
+                idle.add(connection);
+            }
+        } catch (SQLException e) {
+            // Don't leave the connections opened so far behind
+            try {
+                closeAll();
+            } catch (SQLException suppressed) {
+                e.addSuppressed(suppressed);
+            }
+            throw e;
+        }
+    }
+
+    public Connection acquire() throws SQLException {
+        try {
+            return idle.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a connection", e);
+        }
+    }
+
+    public void release(Connection connection) {
+        idle.offer(connection);
+    }
+
+    @Override
+    public void close() throws SQLException {
+        closeAll();
+    }
+
+    private void closeAll() throws SQLException {
+        SQLException failure = null;
+        for (Connection connection : all) {
+            try {
+                connection.close();
+            } catch (SQLException e) {
+                failure = e;
+            }
+        }
+        all.clear();
+        idle.clear();
+        if (failure != null) {
+            throw failure;
+        }
+    }
+}
@@ -0,0 +1,296 @@
+package cardealership;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Streaming RFC 4180 reader for the text data files.
+ *
+ * Records are read straight from a reusable byte buffer: {@link #next()}
+ * finds the end of the record (quoted fields may contain commas, doubled
+ * quotes and line breaks), unescapes quoted fields in place and remembers
+ * where each field starts and ends. Nothing is allocated per record; a
+ * {@code String} is only created when {@link #getString} is called, and
+ * {@link #getInt} and {@link #getDouble} parse the bytes directly.
+ *
+ * The delimiters are all ASCII, so UTF-8 text can be split without decoding.
+ * {@link #field} is the matching writer side.
+ */
+final class CsvReader implements Closeable {
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final double[] POWERS_OF_TEN = {
+        1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+        1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    private final InputStream in;
+    private byte[] buffer;
+    private int position;
+    private int limit;
+    private boolean eof;
+
+    private int[] starts = new int[16];
+    private int[] ends = new int[16];
+    private int fieldCount;
+
+    CsvReader(InputStream in) {
+        this.in = in;
+        this.buffer = new byte[BUFFER_SIZE];
+    }
+
+    /** Reads the records of {@code text}, usually a single line. */
+    CsvReader(String text) {
+        this.in = null;
+        this.buffer = text.getBytes(StandardCharsets.UTF_8);
+        this.limit = buffer.length;
+        this.eof = true;
+    }
+
+    /** Returns a reader positioned on the first record of {@code line}. */
+    static CsvReader ofLine(String line) {
+        CsvReader csv = new CsvReader(line);
+        try {
+            csv.next();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);  // cannot happen, there is no stream
+        }
+        return csv;
+    }
+
+    /**
+     * Moves to the next record, skipping blank lines.
+     *
+     * @return {@code false} at the end of the input
+     */
+    boolean next() throws IOException {
+        while (true) {
+            int end = findRecordEnd();
+            if (end < 0) {
+                fieldCount = 0;
+                return false;
+            }
+            int start = position;
+            // The \n of a \r\n pair is left behind as a blank line
+            position = end < limit ? end + 1 : end;
+            if (end > start) {
+                split(start, end);
+                return true;
+            }
+        }
+    }
+
+    int fieldCount() {
+        return fieldCount;
+    }
+
+    String getString(int field) {
+        checkField(field);
+        return new String(buffer, starts[field], ends[field] - starts[field], StandardCharsets.UTF_8);
+    }
+
+    int getInt(int field) {
+        checkField(field);
+        int i = starts[field];
+        int end = ends[field];
+        boolean negative = i < end && buffer[i] == '-';
+        if (negative || i < end && buffer[i] == '+') {
+            i++;
+        }
+        // At most 9 digits cannot overflow; anything else takes the slow path
+        if (i == end || end - i > 9) {
+            return Integer.parseInt(getString(field));
+        }
+        int value = 0;
+        for (; i < end; i++) {
+            int digit = buffer[i] - '0';
+            if (digit < 0 || digit > 9) {
+                return Integer.parseInt(getString(field));
+            }
+            value = value * 10 + digit;
+        }
+        return negative ? -value : value;
+    }
+
+    long getLong(int field) {
+        checkField(field);
+        int i = starts[field];
+        int end = ends[field];
+        boolean negative = i < end && buffer[i] == '-';
+        if (negative || i < end && buffer[i] == '+') {
+            i++;
+        }
+        // At most 18 digits cannot overflow; anything else takes the slow path
+        if (i == end || end - i > 18) {
+            return Long.parseLong(getString(field));
+        }
+        long value = 0;
+        for (; i < end; i++) {
+            int digit = buffer[i] - '0';
+            if (digit < 0 || digit > 9) {
+                return Long.parseLong(getString(field));
+            }
+            value = value * 10 + digit;
+        }
+        return negative ? -value : value;
+    }
+
+    /**
+     * Parses plain decimals such as {@code 24999.00} without creating a
+     * string. Values that cannot be converted exactly this way (exponents,
+     * more than 15 significant digits, surrounding blanks) fall back to
+     * {@link Double#parseDouble}, so the result is always the same.
+     */
+    double getDouble(int field) {
+        checkField(field);
+        int i = starts[field];
+        int end = ends[field];
+        boolean negative = i < end && buffer[i] == '-';
+        if (negative || i < end && buffer[i] == '+') {
+            i++;
+        }
+        long mantissa = 0;
+        int digits = 0;
+        int scale = -1;
+        for (; i < end; i++) {
+            byte b = buffer[i];
+            if (b == '.' && scale < 0) {
+                scale = 0;
+            } else if (b >= '0' && b <= '9') {
+                mantissa = mantissa * 10 + (b - '0');
+                digits++;
+                if (scale >= 0) {
+                    scale++;
+                }
+            } else {
+                return Double.parseDouble(getString(field));
+            }
+        }
+        // Both operands are exact doubles, so one division rounds correctly
+        if (digits == 0 || digits > 15 || scale >= POWERS_OF_TEN.length) {
+            return Double.parseDouble(getString(field));
+        }
+        double value = scale > 0 ? mantissa / POWERS_OF_TEN[scale] : mantissa;
+        return negative ? -value : value;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (in != null) {
+            in.close();
+        }
+    }
+
+    /**
+     * Quotes {@code value} for writing if it contains a comma, a quote or a
+     * line break; other values are returned unchanged.
+     */
+    static String field(String value) {
+        if (value == null) {
+            return "";
+        }
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == ',' || c == '"' || c == '\n' || c == '\r') {
+                return '"' + value.replace("\"", "\"\"") + '"';
+            }
+        }
+        return value;
+    }
+
+    private void checkField(int field) {
+        if (field < 0 || field >= fieldCount) {
+            throw new IndexOutOfBoundsException("Field " + field + " of " + fieldCount);
+        }
+    }
+
+    // Index of the line break ending the record at position (or the end of input), -1 if none is left
+    private int findRecordEnd() throws IOException {
+        int i = position;
+        boolean quoted = false;
+        while (true) {
+            if (i == limit) {
+                int consumed = position;
+                if (!fill()) {
+                    return position == limit ? -1 : limit;
+                }
+                i -= consumed;
+                continue;
+            }
+            byte b = buffer[i];
+            if (b == '"') {
+                quoted = !quoted;
+            } else if (!quoted && (b == '\n' || b == '\r')) {
+                return i;
+            }
+            i++;
+        }
+    }
+
+    // Moves the unread bytes to the front, growing the buffer if a record fills it, and reads more
+    private boolean fill() throws IOException {
+        if (eof) {
+            return false;
+        }
+        int remaining = limit - position;
+        if (remaining == buffer.length) {
+            buffer = Arrays.copyOf(buffer, buffer.length * 2);
+        } else if (position > 0) {
+            System.arraycopy(buffer, position, buffer, 0, remaining);
+        }
+        position = 0;
+        limit = remaining;
+        int read = in.read(buffer, limit, buffer.length - limit);
+        if (read < 0) {
+            eof = true;
+            return false;
+        }
+        limit += read;
+        return true;
+    }
+
+    private void split(int start, int end) {
+        fieldCount = 0;
+        int i = start;
+        while (true) {
+            if (fieldCount == starts.length) {
+                starts = Arrays.copyOf(starts, fieldCount * 2);
+                ends = Arrays.copyOf(ends, fieldCount * 2);
+            }
+            if (i < end && buffer[i] == '"') {
+                // Unescape in place: the value never grows, so it can be written over itself
+                int out = ++i;
+                starts[fieldCount] = out;
+                while (i < end) {
+                    byte b = buffer[i++];
+                    if (b == '"') {
+                        if (i < end && buffer[i] == '"') {
+                            i++;
+                        } else {
+                            break;
+                        }
+                    }
+                    buffer[out++] = b;
+                }
+                ends[fieldCount++] = out;
+                // Anything between the closing quote and the next comma is ignored
+                while (i < end && buffer[i] != ',') {
+                    i++;
+                }
+            } else {
+                starts[fieldCount] = i;
+                while (i < end && buffer[i] != ',') {
+                    i++;
+                }
+                ends[fieldCount++] = i;
+            }
+            if (i == end) {
+                return;
+            }
+            i++;
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package cardealership;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Substring search over customer name, email and phone.
+ *
+ * Every customer is indexed by the trigrams of its lower-cased fields. A
+ * query of three or more characters only checks the customers that contain
+ * all of its trigrams; shorter queries scan the precomputed lower-case keys.
+ * Matching is the same as the old search box: case-insensitive on name and
+ * email, exact on phone. Results keep the order customers were added in.
+ *
+ * Customers are added incrementally and queries may run on any thread.
+ */
+public final class CustomerSearchIndex {
+    private static final char SEPARATOR = '\u0000';
+
+    private static class Postings {
+        int[] ids = new int[4];
+        int size;
+
+        void add(int id) {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+            }
+            ids[size++] = id;
+        }
+    }
+
+    private final List<Customer> customers = new ArrayList<>();
+    private final List<String> keys = new ArrayList<>();
+    private final Map<Long, Postings> trigrams = new HashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    public CustomerSearchIndex() {}
+
+    public CustomerSearchIndex(List<Customer> customers) {
+        addAll(customers);
+    }
+
+    public void addAll(List<Customer> list) {
+        lock.writeLock().lock();
+        try {
+            for (Customer customer : list) {
+                index(customer);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void add(Customer customer) {
+        lock.writeLock().lock();
+        try {
+            index(customer);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return customers.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /** Returns the customers whose name, email or phone contains {@code query}. */
+    public List<Customer> search(String query) {
+        lock.readLock().lock();
+        try {
+            if (query == null || query.isEmpty()) {
+                return new ArrayList<>(customers);
+            }
+            String lower = query.toLowerCase(Locale.ROOT);
+            List<Customer> result = new ArrayList<>();
+            if (lower.length() < 3) {
+                for (int id = 0; id < keys.size(); id++) {
+                    if (matches(id, query, lower)) {
+                        result.add(customers.get(id));
+                    }
+                }
+                return result;
+            }
+
+            Postings smallest = null;
+            for (int i = 0; i + 3 <= lower.length(); i++) {
+                Postings postings = trigrams.get(trigram(lower, i));
+                if (postings == null) {
+                    return result;
+                }
+                if (smallest == null || postings.size < smallest.size) {
+                    smallest = postings;
+                }
+            }
+            // Candidates share the rarest trigram; confirm the full substring
+            for (int i = 0; i < smallest.size; i++) {
+                int id = smallest.ids[i];
+                if (matches(id, query, lower)) {
+                    result.add(customers.get(id));
+                }
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private boolean matches(int id, String query, String lower) {
+        String key = keys.get(id);
+        int phoneStart = key.lastIndexOf(SEPARATOR) + 1;
+        int match = key.indexOf(lower);
+        if (match >= 0 && match + lower.length() <= phoneStart) {
+            return true; // name or email
+        }
+        return customers.get(id).getPhone().contains(query);
+    }
+
+    private void index(Customer customer) {
+        int id = customers.size();
+        String key = customer.getName().toLowerCase(Locale.ROOT) + SEPARATOR
+            + customer.getEmail().toLowerCase(Locale.ROOT) + SEPARATOR
+            + customer.getPhone().toLowerCase(Locale.ROOT);
+        customers.add(customer);
+        keys.add(key);
+        for (int i = 0; i + 3 <= key.length(); i++) {
+            if (key.charAt(i) == SEPARATOR || key.charAt(i + 1) == SEPARATOR || key.charAt(i + 2) == SEPARATOR) {
+                continue;
+            }
+            Postings postings = trigrams.computeIfAbsent(trigram(key, i), k -> new Postings());
+            // The same trigram can repeat within one key; keep each id once
+            if (postings.size == 0 || postings.ids[postings.size - 1] != id) {
+                postings.add(id);
+            }
+        }
+    }
+
+    private static long trigram(String s, int i) {
+        return ((long) s.charAt(i) << 32) | ((long) s.charAt(i + 1) << 16) | s.charAt(i + 2);
+    }
+}
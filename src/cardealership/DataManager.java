@@ -1,161 +1,515 @@
 package cardealership;
 
 import java.io.*;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.function.ObjIntConsumer;
+import java.util.function.ToIntFunction;
 
+/**
+ * Entry point for all persistence. The actual format is provided by a
+ * {@link Storage} backend, chosen with the {@code cardealership.storage}
+ * system property: {@code text} (default), {@code journal} or {@code sqlite}.
+ *
+ * Writes go through a {@link WriteBehindStorage} unless
+ * {@code -Dcardealership.writeBehind=false} is given, so the callers in the UI
+ * return immediately. Errors are passed to the handler set with
+ * {@link #setErrorHandler}, which defaults to {@code System.err}.
+ *
+ * At shutdown the whole model can be written to a {@link BinarySnapshot};
+ * the next start reads it instead of the data files as long as none of them
+ * changed in between. Disable with {@code -Dcardealership.snapshot=false}.
+ * The {@link SalesSummaries} are saved the same way, but always.
+ *
+ * Cars, customers and sales get their ids from one {@link IdAllocator} for
+ * all backends. Records loaded without an id (written before ids were kept)
+ * are given one and saved again, once.
+ *
+ * Brands, models and store locations repeat across thousands of records, so
+ * every record that enters the model has them replaced by the shared
+ * instance from the directory's {@link StringDictionary}.
+ *
+ * The ids, the dictionary and the other files kept here (snapshot, stores,
+ * pricing) live in the data directory, {@code data} unless a backend in
+ * another directory is set with {@link #setStorage(Storage, Path)}.
+ */
 public class DataManager {
     private static final String DATA_DIRECTORY = "data";
-    private static final String CARS_FILE = DATA_DIRECTORY + "/cars.txt";
-    private static final String CUSTOMERS_FILE = DATA_DIRECTORY + "/customers.txt";
-    private static final String DEALERSHIP_FILE = DATA_DIRECTORY + "/dealership.txt";
-    private static final String SALES_FILE = DATA_DIRECTORY + "/sales.txt";
+
+    private static Storage storage = new TextStorage(DATA_DIRECTORY);
+    private static Consumer<String> errorHandler = System.err::println;
+    private static Long startupFingerprint;
+    private static Path dataDirectory = Paths.get(DATA_DIRECTORY);
+    private static IdAllocator ids = newIdAllocator();
+    private static StringDictionary dictionary = StringDictionary.open(dataDirectory);
 
     public static void initializeDataDirectory() {
         File directory = new File(DATA_DIRECTORY);
         if (!directory.exists()) {
             directory.mkdir();
         }
+
+        // Must be taken before a backend opens (and possibly touches) its files
+        startupFingerprint = null;
+        try {
+            startupFingerprint = BinarySnapshot.fingerprint(directory.toPath());
+        } catch (IOException e) {
+            reportError("Error reading data directory: " + e.getMessage());
+        }
+
+        // Before the backends, which may import records that need ids
+        useDirectory(directory.toPath());
+        Storage backend = new TextStorage(DATA_DIRECTORY);
+        String mode = System.getProperty("cardealership.storage", "text");
+        if (mode.equalsIgnoreCase("sqlite")) {
+            try {
+                backend = new SqliteStorage(DATA_DIRECTORY);
+            } catch (IOException e) {
+                reportError("Error opening database, using text files: " + e.getMessage());
+            }
+        } else if (mode.equalsIgnoreCase("journal")) {
+            backend = new JournalStorage(DATA_DIRECTORY);
+        }
+
+        if (Boolean.parseBoolean(System.getProperty("cardealership.writeBehind", "true"))) {
+            backend = new WriteBehindStorage(backend, e -> reportError(e.getMessage()));
+        }
+        setStorage(backend);
+    }
+
+    public static void setErrorHandler(Consumer<String> handler) {
+        errorHandler = handler;
+    }
+
+    static void reportError(String message) {
+        errorHandler.accept(message);
+    }
+
+    /** Waits until all writes issued so far have reached the backend. */
+    public static void flush() {
+        if (storage instanceof WriteBehindStorage writeBehind) {
+            writeBehind.flush();
+        }
+    }
+
+    public static Storage getStorage() {
+        return storage;
+    }
+
+    public static void setStorage(Storage newStorage) {
+        Storage previous = storage;
+        storage = newStorage;
+        close(previous);
+    }
+
+    /** Sets a backend whose files are in {@code directory}, and keeps the ids and dictionary there too. */
+    public static void setStorage(Storage newStorage, Path directory) {
+        useDirectory(directory);
+        setStorage(newStorage);
+    }
+
+    // Moves the ids and the dictionary to the directory, saving the next ids of the previous one
+    private static void useDirectory(Path directory) {
+        ids.close();
+        dataDirectory = directory;
+        ids = newIdAllocator();
+        dictionary = StringDictionary.open(directory);
+    }
+
+    public static void shutdown() {
+        close(storage);
+        ids.close();
+    }
+
+    private static IdAllocator newIdAllocator() {
+        return new IdAllocator(dataDirectory.resolve(IdAllocator.FILE_NAME),
+            e -> reportError("Error saving ids: " + e.getMessage()));
+    }
+
+    /** Returns a new id for a car, customer or sale. */
+    public static int nextId(IdAllocator.Kind kind) {
+        return ids.next(kind);
+    }
+
+    /** Returns the first of {@code count} consecutive new ids. */
+    public static int allocateIds(IdAllocator.Kind kind, int count) {
+        return ids.allocate(kind, count);
+    }
+
+    // Gives every record without an id a new one; returns whether any was missing or repeated
+    private static <T> boolean assignIds(List<T> records, IdAllocator.Kind kind,
+                                         ToIntFunction<T> getId, ObjIntConsumer<T> setId) {
+        boolean assigned = false;
+        for (T record : records) {
+            if (getId.applyAsInt(record) > 0) {
+                ids.observe(kind, getId.applyAsInt(record));
+            }
+        }
+        // A record without an id, or repeating an earlier record's id, gets a new one
+        Set<Integer> seen = new HashSet<>();
+        for (T record : records) {
+            int id = getId.applyAsInt(record);
+            if (id <= 0 || !seen.add(id)) {
+                setId.accept(record, ids.next(kind));
+                seen.add(getId.applyAsInt(record));
+                assigned = true;
+                if (id > 0) {
+                    reportError("Duplicate " + kind.name().toLowerCase(Locale.ROOT) + " id " + id
+                        + ", renumbered to " + getId.applyAsInt(record));
+                }
+            }
+        }
+        return assigned;
+    }
+
+    // The car and customer loaders run at the same time; without write-behind
+    // their saves of the records given new ids would reach the backend at once
+    private static final Object assignedSaves = new Object();
+
+    private static void saveAssigned(WriteBehindStorage.Write save) throws IOException {
+        synchronized (assignedSaves) {
+            save.run();
+        }
+    }
+
+    /**
+     * Gives every car without an id, or with the id of an earlier car, a new
+     * one; for backends importing records written before ids were kept.
+     */
+    static void assignCarIds(List<Car> cars) {
+        assignIds(cars, IdAllocator.Kind.CAR, Car::getId, Car::setId);
+    }
+
+    static void assignCustomerIds(List<Customer> customers) {
+        assignIds(customers, IdAllocator.Kind.CUSTOMER, Customer::getId, Customer::setId);
+    }
+
+    private static void intern(Car car) {
+        car.setBrand(dictionary.intern(car.getBrand()));
+        car.setModel(dictionary.intern(car.getModel()));
+    }
+
+    private static void close(Storage old) {
+        try {
+            old.close();
+        } catch (Exception e) {
+            reportError("Error closing storage: " + e.getMessage());
+        }
+    }
+
+    private static boolean snapshotsEnabled() {
+        return Boolean.parseBoolean(System.getProperty("cardealership.snapshot", "true"));
+    }
+
+    /**
+     * Returns the snapshot written at the last shutdown, or {@code null} if
+     * there is none or the data files changed since it was written.
+     */
+    public static BinarySnapshot.Contents loadSnapshot() {
+        if (startupFingerprint == null || !snapshotsEnabled()) {
+            return null;
+        }
+        try {
+            BinarySnapshot.Contents snapshot =
+                BinarySnapshot.read(dataDirectory.resolve(BinarySnapshot.FILE_NAME), startupFingerprint);
+            if (snapshot != null) {
+                snapshot.getCars().forEach(DataManager::intern);
+                assignIds(snapshot.getCars(), IdAllocator.Kind.CAR, Car::getId, Car::setId);
+                assignIds(snapshot.getCustomers(), IdAllocator.Kind.CUSTOMER, Customer::getId, Customer::setId);
+            }
+            return snapshot;
+        } catch (IOException e) {
+            reportError("Error loading snapshot: " + e.getMessage());
+        }
+        return null;
+    }
+
+    /**
+     * Writes the snapshot for the next start. Call after {@link #shutdown()},
+     * once every change has reached the data files.
+     */
+    public static void saveSnapshot(CarDealership dealership, List<Car> cars, List<Customer> customers) {
+        if (!snapshotsEnabled()) {
+            return;
+        }
+        try {
+            BinarySnapshot.write(dataDirectory.resolve(BinarySnapshot.FILE_NAME),
+                BinarySnapshot.fingerprint(dataDirectory), dealership, cars, customers);
+        } catch (IOException e) {
+            reportError("Error saving snapshot: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Returns the sales summaries saved at the last shutdown, rebuilding them
+     * from the sales log if they are missing or out of date.
+     */
+    public static SalesSummaries loadSalesSummaries() {
+        if (startupFingerprint != null) {
+            try {
+                SalesSummaries summaries = SalesSummaries.read(
+                    dataDirectory.resolve(SalesSummaries.FILE_NAME), startupFingerprint);
+                if (summaries != null) {
+                    return summaries;
+                }
+            } catch (IOException e) {
+                reportError("Error loading sales summaries: " + e.getMessage());
+            }
+        }
+        return SalesSummaries.rebuild(loadSales());
+    }
+
+    /** Saves the sales summaries for the next start. Call after {@link #shutdown()}. */
+    public static void saveSalesSummaries(SalesSummaries summaries) {
+        try {
+            summaries.write(dataDirectory.resolve(SalesSummaries.FILE_NAME),
+                BinarySnapshot.fingerprint(dataDirectory));
+        } catch (IOException e) {
+            reportError("Error saving sales summaries: " + e.getMessage());
+        }
+    }
+
+    /** Returns the pricing rules in the data directory, or the default ones if there are none or they cannot be read. */
+    public static PricingRules loadPricingRules() {
+        try {
+            return PricingRules.read(dataDirectory.resolve(PricingRules.FILE_NAME));
+        } catch (IOException e) {
+            reportError("Error loading pricing rules: " + e.getMessage());
+            return PricingRules.DEFAULT;
+        }
+    }
+
+    // Branch stores
+
+    public static List<CarDealership> loadStores() {
+        try {
+            List<CarDealership> stores = StoreRegistry.readStores(dataDirectory);
+            for (CarDealership store : stores) {
+                store.setStoreLocation(dictionary.intern(store.getStoreLocation()));
+            }
+            return stores;
+        } catch (IOException e) {
+            reportError("Error loading stores: " + e.getMessage());
+            return new ArrayList<>();
+        }
+    }
+
+    public static void addStore(CarDealership store) {
+        store.setStoreLocation(dictionary.intern(store.getStoreLocation()));
+        Path directory = dataDirectory;
+        writeFile("store", () -> StoreRegistry.appendStore(directory, store));
+    }
+
+    /** Returns the store of every car away from the home store, by car id. */
+    public static Map<Integer, Integer> loadStock() {
+        try {
+            return StoreRegistry.readStock(dataDirectory);
+        } catch (IOException e) {
+            reportError("Error loading stock: " + e.getMessage());
+            return new HashMap<>();
+        }
+    }
+
+    /** Records that the car with {@code carId} is now at store {@code storeId}. */
+    public static void saveStock(int carId, int storeId) {
+        Path directory = dataDirectory;
+        writeFile("stock", () -> StoreRegistry.appendStock(directory, carId, storeId));
+    }
+
+    /**
+     * Rewrites the stock file as {@code stock}, dropping moves made obsolete
+     * by later ones and by sales. Written right away: it is called after
+     * {@link #shutdown()}, once the queued writes are done.
+     */
+    public static void saveStock(Map<Integer, Integer> stock) {
+        try {
+            StoreRegistry.writeStock(dataDirectory, stock);
+        } catch (IOException e) {
+            reportError("Error saving stock: " + e.getMessage());
+        }
+    }
+
+    // Writes a file outside the backend on the write-behind thread when there is one, after the writes before it
+    private static void writeFile(String kind, WriteBehindStorage.Write write) {
+        if (storage instanceof WriteBehindStorage writeBehind) {
+            writeBehind.submitFile(kind, write);
+            return;
+        }
+        try {
+            write.run();
+        } catch (IOException e) {
+            reportError("Error saving " + kind + ": " + e.getMessage());
+        }
     }
 
     // Dealership methods
     public static void saveDealership(CarDealership dealership) {
-        try (PrintWriter writer = new PrintWriter(new FileWriter(DEALERSHIP_FILE))) {
-            writer.println(dealership.getStoreName());
-            writer.println(dealership.getStoreLocation());
+        try {
+            storage.saveDealership(dealership);
         } catch (IOException e) {
-            System.err.println("Error saving dealership: " + e.getMessage());
+            reportError("Error saving dealership: " + e.getMessage());
         }
     }
 
     public static CarDealership loadDealership() {
-        File file = new File(DEALERSHIP_FILE);
-        if (!file.exists()) {
-            return null;
-        }
-
-        try (BufferedReader reader = new BufferedReader(new FileReader(DEALERSHIP_FILE))) {
-            String name = reader.readLine();
-            String location = reader.readLine();
-            if (name != null && location != null) {
-                return new CarDealership(name, location);
+        try {
+            CarDealership dealership = storage.loadDealership();
+            if (dealership != null) {
+                dealership.setStoreLocation(dictionary.intern(dealership.getStoreLocation()));
             }
+            return dealership;
         } catch (IOException e) {
-            System.err.println("Error loading dealership: " + e.getMessage());
+            reportError("Error loading dealership: " + e.getMessage());
         }
         return null;
     }
 
     // Cars methods
     public static void saveCars(List<Car> cars) {
-        try (PrintWriter writer = new PrintWriter(new FileWriter(CARS_FILE))) {
-            for (Car car : cars) {
-                writer.println(String.format("%s,%s,%.2f", 
-                    car.getModel(), 
-                    car.getBrand(), 
-                    car.getPrice()));
-            }
+        try {
+            storage.saveCars(cars);
         } catch (IOException e) {
-            System.err.println("Error saving cars: " + e.getMessage());
+            reportError("Error saving cars: " + e.getMessage());
         }
     }
 
-    public static List<Car> loadCars() {
-        List<Car> cars = new ArrayList<>();
-        File file = new File(CARS_FILE);
-        if (!file.exists()) {
-            return cars;
+    public static void addCar(Car car) {
+        intern(car);
+        try {
+            storage.addCar(car);
+        } catch (IOException e) {
+            reportError("Error saving car: " + e.getMessage());
+        }
+    }
+
+    public static void addCars(List<Car> cars) {
+        cars.forEach(DataManager::intern);
+        try {
+            storage.addCars(cars);
+        } catch (IOException e) {
+            reportError("Error saving cars: " + e.getMessage());
         }
+    }
 
-        try (BufferedReader reader = new BufferedReader(new FileReader(CARS_FILE))) {
-            String line;
-            while ((line = reader.readLine()) != null) {
-                String[] parts = line.split(",");
-                if (parts.length == 3) {
-                    cars.add(new Car(
-                        parts[0],  // model
-                        parts[1],  // brand
-                        Double.parseDouble(parts[2]) // price
-                    ));
-                }
+    public static void removeCar(Car car) {
+        try {
+            storage.removeCar(car);
+        } catch (IOException e) {
+            reportError("Error removing car: " + e.getMessage());
+        }
+    }
+
+    public static List<Car> loadCars() {
+        try {
+            List<Car> cars = storage.loadCars();
+            cars.forEach(DataManager::intern);
+            if (assignIds(cars, IdAllocator.Kind.CAR, Car::getId, Car::setId)) {
+                saveAssigned(() -> storage.saveCars(cars));
             }
+            return cars;
         } catch (IOException e) {
-            System.err.println("Error loading cars: " + e.getMessage());
+            reportError("Error loading cars: " + e.getMessage());
         }
-        return cars;
+        return new ArrayList<>();
     }
 
     // Customers methods
     public static void saveCustomers(List<Customer> customers) {
-        try (PrintWriter writer = new PrintWriter(new FileWriter(CUSTOMERS_FILE))) {
-            for (Customer customer : customers) {
-                writer.println(String.format("%s,%d,%s,%s,%s",
-                    customer.getName(),
-                    customer.getAge(),
-                    customer.getAddress(),
-                    customer.getPhone(),
-                    customer.getEmail()));
-            }
+        try {
+            storage.saveCustomers(customers);
         } catch (IOException e) {
-            System.err.println("Error saving customers: " + e.getMessage());
+            reportError("Error saving customers: " + e.getMessage());
         }
     }
 
-    public static List<Customer> loadCustomers() {
-        List<Customer> customers = new ArrayList<>();
-        File file = new File(CUSTOMERS_FILE);
-        if (!file.exists()) {
-            return customers;
+    public static void addCustomer(Customer customer) {
+        try {
+            storage.addCustomer(customer);
+        } catch (IOException e) {
+            reportError("Error saving customer: " + e.getMessage());
         }
+    }
 
-        try (BufferedReader reader = new BufferedReader(new FileReader(CUSTOMERS_FILE))) {
-            String line;
-            while ((line = reader.readLine()) != null) {
-                String[] parts = line.split(",");
-                if (parts.length == 5) {
-                    customers.add(new Customer(
-                        parts[0], // name
-                        Integer.parseInt(parts[1]), // age
-                        parts[2], // address
-                        parts[3], // phone
-                        parts[4]  // email
-                    ));
-                }
+    public static List<Customer> loadCustomers() {
+        try {
+            List<Customer> customers = storage.loadCustomers();
+            if (assignIds(customers, IdAllocator.Kind.CUSTOMER, Customer::getId, Customer::setId)) {
+                saveAssigned(() -> storage.saveCustomers(customers));
             }
+            return customers;
         } catch (IOException e) {
-            System.err.println("Error loading customers: " + e.getMessage());
+            reportError("Error loading customers: " + e.getMessage());
         }
-        return customers;
+        return new ArrayList<>();
     }
 
     // Sales methods
+    public static List<Sale> loadSales() {
+        try {
+            return storage.loadSales();
+        } catch (IOException e) {
+            reportError("Error loading sales: " + e.getMessage());
+        }
+        return new ArrayList<>();
+    }
+
+    public static SalesReport loadSalesReport() {
+        return loadSalesReport(Long.MIN_VALUE, Long.MAX_VALUE);
+    }
+
+    public static SalesReport loadSalesReport(long from, long to) {
+        try {
+            return storage.loadSalesReport(from, to);
+        } catch (IOException e) {
+            reportError("Error loading sales report: " + e.getMessage());
+        }
+        return new SalesReport();
+    }
+
     public static void saveSale(Car car, Customer customer, double basePrice, 
                               double tax, double discount, double finalPrice) {
-        try (PrintWriter writer = new PrintWriter(new FileWriter(SALES_FILE, true))) {
-            writer.println(String.format("%s,%s,%s,%s,%.2f,%.2f,%.2f,%.2f",
-                car.getBrand(),
-                car.getModel(),
-                customer.getName(),
-                customer.getEmail(),
-                basePrice,
-                tax,
-                discount,
-                finalPrice));
+        Sale sale = new Sale(car, customer, basePrice, tax, discount, finalPrice);
+        sale.setId(nextId(IdAllocator.Kind.SALE));
+        sale.setTimestamp(System.currentTimeMillis());
+        sale.setTransactionId(UUID.randomUUID().toString());
+        try {
+            storage.saveSale(sale);
+        } catch (IOException e) {
+            reportError("Error saving sale: " + e.getMessage());
+        }
+    }
+
+    public static void saveCheckout(List<Sale> sales) {
+        try {
+            storage.saveCheckout(sales);
+        } catch (IOException e) {
+            reportError("Error saving checkout: " + e.getMessage());
+        }
+    }
+
+    public static List<Testimony> loadVideoTestimonies() {
+        try {
+            return storage.loadVideoTestimonies();
         } catch (IOException e) {
-            System.err.println("Error saving sale: " + e.getMessage());
+            reportError("Error loading video testimonies: " + e.getMessage());
         }
+        return new ArrayList<>();
     }
 
     public static void saveVideoTestimony(Customer customer, String filePath, String comments) {
-        String testimoniesFile = DATA_DIRECTORY + "/testimonies.txt";
-        try (PrintWriter writer = new PrintWriter(new FileWriter(testimoniesFile, true))) {
-            writer.println(String.format("%s,%s,%s,%s",
-                customer.getName(),
-                customer.getEmail(),
-                filePath,
-                comments.replace(",", ";")));  // Replace commas in comments to avoid CSV issues
+        try {
+            storage.saveVideoTestimony(customer, filePath, comments);
         } catch (IOException e) {
-            System.err.println("Error saving video testimony: " + e.getMessage());
+            reportError("Error saving video testimony: " + e.getMessage());
         }
     }
-}
\ No newline at end of file
+}
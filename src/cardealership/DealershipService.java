@@ -0,0 +1,616 @@
+package cardealership;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.BiConsumer;
+import java.util.function.Supplier;
+
+/**
+ * The dealership operations used by both the JavaFX screens and the HTTP
+ * API: inventory, customers, quotes and checkout. Every change is validated,
+ * applied to the in-memory model and persisted through {@link DataManager}.
+ *
+ * New cars, customers and sales get their ids from the persistent
+ * {@link IdAllocator} before they are stored; customers are kept in an
+ * {@link EntityTable} indexed by that id. Purchases are priced by the
+ * {@link PricingRules} loaded with the data.
+ *
+ * The dealership is the home store of a {@link StoreNetwork}: the store
+ * this instance sells from. The lock below is its shard lock, so branch
+ * stores are read and changed without taking it.
+ *
+ * Safe to use from many threads; reads share a lock, changes take it
+ * exclusively. Every change ends by publishing a new {@link ModelSnapshot}
+ * of the cars and customers; reads of whole records and lists come from
+ * the latest snapshot and take no lock at all, so they never wait for a
+ * checkout and a checkout never waits for them. The same change is
+ * announced as {@link ModelEvent}s on the {@link EventBus}, for views that
+ * update what they show.
+ */
+public class DealershipService {
+    /** Sort orders of {@link #queryInventory}; ties are broken by id. */
+    public enum CarOrder {
+        ADDED(Comparator.comparingInt(Car::getId)),
+        BRAND(Comparator.comparing(Car::getBrand, String.CASE_INSENSITIVE_ORDER)
+                .thenComparing(Car::getModel, String.CASE_INSENSITIVE_ORDER)),
+        MODEL(Comparator.comparing(Car::getModel, String.CASE_INSENSITIVE_ORDER)
+                .thenComparing(Car::getBrand, String.CASE_INSENSITIVE_ORDER)),
+        PRICE(Comparator.comparingDouble(Car::getPrice));
+
+        final Comparator<Car> comparator;
+
+        CarOrder(Comparator<Car> comparator) {
+            this.comparator = comparator.thenComparingInt(Car::getId);
+        }
+    }
+
+    /** Sort orders of {@link #queryCustomers}; ties are broken by id. */
+    public enum CustomerOrder {
+        ADDED(Comparator.comparingInt(Customer::getId)),
+        NAME(Comparator.comparing(Customer::getName, String.CASE_INSENSITIVE_ORDER)),
+        AGE(Comparator.comparingInt(Customer::getAge)),
+        PHONE(Comparator.comparing(Customer::getPhone)),
+        EMAIL(Comparator.comparing(Customer::getEmail, String.CASE_INSENSITIVE_ORDER)),
+        ADDRESS(Comparator.comparing(Customer::getAddress, String.CASE_INSENSITIVE_ORDER));
+
+        final Comparator<Customer> comparator;
+
+        CustomerOrder(Comparator<Customer> comparator) {
+            this.comparator = comparator.thenComparingInt(Customer::getId);
+        }
+    }
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private CarDealership dealership;
+    private final StoreNetwork network;
+    private boolean storeSaved;
+    private final EntityTable<Customer> customers = new EntityTable<>();
+    private final CustomerSearchIndex customerIndex = new CustomerSearchIndex();
+    private final SalesSummaries summaries;
+    private volatile PricingRules pricing = PricingRules.DEFAULT;
+    private volatile ModelSnapshot snapshot;
+    private final EventBus events = new EventBus();
+    private long version;
+
+    public DealershipService(CarDealership dealership, List<Customer> customers) {
+        this(dealership, true, customers, new SalesSummaries());
+    }
+
+    private DealershipService(CarDealership dealership, boolean storeSaved, List<Customer> customers,
+                              SalesSummaries summaries) {
+        this.dealership = dealership;
+        this.network = new StoreNetwork(dealership, lock);
+        this.storeSaved = storeSaved;
+        this.summaries = summaries;
+        for (Customer customer : customers) {
+            indexCustomer(customer);
+        }
+        customerIndex.addAll(customers);
+        publish();
+    }
+
+    /**
+     * Loads the dealership, its cars and the customers, from the binary
+     * snapshot when it is up to date and from storage otherwise.
+     */
+    public static DealershipService load() {
+        return loadAsync((phase, millis) -> {}).join();
+    }
+
+    /**
+     * Loads like {@link #load()}, but in the background: the dealership, car
+     * and customer loaders each run on their own virtual thread. The time
+     * every phase took is passed to {@code timings} as it finishes.
+     */
+    public static CompletableFuture<DealershipService> loadAsync(BiConsumer<String, Long> timings) {
+        ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+        return timed("snapshot", DataManager::loadSnapshot, timings, executor)
+            .thenCompose(snapshot -> {
+                if (snapshot != null) {
+                    return timed("summaries", DataManager::loadSalesSummaries, timings, executor)
+                        .thenCompose(summaries -> timed("indexes", () -> assemble(snapshot.getDealership(),
+                            snapshot.getCars(), snapshot.getCustomers(), summaries), timings, executor));
+                }
+                CompletableFuture<CarDealership> dealership =
+                    timed("dealership", DataManager::loadDealership, timings, executor);
+                CompletableFuture<List<Car>> cars = timed("cars", DataManager::loadCars, timings, executor);
+                CompletableFuture<List<Customer>> customers =
+                    timed("customers", DataManager::loadCustomers, timings, executor);
+                // Loading the cars finishes an interrupted checkout, whose sales a rebuild must see
+                CompletableFuture<SalesSummaries> summaries = cars.thenCompose(
+                    loaded -> timed("summaries", DataManager::loadSalesSummaries, timings, executor));
+                return CompletableFuture.allOf(dealership, customers, summaries)
+                    .thenCompose(done -> timed("indexes", () -> assemble(dealership.join(), cars.join(),
+                        customers.join(), summaries.join()), timings, executor));
+            })
+            .thenApply(service -> {
+                service.pricing = DataManager.loadPricingRules();
+                return service;
+            })
+            .whenComplete((service, error) -> executor.shutdown());
+    }
+
+    private static <T> CompletableFuture<T> timed(String phase, Supplier<T> loader,
+                                                  BiConsumer<String, Long> timings, ExecutorService executor) {
+        return CompletableFuture.supplyAsync(() -> {
+            long start = System.nanoTime();
+            T result = loader.get();
+            timings.accept(phase, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+            return result;
+        }, executor);
+    }
+
+    // Without a saved store the cars are not used, as before; cars moved to a branch store go there
+    private static DealershipService assemble(CarDealership dealership, List<Car> cars, List<Customer> customers,
+                                              SalesSummaries summaries) {
+        if (dealership == null) {
+            return new DealershipService(new CarDealership(), false, customers, summaries);
+        }
+        DealershipService service = new DealershipService(dealership, true, customers, summaries);
+        service.network.load(DataManager.loadStores(), cars, DataManager.loadStock());
+        service.publish();
+        return service;
+    }
+
+    /** Flushes and closes storage, then writes the snapshot and sales summaries for a fast next start. */
+    public void shutdown() {
+        lock.writeLock().lock();
+        try {
+            DataManager.shutdown();
+            if (storeSaved) {
+                DataManager.saveStock(network.getBranchStock());
+            }
+            DataManager.saveSnapshot(storeSaved ? dealership : null, network.getAllCars(), customers.values());
+            DataManager.saveSalesSummaries(summaries);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Versions
+
+    /** The latest version of the cars and customers; reading it takes no lock. */
+    public ModelSnapshot snapshot() {
+        return snapshot;
+    }
+
+    /** The bus announcing every change to the stock and the customers. */
+    public EventBus getEvents() {
+        return events;
+    }
+
+    // Publishes the model as it is now; called holding the write lock, or from the constructor
+    private void publish() {
+        snapshot = new ModelSnapshot(++version, dealership.snapshotCars(), customers.snapshot());
+    }
+
+    // Publishes the model, then announces the change that led to it
+    private void publish(List<ModelEvent> changes) {
+        publish();
+        events.publish(changes);
+    }
+
+    // Store
+
+    public CarDealership getDealership() {
+        lock.readLock().lock();
+        try {
+            return dealership;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public void createStore(String name, String location) {
+        if (name.isEmpty() || location.isEmpty()) {
+            throw new IllegalArgumentException("Please fill in all fields!");
+        }
+        lock.writeLock().lock();
+        try {
+            dealership = new CarDealership(name, location);
+            network.setHome(dealership);
+            storeSaved = true;
+            DataManager.saveDealership(dealership);
+            publish(List.of(ModelEvent.storeCreated()));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public ReservationManager getReservations() {
+        return getDealership().getReservations();
+    }
+
+    // Stores of the network
+
+    public StoreNetwork getNetwork() {
+        return network;
+    }
+
+    /** The home store first, then the branch stores in the order they were opened. */
+    public List<CarDealership> getStores() {
+        return network.getStores();
+    }
+
+    public CarDealership addStore(String name, String location) {
+        if (name.isEmpty() || location.isEmpty()) {
+            throw new IllegalArgumentException("Please fill in all fields!");
+        }
+        return network.addStore(name, location);
+    }
+
+    /** Looks for cars in every store at once, see {@link StoreNetwork#findStock}. */
+    public Map<CarDealership, List<Car>> findStock(String brand, Double minPrice, Double maxPrice) {
+        return network.findStock(brand == null || brand.isEmpty() ? null : brand,
+            minPrice == null ? Double.NEGATIVE_INFINITY : minPrice,
+            maxPrice == null ? Double.POSITIVE_INFINITY : maxPrice);
+    }
+
+    /** Statistics of the matching cars in every store, see {@link StoreNetwork#stockStats}. */
+    public Map<CarDealership, InventoryColumns.Stats> stockStats(String brand, Double minPrice, Double maxPrice) {
+        return network.stockStats(brand == null || brand.isEmpty() ? null : brand,
+            minPrice == null ? Double.NEGATIVE_INFINITY : minPrice,
+            maxPrice == null ? Double.POSITIVE_INFINITY : maxPrice);
+    }
+
+    /** Moves a car between two stores; it must not be in a cart. */
+    public Car transfer(int carId, int fromStore, int toStore) {
+        Car car = network.transfer(carId, fromStore, toStore);
+        if (fromStore == StoreNetwork.HOME || toStore == StoreNetwork.HOME) {
+            lock.writeLock().lock();
+            try {
+                publish(List.of(toStore == StoreNetwork.HOME ? ModelEvent.carAdded(car) : ModelEvent.carRemoved(car)));
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+        return car;
+    }
+
+    // Inventory
+
+    public List<Car> getCars() {
+        return snapshot.getCars();
+    }
+
+    public int getCarCount() {
+        return snapshot.getCarCount();
+    }
+
+    public Car getCar(int id) {
+        return snapshot.getCar(id);
+    }
+
+    /** Count and price statistics of the cars matching the same filters as {@link #listInventory}. */
+    public InventoryColumns.Stats inventoryStats(String brand, Double minPrice, Double maxPrice) {
+        lock.readLock().lock();
+        try {
+            InventoryColumns columns = dealership.getColumns();
+            double min = minPrice == null ? Double.NEGATIVE_INFINITY : minPrice;
+            double max = maxPrice == null ? Double.POSITIVE_INFINITY : maxPrice;
+            if (brand != null && !brand.isEmpty()) {
+                return columns.stats(brand, min, max);
+            } else if (minPrice != null || maxPrice != null) {
+                return columns.stats(min, max);
+            }
+            return columns.stats();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /** Number of cars in stock per brand, most common first. */
+    public Map<String, Integer> countCarsByBrand() {
+        lock.readLock().lock();
+        try {
+            return dealership.getColumns().countByBrand();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Lists the inventory in the order cars were added or, when a brand or a
+     * price bound is given, the matching cars cheapest first.
+     */
+    public Page<Car> listInventory(String brand, Double minPrice, Double maxPrice, int offset, int limit) {
+        return queryInventory(brand, minPrice, maxPrice, null, false).page(offset, limit);
+    }
+
+    /**
+     * Filters and sorts the inventory, returning the matching car ids. A
+     * {@code null} order keeps the order of {@link #listInventory}. Sorting
+     * by price or in the order cars were added reuses the inventory's own
+     * ordering when it already matches.
+     */
+    public QueryResult<Car> queryInventory(String brand, Double minPrice, Double maxPrice,
+                                           CarOrder order, boolean descending) {
+        lock.readLock().lock();
+        try {
+            List<Car> cars;
+            double min = minPrice == null ? Double.NEGATIVE_INFINITY : minPrice;
+            double max = maxPrice == null ? Double.POSITIVE_INFINITY : maxPrice;
+            boolean byPrice = true;
+            if (brand != null && !brand.isEmpty()) {
+                cars = dealership.findCars(brand, min, max);
+            } else if (minPrice != null || maxPrice != null) {
+                cars = dealership.findCars(min, max);
+            } else if (order == CarOrder.PRICE) {
+                cars = dealership.getCarsByPrice();
+            } else {
+                cars = dealership.getCars();
+                byPrice = false;
+            }
+            if (order != null && !(order == CarOrder.PRICE && byPrice || order == CarOrder.ADDED && !byPrice)) {
+                cars.sort(order.comparator);
+            }
+            return QueryResult.of(cars, Car::getId, descending, this::getCar);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public Car addCar(String brand, String model, String price) {
+        Validation.validateCarInput(brand, model, price);
+        Car car = new Car(model, brand, Double.parseDouble(price));
+        car.setId(DataManager.nextId(IdAllocator.Kind.CAR));
+        lock.writeLock().lock();
+        try {
+            dealership.addCar(car);
+            DataManager.addCar(car);
+            publish(List.of(ModelEvent.carAdded(car)));
+        } finally {
+            lock.writeLock().unlock();
+        }
+        return car;
+    }
+
+    public void addCars(List<Car> cars) {
+        int id = DataManager.allocateIds(IdAllocator.Kind.CAR, cars.size());
+        for (Car car : cars) {
+            car.setId(id++);
+        }
+        lock.writeLock().lock();
+        try {
+            dealership.addCars(cars);
+            DataManager.addCars(cars);
+            List<ModelEvent> added = new ArrayList<>(cars.size());
+            for (Car car : cars) {
+                added.add(ModelEvent.carAdded(car));
+            }
+            publish(added);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Customers
+
+    public List<Customer> getCustomers() {
+        return snapshot.getCustomers();
+    }
+
+    public int getCustomerCount() {
+        return snapshot.getCustomerCount();
+    }
+
+    public Customer getCustomer(int id) {
+        return snapshot.getCustomer(id);
+    }
+
+    public List<Customer> searchCustomers(String query) {
+        return customerIndex.search(query);
+    }
+
+    public Page<Customer> listCustomers(String query, int offset, int limit) {
+        return queryCustomers(query, null, false).page(offset, limit);
+    }
+
+    /**
+     * Searches the customers like {@link #searchCustomers} and sorts the
+     * matches, returning their ids. A {@code null} order keeps the order
+     * customers were added in.
+     */
+    public QueryResult<Customer> queryCustomers(String query, CustomerOrder order, boolean descending) {
+        List<Customer> matches = customerIndex.search(query);
+        if (order != null && order != CustomerOrder.ADDED) {
+            matches.sort(order.comparator);
+        }
+        return QueryResult.of(matches, Customer::getId, descending, this::getCustomer);
+    }
+
+    public Customer addCustomer(String name, String age, String address, String phone, String email) {
+        Validation.validateCustomerInput(name, age, address, phone, email);
+        Customer customer = new Customer(name, Integer.parseInt(age), address, phone, email);
+        customer.setId(DataManager.nextId(IdAllocator.Kind.CUSTOMER));
+        lock.writeLock().lock();
+        try {
+            indexCustomer(customer);
+            customerIndex.add(customer);
+            DataManager.addCustomer(customer);
+            publish(List.of(ModelEvent.customerAdded(customer)));
+        } finally {
+            lock.writeLock().unlock();
+        }
+        return customer;
+    }
+
+    /** @throws IllegalArgumentException if the customer has no id or the id is already taken, as for cars */
+    private void indexCustomer(Customer customer) {
+        if (customer.getId() <= 0) {
+            throw new IllegalArgumentException(customer + " has no id!");
+        } else if (customers.contains(customer.getId())) {
+            throw new IllegalArgumentException("A customer with id " + customer.getId() + " already exists!");
+        }
+        customers.put(customer.getId(), customer);
+    }
+
+    // Purchases
+
+    public PricingRules getPricingRules() {
+        return pricing;
+    }
+
+    /** Prices every purchase from now on by {@code rules}; carts already open keep the rules they were made with. */
+    public void setPricingRules(PricingRules rules) {
+        pricing = rules;
+    }
+
+    /** A new, empty cart priced at this store. */
+    public Cart newCart() {
+        return new Cart(pricing, getDealership().getStoreLocation());
+    }
+
+    public Quote quote(List<Car> cars) {
+        return quote(cars, null);
+    }
+
+    /** Quotes {@code cars} for {@code customer}, whose earlier purchases may earn a discount; {@code null} for none. */
+    public Quote quote(List<Car> cars, Customer customer) {
+        return pricing.quote(cars, getDealership().getStoreLocation(), customerSpent(customer));
+    }
+
+    /** What {@code customer} has paid for all earlier purchases; 0 for {@code null}. */
+    public double customerSpent(Customer customer) {
+        return customer == null ? 0 : summaries.getCustomer(customer.getId()).getRevenue();
+    }
+
+    /**
+     * The final price of every car in stock, each sold on its own by
+     * {@code rules}, added up. For trying out promotions against the whole
+     * inventory: see {@link PricingRules#withPromotion}.
+     */
+    public double inventoryValue(PricingRules rules) {
+        lock.readLock().lock();
+        try {
+            InventoryColumns columns = dealership.getColumns();
+            return rules.priceInventory(columns, dealership.getStoreLocation(), new double[columns.size()]);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Sells {@code cars}, which must be reserved by {@code session}, to
+     * {@code customer} and records the sales.
+     *
+     * @throws IllegalStateException if a car is no longer reserved or in stock
+     */
+    public List<Sale> checkout(Customer customer, List<Car> cars, String session) {
+        return checkout(customer, cars, quote(cars, customer), session);
+    }
+
+    /** Sells the cars in {@code cart} at the cart's quote, like {@link #checkout(Customer, List, String)}. */
+    public List<Sale> checkout(Customer customer, Cart cart, String session) {
+        cart.setCustomerSpent(customerSpent(customer));
+        return checkout(customer, cart.getCars(), cart.quote(), session);
+    }
+
+    private List<Sale> checkout(Customer customer, List<Car> cars, Quote quote, String session) {
+        if (cars.isEmpty()) {
+            throw new IllegalArgumentException("Cart is empty!");
+        }
+        lock.writeLock().lock();
+        try {
+            for (Car car : cars) {
+                if (!dealership.hasCar(car)) {
+                    throw new IllegalStateException(car + " is no longer in stock!");
+                }
+            }
+            if (!dealership.getReservations().commit(cars, session)) {
+                throw new IllegalStateException("The reservation for some cars in the cart has expired. " +
+                        "Please remove them and try again.");
+            }
+            List<Sale> sales = quote.toSales(customer, cars);
+            long timestamp = System.currentTimeMillis();
+            String transactionId = UUID.randomUUID().toString();
+            int saleId = DataManager.allocateIds(IdAllocator.Kind.SALE, sales.size());
+            for (Sale sale : sales) {
+                sale.setId(saleId++);
+                sale.setTimestamp(timestamp);
+                sale.setTransactionId(transactionId);
+                sale.setLocation(dealership.getStoreLocation());
+            }
+            for (Car car : cars) {
+                dealership.removeCar(car);
+            }
+            DataManager.saveCheckout(sales);
+            summaries.record(sales);
+            List<ModelEvent> sold = new ArrayList<>(cars.size());
+            for (Car car : cars) {
+                sold.add(ModelEvent.carSold(car, customer));
+            }
+            publish(sold);
+            return sales;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /** Reserves and sells the cars in one step, for clients without a cart session. */
+    public List<Sale> checkout(int customerId, List<Integer> carIds) {
+        Customer customer = getCustomer(customerId);
+        if (customer == null) {
+            throw new IllegalArgumentException("Unknown customer " + customerId + "!");
+        }
+        if (new HashSet<>(carIds).size() != carIds.size()) {
+            throw new IllegalArgumentException("A car can only be bought once!");
+        }
+        List<Car> cars = new ArrayList<>();
+        for (int carId : carIds) {
+            Car car = getCar(carId);
+            if (car == null) {
+                throw new IllegalStateException("Car " + carId + " is not in stock!");
+            }
+            cars.add(car);
+        }
+
+        String session = UUID.randomUUID().toString();
+        ReservationManager reservations = getReservations();
+        for (Car car : cars) {
+            if (!reservations.reserve(car, session)) {
+                reservations.releaseAll(cars, session);
+                throw new IllegalStateException(car + " is already in another cart!");
+            }
+        }
+        try {
+            return checkout(customer, cars, session);
+        } catch (RuntimeException e) {
+            reservations.releaseAll(cars, session);
+            throw e;
+        }
+    }
+
+    // Reports
+
+    /** Running totals kept up to date by every checkout; reading them costs nothing. */
+    public SalesSummaries getSalesSummaries() {
+        return summaries;
+    }
+
+    /** The name of the customer with {@code id}, or {@code null} if there is none; for labelling reports. */
+    public String getCustomerName(int id) {
+        Customer customer = getCustomer(id);
+        return customer == null ? null : customer.getName();
+    }
+
+    /** Aggregates the whole sales history. Reads only storage, so no lock is taken. */
+    public SalesReport salesReport() {
+        return DataManager.loadSalesReport();
+    }
+
+    /** Aggregates the sales made between {@code from} and {@code to}, in epoch milliseconds. */
+    public SalesReport salesReport(long from, long to) {
+        return DataManager.loadSalesReport(from, to);
+    }
+}
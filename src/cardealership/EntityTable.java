@@ -0,0 +1,140 @@
+package cardealership;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Records addressed by their dense id: the record with id {@code n} sits at
+ * index {@code n} of an array, so a lookup is a single array access.
+ *
+ * Ids come from an {@link IdAllocator} and grow with every record ever
+ * added, so the table iterates in the order records were added. A removed
+ * record leaves its slot empty; the slot costs one reference.
+ *
+ * The array is cut into chunks of 1024 slots so that {@link #snapshot} is
+ * cheap: a snapshot shares the chunks, and the table copies a chunk the
+ * first time it writes to it after a snapshot, so each version costs one
+ * reference per chunk plus the chunks changed since the last one.
+ */
+class EntityTable<T> {
+    private static final int CHUNK_BITS = 10;
+    private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+    /** An immutable copy of a table at the time it was taken. */
+    static final class Snapshot<T> {
+        private final Object[][] chunks;
+        private final int size;
+
+        private Snapshot(Object[][] chunks, int size) {
+            this.chunks = chunks;
+            this.size = size;
+        }
+
+        T get(int id) {
+            return EntityTable.get(chunks, id);
+        }
+
+        int size() {
+            return size;
+        }
+
+        /** The records in id order. */
+        List<T> values() {
+            return EntityTable.values(chunks, size);
+        }
+    }
+
+    private Object[][] chunks = new Object[1][];
+    // The generation each chunk was copied or created in; older chunks may be shared with a snapshot
+    private int[] owners = new int[1];
+    private int generation;
+    private int size;
+
+    T get(int id) {
+        return get(chunks, id);
+    }
+
+    boolean contains(int id) {
+        return get(id) != null;
+    }
+
+    /** Stores {@code record} under {@code id}, replacing any record already there. */
+    void put(int id, T record) {
+        if (id <= 0) {
+            throw new IllegalArgumentException("Invalid id " + id);
+        }
+        int chunk = id >>> CHUNK_BITS;
+        if (chunk >= chunks.length) {
+            int length = Math.max(chunk + 1, chunks.length * 2);
+            chunks = Arrays.copyOf(chunks, length);
+            owners = Arrays.copyOf(owners, length);
+        }
+        Object[] slots = writable(chunk);
+        if (slots[id & CHUNK_MASK] == null) {
+            size++;
+        }
+        slots[id & CHUNK_MASK] = record;
+    }
+
+    /** @return the record that was stored under {@code id}, or {@code null} */
+    T remove(int id) {
+        T record = get(id);
+        if (record != null) {
+            writable(id >>> CHUNK_BITS)[id & CHUNK_MASK] = null;
+            size--;
+        }
+        return record;
+    }
+
+    int size() {
+        return size;
+    }
+
+    /** The records in id order. */
+    List<T> values() {
+        return values(chunks, size);
+    }
+
+    /** The table as it is now; later changes to the table do not show in it. */
+    Snapshot<T> snapshot() {
+        generation++;
+        return new Snapshot<>(chunks.clone(), size);
+    }
+
+    // The chunk, copied first if a snapshot may share it
+    private Object[] writable(int chunk) {
+        Object[] slots = chunks[chunk];
+        if (slots == null || owners[chunk] != generation) {
+            slots = slots == null ? new Object[CHUNK_SIZE] : slots.clone();
+            chunks[chunk] = slots;
+            owners[chunk] = generation;
+        }
+        return slots;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T get(Object[][] chunks, int id) {
+        if (id <= 0 || (id >>> CHUNK_BITS) >= chunks.length) {
+            return null;
+        }
+        Object[] slots = chunks[id >>> CHUNK_BITS];
+        return slots == null ? null : (T) slots[id & CHUNK_MASK];
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> List<T> values(Object[][] chunks, int size) {
+        List<T> values = new ArrayList<>(size);
+        for (Object[] slots : chunks) {
+            if (slots != null) {
+                for (Object slot : slots) {
+                    if (slot != null) {
+                        values.add((T) slot);
+                    }
+                }
+            }
+        }
+        return values;
+    }
+}
@@ -0,0 +1,40 @@
+package cardealership;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * Delivers the {@link ModelEvent}s of each change to the listeners, as one
+ * list per change: importing fifty thousand cars is one call with fifty
+ * thousand events, not fifty thousand calls.
+ *
+ * Events are delivered on the thread making the change, while it still
+ * holds the model's write lock, so every listener sees changes in the
+ * order they were made. Listeners must return quickly and must not change
+ * the model; to work on the events, hand them to another thread.
+ */
+public class EventBus {
+    private final List<Consumer<List<ModelEvent>>> listeners = new CopyOnWriteArrayList<>();
+
+    /** Adds {@code listener}; running the returned action removes it again. */
+    public Runnable subscribe(Consumer<List<ModelEvent>> listener) {
+        listeners.add(listener);
+        return () -> listeners.remove(listener);
+    }
+
+    void publish(List<ModelEvent> events) {
+        if (events.isEmpty()) {
+            return;
+        }
+        List<ModelEvent> delivered = List.copyOf(events);
+        for (Consumer<List<ModelEvent>> listener : listeners) {
+            try {
+                listener.accept(delivered);
+            } catch (RuntimeException e) {
+                // One broken view must not fail the change that was already made
+                DataManager.reportError("Error delivering changes: " + e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package cardealership;
+
+import javafx.application.Platform;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Carries {@link ModelEvent}s from the threads making changes to the
+ * JavaFX thread, in batches. Events queue up until the JavaFX thread gets
+ * to them, which is at the latest on the next pulse, and are then handed
+ * to the handler as one list; however many changes come in between, the
+ * view updates once.
+ *
+ * Subscribe it to the {@link EventBus}; set the handler on the JavaFX thread.
+ */
+public class FxEventQueue implements Consumer<List<ModelEvent>> {
+    private final List<ModelEvent> pending = new ArrayList<>();
+    private boolean scheduled;
+    private Consumer<List<ModelEvent>> handler;
+
+    /** Sends the batches to {@code handler} on the JavaFX thread from now on; {@code null} drops them. */
+    public void setHandler(Consumer<List<ModelEvent>> handler) {
+        this.handler = handler;
+    }
+
+    @Override
+    public void accept(List<ModelEvent> events) {
+        synchronized (pending) {
+            pending.addAll(events);
+            if (scheduled) {
+                return;
+            }
+            scheduled = true;
+        }
+        Platform.runLater(this::deliver);
+    }
+
+    private void deliver() {
+        List<ModelEvent> batch;
+        synchronized (pending) {
+            batch = new ArrayList<>(pending);
+            pending.clear();
+            scheduled = false;
+        }
+        if (handler != null) {
+            handler.accept(batch);
+        }
+    }
+}
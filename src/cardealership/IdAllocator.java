@@ -0,0 +1,116 @@
+package cardealership;
+
+import java.io.BufferedReader;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.function.Consumer;
+
+/**
+ * Hands out dense, never reused ids for cars, customers and sales.
+ *
+ * {@code ids.txt} holds, per kind, a bound below which every id may already
+ * be in use. Ids are reserved in blocks: the file is rewritten (and synced)
+ * only when a block runs out, and once more at shutdown with the exact next
+ * id. After a crash at most one block per kind is skipped.
+ *
+ * Ids start at 1; 0 means "not assigned yet".
+ */
+public class IdAllocator {
+    static final String FILE_NAME = "ids.txt";
+    private static final int BLOCK = 256;
+
+    public enum Kind { CAR, CUSTOMER, SALE }
+
+    private final Path file;
+    private final Consumer<IOException> errorHandler;
+    private final int[] next = new int[Kind.values().length];
+    private final int[] reserved = new int[Kind.values().length];
+    private boolean opened;
+
+    /** Write errors go to {@code errorHandler}; the ids handed out stay valid for this run. */
+    public IdAllocator(Path file, Consumer<IOException> errorHandler) {
+        this.file = file;
+        this.errorHandler = errorHandler;
+    }
+
+    /** Returns the next id of {@code kind}. */
+    public int next(Kind kind) {
+        return allocate(kind, 1);
+    }
+
+    /** Reserves {@code count} consecutive ids and returns the first. */
+    public synchronized int allocate(Kind kind, int count) {
+        open();
+        int first = next[kind.ordinal()];
+        next[kind.ordinal()] += count;
+        if (next[kind.ordinal()] > reserved[kind.ordinal()]) {
+            reserved[kind.ordinal()] = next[kind.ordinal()] + BLOCK;
+            save(reserved);
+        }
+        return first;
+    }
+
+    /** Makes sure ids up to {@code id}, found in the data, are never handed out again. */
+    public synchronized void observe(Kind kind, int id) {
+        open();
+        next[kind.ordinal()] = Math.max(next[kind.ordinal()], id + 1);
+    }
+
+    /** Records the exact next ids, so a clean shutdown skips none. A later call reads them back. */
+    public synchronized void close() {
+        if (opened) {
+            save(next);
+            opened = false;
+        }
+    }
+
+    private void open() {
+        if (opened) {
+            return;
+        }
+        opened = true;
+        Arrays.fill(next, 1);
+        if (Files.exists(file)) {
+            try (BufferedReader reader = Files.newBufferedReader(file)) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    String[] parts = line.trim().split(" ");
+                    if (parts.length == 2) {
+                        Kind kind = Kind.valueOf(parts[0].toUpperCase(Locale.ROOT));
+                        next[kind.ordinal()] = Math.max(1, Integer.parseInt(parts[1]));
+                    }
+                }
+            } catch (IOException e) {
+                errorHandler.accept(e);
+            } catch (IllegalArgumentException e) {
+                // Damaged; the ids found in the data files still floor the counters
+            }
+        }
+        System.arraycopy(next, 0, reserved, 0, next.length);
+    }
+
+    private void save(int[] bounds) {
+        Path temp = file.resolveSibling(FILE_NAME + ".tmp");
+        try {
+            try (FileOutputStream out = new FileOutputStream(temp.toFile())) {
+                Writer writer = new OutputStreamWriter(out, StandardCharsets.UTF_8);
+                for (Kind kind : Kind.values()) {
+                    writer.write(kind.name().toLowerCase(Locale.ROOT) + " " + bounds[kind.ordinal()] + "\n");
+                }
+                writer.flush();
+                out.getFD().sync();
+            }
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            errorHandler.accept(e);
+        }
+    }
+}
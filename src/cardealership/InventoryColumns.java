@@ -0,0 +1,271 @@
+package cardealership;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Column copy of the inventory for statistics over many cars: one primitive
+ * array each for car ids, prices in cents, brand codes and model codes.
+ *
+ * Rows are dense. A removed car's row is filled with the last row, so every
+ * scan is a plain loop over the start of the arrays, with no {@link Car}
+ * objects involved; the JIT unrolls these loops and vectorizes the
+ * unfiltered totals. Brand and model codes
+ * are local to the columns, assigned in order of first appearance; brands
+ * are coded ignoring case, like the brand index of {@link CarDealership}.
+ * Price bounds are rounded to cents.
+ */
+public class InventoryColumns {
+    /** Count, total, cheapest and dearest price of a set of cars. */
+    public static class Stats {
+        private final int count;
+        private final long totalCents;
+        private final long minCents;
+        private final long maxCents;
+
+        Stats(int count, long totalCents, long minCents, long maxCents) {
+            this.count = count;
+            this.totalCents = totalCents;
+            this.minCents = minCents;
+            this.maxCents = maxCents;
+        }
+
+        public int getCount() { return count; }
+        public double getTotal() { return totalCents / 100.0; }
+        /** The lowest price, {@code NaN} if there are no cars. */
+        public double getMin() { return count == 0 ? Double.NaN : minCents / 100.0; }
+        /** The highest price, {@code NaN} if there are no cars. */
+        public double getMax() { return count == 0 ? Double.NaN : maxCents / 100.0; }
+        public double getAverage() { return count == 0 ? Double.NaN : totalCents / 100.0 / count; }
+    }
+
+    private static final Stats EMPTY = new Stats(0, 0, Long.MAX_VALUE, Long.MIN_VALUE);
+
+    private int[] ids = new int[16];
+    private long[] prices = new long[16];
+    private int[] brands = new int[16];
+    private int[] models = new int[16];
+    private int size;
+    // Row of each car id plus one, 0 for cars not in the columns
+    private int[] rows = new int[16];
+
+    private final Map<String, Integer> brandCodes = new HashMap<>();
+    private final List<String> brandNames = new ArrayList<>();
+    private final Map<String, Integer> modelCodes = new HashMap<>();
+    private final List<String> modelNames = new ArrayList<>();
+
+    /** Builds the columns for {@code cars} in one pass. */
+    public static InventoryColumns of(List<Car> cars) {
+        InventoryColumns columns = new InventoryColumns();
+        columns.grow(cars.size());
+        for (Car car : cars) {
+            columns.add(car);
+        }
+        return columns;
+    }
+
+    /** Adds a row for {@code car}, which must have an id, replacing any row with the same id. */
+    public void add(Car car) {
+        int id = car.getId();
+        if (id <= 0) {
+            throw new IllegalArgumentException("Invalid id " + id);
+        }
+        if (id >= rows.length) {
+            rows = Arrays.copyOf(rows, Math.max(id + 1, rows.length * 2));
+        }
+        int row = rows[id] - 1;
+        if (row < 0) {
+            grow(size + 1);
+            row = size++;
+            rows[id] = row + 1;
+        }
+        ids[row] = id;
+        prices[row] = toCents(car.getPrice());
+        brands[row] = code(brandCodes, brandNames, brandKey(car.getBrand()), car.getBrand());
+        models[row] = code(modelCodes, modelNames, car.getModel(), car.getModel());
+    }
+
+    /** @return {@code true} if the car had a row */
+    public boolean remove(Car car) {
+        int id = car.getId();
+        if (id <= 0 || id >= rows.length || rows[id] == 0) {
+            return false;
+        }
+        int row = rows[id] - 1;
+        int last = --size;
+        if (row != last) {
+            ids[row] = ids[last];
+            prices[row] = prices[last];
+            brands[row] = brands[last];
+            models[row] = models[last];
+            rows[ids[row]] = row + 1;
+        }
+        rows[id] = 0;
+        return true;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    // Raw columns for batch pricing; valid up to size(), never to be changed
+
+    long[] priceColumn() {
+        return prices;
+    }
+
+    int[] brandColumn() {
+        return brands;
+    }
+
+    int brandCount() {
+        return brandNames.size();
+    }
+
+    String brandName(int code) {
+        return brandNames.get(code);
+    }
+
+    // Scans
+
+    /** Statistics over every car. */
+    public Stats stats() {
+        long total = 0;
+        long min = Long.MAX_VALUE;
+        long max = Long.MIN_VALUE;
+        for (int i = 0; i < size; i++) {
+            long price = prices[i];
+            total += price;
+            min = Math.min(min, price);
+            max = Math.max(max, price);
+        }
+        return new Stats(size, total, min, max);
+    }
+
+    /** Statistics over the cars priced between the bounds, inclusive. */
+    public Stats stats(double minPrice, double maxPrice) {
+        long low = toCents(minPrice);
+        long high = toCents(maxPrice);
+        int count = 0;
+        long total = 0;
+        long min = Long.MAX_VALUE;
+        long max = Long.MIN_VALUE;
+        for (int i = 0; i < size; i++) {
+            long price = prices[i];
+            if (price >= low && price <= high) {
+                count++;
+                total += price;
+                min = Math.min(min, price);
+                max = Math.max(max, price);
+            }
+        }
+        return new Stats(count, total, min, max);
+    }
+
+    /** Statistics over the cars of {@code brand} (any case) priced between the bounds. */
+    public Stats stats(String brand, double minPrice, double maxPrice) {
+        Integer code = brandCodes.get(brandKey(brand));
+        if (code == null) {
+            return EMPTY;
+        }
+        int wanted = code;
+        long low = toCents(minPrice);
+        long high = toCents(maxPrice);
+        int count = 0;
+        long total = 0;
+        long min = Long.MAX_VALUE;
+        long max = Long.MIN_VALUE;
+        for (int i = 0; i < size; i++) {
+            long price = prices[i];
+            if (brands[i] == wanted && price >= low && price <= high) {
+                count++;
+                total += price;
+                min = Math.min(min, price);
+                max = Math.max(max, price);
+            }
+        }
+        return new Stats(count, total, min, max);
+    }
+
+    /** The ids of the cars priced between the bounds, in row order. */
+    public int[] findIds(double minPrice, double maxPrice) {
+        long low = toCents(minPrice);
+        long high = toCents(maxPrice);
+        int[] found = new int[size];
+        int count = 0;
+        for (int i = 0; i < size; i++) {
+            long price = prices[i];
+            found[count] = ids[i];
+            count += price >= low & price <= high ? 1 : 0;
+        }
+        return Arrays.copyOf(found, count);
+    }
+
+    /** Number of cars per brand, in the spelling the brand was first seen with, most common first. */
+    public Map<String, Integer> countByBrand() {
+        return counts(brands, brandNames);
+    }
+
+    /** Number of cars per model, most common first. */
+    public Map<String, Integer> countByModel() {
+        return counts(models, modelNames);
+    }
+
+    private Map<String, Integer> counts(int[] codes, List<String> names) {
+        int[] counts = new int[names.size()];
+        for (int i = 0; i < size; i++) {
+            counts[codes[i]]++;
+        }
+        Integer[] order = new Integer[counts.length];
+        for (int code = 0; code < order.length; code++) {
+            order[code] = code;
+        }
+        Arrays.sort(order, (a, b) -> Integer.compare(counts[b], counts[a]));
+        Map<String, Integer> result = new LinkedHashMap<>();
+        for (int code : order) {
+            if (counts[code] > 0) {
+                result.put(names.get(code), counts[code]);
+            }
+        }
+        return result;
+    }
+
+    private void grow(int capacity) {
+        if (capacity > ids.length) {
+            int length = Math.max(capacity, ids.length * 2);
+            ids = Arrays.copyOf(ids, length);
+            prices = Arrays.copyOf(prices, length);
+            brands = Arrays.copyOf(brands, length);
+            models = Arrays.copyOf(models, length);
+        }
+    }
+
+    private static int code(Map<String, Integer> codes, List<String> names, String key, String name) {
+        Integer code = codes.get(key);
+        if (code == null) {
+            code = names.size();
+            codes.put(key, code);
+            names.add(name);
+        }
+        return code;
+    }
+
+    private static long toCents(double price) {
+        if (price <= Long.MIN_VALUE / 100.0) {
+            return Long.MIN_VALUE;
+        }
+        if (price >= Long.MAX_VALUE / 100.0) {
+            return Long.MAX_VALUE;
+        }
+        return Math.round(price * 100);
+    }
+
+    private static String brandKey(String brand) {
+        return brand == null ? "" : brand.toLowerCase(Locale.ROOT);
+    }
+}
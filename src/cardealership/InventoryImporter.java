@@ -0,0 +1,160 @@
+package cardealership;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Bulk import of cars from a CSV file with the columns
+ * {@code brand,model,price} (an optional header line is skipped).
+ *
+ * The file is read sequentially in chunks of lines; each chunk is parsed and
+ * checked with {@link Validation#validateCarInput} on a fork-join pool while
+ * the next chunk is being read. Results are merged in file order. Only a
+ * bounded number of chunks is in flight, so memory use does not depend on the
+ * size of the file beyond the accepted cars themselves.
+ */
+public class InventoryImporter {
+    private static final int CHUNK_SIZE = 8192;
+
+    public static class Rejection {
+        private final long lineNumber;
+        private final String line;
+        private final String reason;
+
+        public Rejection(long lineNumber, String line, String reason) {
+            this.lineNumber = lineNumber;
+            this.line = line;
+            this.reason = reason;
+        }
+
+        public long getLineNumber() { return lineNumber; }
+        public String getLine() { return line; }
+        public String getReason() { return reason; }
+
+        @Override
+        public String toString() {
+            return String.format("Line %d: %s", lineNumber, reason);
+        }
+    }
+
+    public static class Result {
+        private final List<Car> accepted = new ArrayList<>();
+        private final List<Rejection> rejected = new ArrayList<>();
+
+        public List<Car> getAccepted() { return accepted; }
+        public List<Rejection> getRejected() { return rejected; }
+    }
+
+    private static class Chunk {
+        final long firstLine;
+        final List<String> lines;
+
+        Chunk(long firstLine, List<String> lines) {
+            this.firstLine = firstLine;
+            this.lines = lines;
+        }
+    }
+
+    private final ForkJoinPool pool;
+    private final int maxInFlight;
+
+    public InventoryImporter() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    public InventoryImporter(ForkJoinPool pool) {
+        this.pool = pool;
+        this.maxInFlight = pool.getParallelism() * 2;
+    }
+
+    public Result importFile(Path file) throws IOException {
+        try (BufferedReader reader = Files.newBufferedReader(file)) {
+            return importFrom(reader);
+        }
+    }
+
+    public Result importFrom(Reader source) throws IOException {
+        BufferedReader reader = source instanceof BufferedReader buffered ? buffered : new BufferedReader(source);
+        Result result = new Result();
+        Deque<ForkJoinTask<Result>> inFlight = new ArrayDeque<>();
+
+        long lineNumber = 0;
+        List<String> lines = new ArrayList<>(CHUNK_SIZE);
+        long chunkStart = 1;
+        String line;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            if (lineNumber == 1 && isHeader(line)) {
+                chunkStart = 2;
+                continue;
+            }
+            lines.add(line);
+            if (lines.size() == CHUNK_SIZE) {
+                submit(new Chunk(chunkStart, lines), inFlight, result);
+                lines = new ArrayList<>(CHUNK_SIZE);
+                chunkStart = lineNumber + 1;
+            }
+        }
+        if (!lines.isEmpty()) {
+            submit(new Chunk(chunkStart, lines), inFlight, result);
+        }
+        while (!inFlight.isEmpty()) {
+            merge(result, inFlight.pollFirst().join());
+        }
+        return result;
+    }
+
+    private void submit(Chunk chunk, Deque<ForkJoinTask<Result>> inFlight, Result result) {
+        // Keep reading ahead of the parsers, but not unboundedly
+        while (inFlight.size() >= maxInFlight) {
+            merge(result, inFlight.pollFirst().join());
+        }
+        inFlight.addLast(pool.submit(() -> parse(chunk)));
+    }
+
+    private static void merge(Result into, Result chunk) {
+        into.accepted.addAll(chunk.accepted);
+        into.rejected.addAll(chunk.rejected);
+    }
+
+    private static Result parse(Chunk chunk) {
+        Result result = new Result();
+        long lineNumber = chunk.firstLine;
+        for (String line : chunk.lines) {
+            if (!line.isBlank()) {
+                try {
+                    result.accepted.add(parseCar(line));
+                } catch (IllegalArgumentException e) {
+                    result.rejected.add(new Rejection(lineNumber, line, e.getMessage()));
+                }
+            }
+            lineNumber++;
+        }
+        return result;
+    }
+
+    static Car parseCar(String line) {
+        CsvReader csv = CsvReader.ofLine(line);
+        if (csv.fieldCount() != 3) {
+            throw new IllegalArgumentException("Expected brand,model,price but found " + csv.fieldCount() + " fields!");
+        }
+        String brand = csv.getString(0).trim();
+        String model = csv.getString(1).trim();
+        String price = csv.getString(2).trim();
+        Validation.validateCarInput(brand, model, price);
+        return new Car(model, brand, Double.parseDouble(price));
+    }
+
+    private static boolean isHeader(String line) {
+        return line.trim().toLowerCase().startsWith("brand,");
+    }
+}
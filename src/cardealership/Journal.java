@@ -0,0 +1,321 @@
+package cardealership;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.function.Function;
+
+/**
+ * Append-only log of add/remove records on top of a snapshot file.
+ *
+ * Records are written to numbered segments ({@code cars.journal.1},
+ * {@code cars.journal.2}, ...). When the active segment grows past the
+ * threshold it is sealed and a background task folds the sealed segments into
+ * {@code cars.snapshot}. The first line of the snapshot records the last
+ * segment it contains, so a crash at any point never applies a segment twice.
+ */
+class Journal<T> {
+    private static final char ADD = 'A';
+    private static final char REMOVE = 'R';
+    private static final String HEADER = "#journal ";
+
+    private final Path directory;
+    private final String name;
+    private final Path snapshot;
+    private final Function<T, String> format;
+    private final Function<String, T> parse;
+    private final long threshold;
+    private final ExecutorService compactor;
+    private final Object compactionLock = new Object();
+
+    private int activeSegment;
+    private boolean compactionPending;
+
+    Journal(Path directory, String name, Function<T, String> format, Function<String, T> parse,
+            long threshold, ExecutorService compactor) {
+        this.directory = directory;
+        this.name = name;
+        this.snapshot = directory.resolve(name + ".snapshot");
+        this.format = format;
+        this.parse = parse;
+        this.threshold = threshold;
+        this.compactor = compactor;
+    }
+
+    /** Supplies the records a journal starts from, before it has a snapshot. */
+    interface Base<T> {
+        List<T> load() throws IOException;
+    }
+
+    /**
+     * Rebuilds the current state from the snapshot and every newer segment.
+     * When no snapshot exists yet, {@code base} supplies the initial records;
+     * otherwise it is not read at all.
+     */
+    synchronized List<T> replay(Base<T> base) throws IOException {
+        int folded = 0;
+        List<String> lines = new ArrayList<>();
+        if (Files.exists(snapshot)) {
+            try (BufferedReader reader = Files.newBufferedReader(snapshot)) {
+                folded = readHeader(reader.readLine());
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    lines.add(line);
+                }
+            }
+        } else {
+            for (T record : base.load()) {
+                lines.add(format.apply(record));
+            }
+        }
+
+        List<Integer> segments = segments();
+        for (int segment : segments) {
+            if (segment > folded) {
+                lines = apply(lines, segmentPath(segment));
+            }
+        }
+        activeSegment = Math.max(folded, segments.isEmpty() ? 0 : segments.get(segments.size() - 1)) + 1;
+
+        List<T> records = new ArrayList<>(lines.size());
+        for (String line : lines) {
+            T record = parse.apply(line);
+            if (record != null) {
+                records.add(record);
+            }
+        }
+        if (!Files.exists(snapshot)) {
+            writeSnapshot(lines, activeSegment - 1);
+            deleteSegmentsUpTo(activeSegment - 1);
+        }
+        return records;
+    }
+
+    void add(T record) throws IOException {
+        append(ADD, record);
+    }
+
+    /** Appends add records for all {@code records} with a single write. */
+    void addAll(List<T> records) throws IOException {
+        synchronized (this) {
+            Path segment = segmentPath(activeSegment);
+            try (Writer writer = Files.newBufferedWriter(segment,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+                for (T record : records) {
+                    writer.write(ADD);
+                    writer.write(format.apply(record));
+                    writer.write('\n');
+                }
+            }
+            scheduleCompactionIfNeeded(segment);
+        }
+    }
+
+    void remove(T record) throws IOException {
+        append(REMOVE, record);
+    }
+
+    /** Replaces everything with {@code records}, discarding the existing segments. */
+    void replace(List<T> records) throws IOException {
+        List<String> lines = new ArrayList<>(records.size());
+        for (T record : records) {
+            lines.add(format.apply(record));
+        }
+        synchronized (compactionLock) {
+            int sealed = seal();
+            writeSnapshot(lines, sealed);
+            deleteSegmentsUpTo(sealed);
+        }
+    }
+
+    /** Called with the position a record group will be written at, before it is written. */
+    interface GroupCommit {
+        void commit(int segment, long offset) throws IOException;
+    }
+
+    /**
+     * Appends removal records for all {@code records} with a single synced
+     * write. {@code commit} runs first, while compaction is held off, so the
+     * caller can log where the group goes and redo it after a crash with
+     * {@link #redoRemovals}.
+     */
+    void removeAll(List<T> records, GroupCommit commit) throws IOException {
+        List<String> lines = new ArrayList<>(records.size());
+        for (T record : records) {
+            lines.add(format.apply(record));
+        }
+        synchronized (compactionLock) {
+            synchronized (this) {
+                Path segment = segmentPath(activeSegment);
+                long offset = Files.exists(segment) ? Files.size(segment) : 0;
+                commit.commit(activeSegment, offset);
+                writeGroup(segment, offset, lines);
+            }
+        }
+    }
+
+    /** Rewrites a removal group at its logged position unless it was already folded into the snapshot. */
+    synchronized void redoRemovals(int segment, long offset, List<String> lines) throws IOException {
+        int folded = 0;
+        if (Files.exists(snapshot)) {
+            try (BufferedReader reader = Files.newBufferedReader(snapshot)) {
+                folded = readHeader(reader.readLine());
+            }
+        }
+        if (segment > folded) {
+            writeGroup(segmentPath(segment), offset, lines);
+        }
+    }
+
+    private void writeGroup(Path segment, long offset, List<String> lines) throws IOException {
+        StringBuilder group = new StringBuilder();
+        for (String line : lines) {
+            group.append(REMOVE).append(line).append('\n');
+        }
+        CheckoutIntent.writeSynced(segment, offset, group.toString());
+    }
+
+    private synchronized void append(char op, T record) throws IOException {
+        Path segment = segmentPath(activeSegment);
+        try (Writer writer = Files.newBufferedWriter(segment,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+            writer.write(op);
+            writer.write(format.apply(record));
+            writer.write('\n');
+        }
+        scheduleCompactionIfNeeded(segment);
+    }
+
+    private synchronized void scheduleCompactionIfNeeded(Path segment) throws IOException {
+        if (!compactionPending && Files.size(segment) >= threshold) {
+            compactionPending = true;
+            compactor.submit(this::compactQuietly);
+        }
+    }
+
+    private synchronized int seal() {
+        compactionPending = false;
+        return activeSegment++;
+    }
+
+    private void compactQuietly() {
+        try {
+            compact();
+        } catch (IOException e) {
+            DataManager.reportError("Error compacting " + name + " journal: " + e.getMessage());
+        }
+    }
+
+    /** Folds all sealed segments into the snapshot. Appends continue meanwhile. */
+    void compact() throws IOException {
+        synchronized (compactionLock) {
+            int sealed = seal();
+            List<String> lines = new ArrayList<>();
+            int folded = 0;
+            if (Files.exists(snapshot)) {
+                try (BufferedReader reader = Files.newBufferedReader(snapshot)) {
+                    folded = readHeader(reader.readLine());
+                    String line;
+                    while ((line = reader.readLine()) != null) {
+                        lines.add(line);
+                    }
+                }
+            }
+            for (int segment : segments()) {
+                if (segment > folded && segment <= sealed) {
+                    lines = apply(lines, segmentPath(segment));
+                }
+            }
+            writeSnapshot(lines, sealed);
+            deleteSegmentsUpTo(sealed);
+        }
+    }
+
+    private List<String> apply(List<String> lines, Path segment) throws IOException {
+        // Index the current lines so each removal is a map lookup instead of a scan
+        Map<String, ArrayDeque<Integer>> positions = new HashMap<>();
+        for (int i = 0; i < lines.size(); i++) {
+            positions.computeIfAbsent(lines.get(i), k -> new ArrayDeque<>()).addLast(i);
+        }
+        try (BufferedReader reader = Files.newBufferedReader(segment)) {
+            String entry;
+            while ((entry = reader.readLine()) != null) {
+                if (entry.isEmpty()) {
+                    continue;
+                }
+                String line = entry.substring(1);
+                if (entry.charAt(0) == ADD) {
+                    positions.computeIfAbsent(line, k -> new ArrayDeque<>()).addLast(lines.size());
+                    lines.add(line);
+                } else if (entry.charAt(0) == REMOVE) {
+                    ArrayDeque<Integer> matches = positions.get(line);
+                    if (matches != null && !matches.isEmpty()) {
+                        lines.set(matches.pollFirst(), null);
+                    }
+                }
+            }
+        }
+        List<String> remaining = new ArrayList<>(lines.size());
+        for (String line : lines) {
+            if (line != null) {
+                remaining.add(line);
+            }
+        }
+        return remaining;
+    }
+
+    // The segments folded into the snapshot are deleted next, so it must be on disk first
+    private void writeSnapshot(List<String> lines, int folded) throws IOException {
+        Path temp = directory.resolve(name + ".snapshot.tmp");
+        try (FileOutputStream out = new FileOutputStream(temp.toFile())) {
+            BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+            writer.write(HEADER + folded);
+            writer.newLine();
+            for (String line : lines) {
+                writer.write(line);
+                writer.newLine();
+            }
+            writer.flush();
+            out.getFD().sync();
+        }
+        Files.move(temp, snapshot, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        CheckoutIntent.syncDirectory(directory);
+    }
+
+    private void deleteSegmentsUpTo(int sealed) throws IOException {
+        for (int segment : segments()) {
+            if (segment <= sealed) {
+                Files.deleteIfExists(segmentPath(segment));
+            }
+        }
+    }
+
+    private static int readHeader(String line) {
+        if (line != null && line.startsWith(HEADER)) {
+            return Integer.parseInt(line.substring(HEADER.length()).trim());
+        }
+        return 0;
+    }
+
+    private Path segmentPath(int segment) {
+        return directory.resolve(name + ".journal." + segment);
+    }
+
+    private List<Integer> segments() throws IOException {
+        List<Integer> segments = new ArrayList<>();
+        String prefix = name + ".journal.";
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, prefix + "*")) {
+            for (Path path : stream) {
+                try {
+                    segments.add(Integer.parseInt(path.getFileName().toString().substring(prefix.length())));
+                } catch (NumberFormatException e) {
+                    // not one of ours
+                }
+            }
+        }
+        Collections.sort(segments);
+        return segments;
+    }
+}
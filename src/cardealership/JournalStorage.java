@@ -0,0 +1,174 @@
+package cardealership;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Journaled variant of the text format. Adding or removing a car or customer
+ * appends one line to a journal instead of rewriting the whole file; a
+ * background thread compacts the journal into a snapshot once it is large
+ * enough. Dealership, sales and testimonies keep using the plain text files.
+ *
+ * On first use the snapshots are seeded from {@code cars.txt} and
+ * {@code customers.txt}; after that the text files are no longer read.
+ *
+ * A checkout is committed by syncing a {@link CheckoutIntent} that records the
+ * sales and where the matching car removals go in the journal; both are then
+ * written with one synced write each and the intent is deleted.
+ */
+public class JournalStorage implements Storage {
+    private static final long DEFAULT_THRESHOLD = 256 * 1024;
+
+    private final TextStorage text;
+    private final Path checkoutFile;
+    private final ExecutorService compactor;
+    private final Journal<Car> cars;
+    private final Journal<Customer> customers;
+
+    public JournalStorage(String directory) {
+        this(directory, Long.getLong("cardealership.journal.threshold", DEFAULT_THRESHOLD));
+    }
+
+    public JournalStorage(String directory, long threshold) {
+        Path path = Paths.get(directory);
+        text = new TextStorage(directory);
+        checkoutFile = path.resolve("journal-checkout.pending");
+        compactor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "journal-compactor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        cars = new Journal<>(path, "cars", TextStorage::formatCar, TextStorage::parseCar,
+            threshold, compactor);
+        customers = new Journal<>(path, "customers", TextStorage::formatCustomer, TextStorage::parseCustomer,
+            threshold, compactor);
+    }
+
+    @Override
+    public CarDealership loadDealership() throws IOException {
+        return text.loadDealership();
+    }
+
+    @Override
+    public void saveDealership(CarDealership dealership) throws IOException {
+        text.saveDealership(dealership);
+    }
+
+    @Override
+    public List<Car> loadCars() throws IOException {
+        recoverCheckout();
+        return cars.replay(text::loadCars);
+    }
+
+    @Override
+    public void saveCars(List<Car> list) throws IOException {
+        cars.replace(list);
+    }
+
+    @Override
+    public void addCar(Car car) throws IOException {
+        cars.add(car);
+    }
+
+    @Override
+    public void addCars(List<Car> list) throws IOException {
+        cars.addAll(list);
+    }
+
+    @Override
+    public void removeCar(Car car) throws IOException {
+        cars.remove(car);
+    }
+
+    @Override
+    public List<Customer> loadCustomers() throws IOException {
+        return customers.replay(text::loadCustomers);
+    }
+
+    @Override
+    public void saveCustomers(List<Customer> list) throws IOException {
+        customers.replace(list);
+    }
+
+    @Override
+    public void addCustomer(Customer customer) throws IOException {
+        customers.add(customer);
+    }
+
+    @Override
+    public List<Sale> loadSales() throws IOException {
+        return text.loadSales();
+    }
+
+    @Override
+    public List<Sale> loadSales(long from, long to) throws IOException {
+        return text.loadSales(from, to);
+    }
+
+    @Override
+    public SalesReport loadSalesReport(long from, long to) throws IOException {
+        return text.loadSalesReport(from, to);
+    }
+
+    @Override
+    public void saveSale(Sale sale) throws IOException {
+        text.saveSale(sale);
+    }
+
+    @Override
+    public void saveCheckout(List<Sale> sales) throws IOException {
+        CheckoutIntent intent = new CheckoutIntent();
+        intent.sales.addAll(text.formatSales(sales));
+        List<Car> sold = new ArrayList<>(sales.size());
+        for (Sale sale : sales) {
+            intent.removals.add(TextStorage.formatCar(sale.getCar()));
+            sold.add(sale.getCar());
+        }
+        SalesLog.Position position = text.salesPosition(sales);
+        cars.removeAll(sold, (segment, offset) -> {
+            intent.salesSegment = position.segment;
+            intent.salesOffset = position.offset;
+            intent.journalSegment = segment;
+            intent.journalOffset = offset;
+            intent.write(checkoutFile);
+            text.appendSales(position, intent.sales);
+        });
+        Files.delete(checkoutFile);
+    }
+
+    private void recoverCheckout() throws IOException {
+        CheckoutIntent intent = CheckoutIntent.read(checkoutFile);
+        if (intent != null) {
+            text.appendSales(new SalesLog.Position(intent.salesSegment, intent.salesOffset), intent.sales);
+            cars.redoRemovals(intent.journalSegment, intent.journalOffset, intent.removals);
+            Files.delete(checkoutFile);
+        }
+    }
+
+    @Override
+    public List<Testimony> loadVideoTestimonies() throws IOException {
+        return text.loadVideoTestimonies();
+    }
+
+    @Override
+    public void saveVideoTestimony(Customer customer, String filePath, String comments) throws IOException {
+        text.saveVideoTestimony(customer, filePath, comments);
+    }
+
+    @Override
+    public void close() throws IOException {
+        compactor.shutdown();
+        try {
+            compactor.awaitTermination(30, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -1,39 +1,66 @@
 package cardealership;
 
+import javafx.animation.PauseTransition;
 import javafx.application.Application;
+import javafx.application.Platform;
 import javafx.beans.property.SimpleStringProperty;
 import javafx.geometry.Insets;
 import javafx.geometry.Pos;
+import javafx.scene.Node;
 import javafx.scene.Scene;
 import javafx.scene.control.*;
 import javafx.scene.layout.*;
 import javafx.scene.text.Font;
 import javafx.scene.text.FontWeight;
 import javafx.stage.Stage;
+import javafx.util.Duration;
 import javafx.scene.paint.Color;
 import javafx.collections.FXCollections;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 import javafx.stage.FileChooser;
 import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 
 public class Main extends Application {
-    private CarDealership dealership;
-    private List<Customer> customers;
-    private static final double TAX_RATE = 0.07;
+    private static final int REPORT_TOP_N = 10;
+
+    private DealershipService service;
+    private ApiServer apiServer;
+    private final ExecutorService searchExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "table-search");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private Runnable pendingView;
+    // Changes made anywhere, from this window, the API or an import, batched for the view on screen
+    private final FxEventQueue modelEvents = new FxEventQueue();
+    private final StringBuilder timings = new StringBuilder();
+    private long startedAt;
+    private Label statusLabel;
     private BorderPane mainLayout;
     private VBox contentArea;
 
     @Override
     public void start(Stage primaryStage) {
-        DataManager.initializeDataDirectory();
-        dealership = DataManager.loadDealership();
-        if (dealership == null) {
-            dealership = new CarDealership();
-        } else {
-            dealership.getCars().addAll(DataManager.loadCars());
-        }
-        customers = DataManager.loadCustomers();
+        startedAt = System.nanoTime();
+        // Writes happen in the background, so report failures back on the FX thread
+        DataManager.setErrorHandler(message -> Platform.runLater(
+                () -> showAlert("Error", message, Alert.AlertType.ERROR)));
 
         // Create main layout
         mainLayout = new BorderPane();
@@ -53,6 +80,11 @@ public class Main extends Application {
         contentArea.setStyle("-fx-background-color: white; -fx-background-radius: 5;");
         mainLayout.setCenter(contentArea);
 
+        // Status bar, filled in with the startup timings
+        statusLabel = new Label("Loading data...");
+        statusLabel.setPadding(new Insets(5, 10, 5, 10));
+        mainLayout.setBottom(statusLabel);
+
         // Welcome screen
         showWelcomeScreen();
 
@@ -60,6 +92,89 @@ public class Main extends Application {
         primaryStage.setTitle("Car Dealership Management System");
         primaryStage.setScene(scene);
         primaryStage.show();
+        timings.append("ui ").append(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt)).append(" ms");
+
+        // The window is up; the data files load concurrently in the background
+        CompletableFuture
+            .runAsync(DataManager::initializeDataDirectory, runnable -> Thread.ofVirtual().name("startup").start(runnable))
+            .thenCompose(done -> DealershipService.loadAsync(this::recordTiming))
+            .whenComplete((loaded, error) -> Platform.runLater(() -> {
+                if (error != null) {
+                    statusLabel.setText("Loading failed");
+                    showAlert("Error", "Could not load the dealership data: " + error.getMessage(), Alert.AlertType.ERROR);
+                    return;
+                }
+                service = loaded;
+                service.getEvents().subscribe(modelEvents);
+                startApiServer();
+                timings.append(", total ").append(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt)).append(" ms");
+                statusLabel.setText("Started: " + timings);
+                if (pendingView != null) {
+                    Runnable view = pendingView;
+                    pendingView = null;
+                    view.run();
+                }
+            }));
+    }
+
+    // Applies each batch of changes to the view with root node root, for as long as it is shown
+    private void followChanges(Node root, Consumer<List<ModelEvent>> update) {
+        modelEvents.setHandler(events -> {
+            if (contentArea.getChildren().contains(root)) {
+                update.accept(events);
+            }
+        });
+    }
+
+    // Optionally serve the same model over HTTP for other terminals
+    private void startApiServer() {
+        Integer apiPort = Integer.getInteger("cardealership.api.port");
+        if (apiPort != null) {
+            try {
+                apiServer = new ApiServer(service, apiPort);
+                apiServer.start();
+            } catch (IOException e) {
+                showAlert("Error", "Could not start the API server: " + e.getMessage(), Alert.AlertType.ERROR);
+            }
+        }
+    }
+
+    // Called from the loader threads as each phase finishes
+    private void recordTiming(String phase, long millis) {
+        Platform.runLater(() -> timings.append(", ").append(phase).append(' ').append(millis).append(" ms"));
+    }
+
+    /**
+     * Runs the view once the data has loaded; until then the content area
+     * shows a loading state and the most recently chosen view is remembered.
+     */
+    private void whenLoaded(String what, Runnable view) {
+        if (service != null) {
+            pendingView = null;
+            view.run();
+            return;
+        }
+        pendingView = view;
+        contentArea.getChildren().clear();
+        ProgressIndicator progress = new ProgressIndicator();
+        progress.setMaxSize(60, 60);
+        Label loadingLabel = new Label("Loading " + what + "...");
+        loadingLabel.setFont(Font.font("Arial", 14));
+        contentArea.getChildren().addAll(progress, loadingLabel);
+        contentArea.setAlignment(Pos.CENTER);
+    }
+
+    @Override
+    public void stop() {
+        if (apiServer != null) {
+            apiServer.stop();
+        }
+        // Closing the storage writes out anything still queued
+        if (service != null) {
+            service.shutdown();
+        } else {
+            DataManager.shutdown();
+        }
     }
 
     private VBox createHeader() {
@@ -84,13 +199,14 @@ public class Main extends Application {
         String buttonHoverStyle = "-fx-background-color: #2c3e50;";
 
         Button[] menuButtons = {
-                createMenuButton("Create Store", this::createStore),
-                createMenuButton("View Inventory", this::viewInventory),
-                createMenuButton("View Customers", this::viewCustomers),
-                createMenuButton("Add Customer", this::addCustomer),
-                createMenuButton("Upload Inventory", this::uploadInventory),
-                createMenuButton("Purchase Items", this::purchaseItems),
-                createMenuButton("Upload Video Testimony", this::uploadVideoTestimony)
+                createMenuButton("Create Store", () -> whenLoaded("store", this::createStore)),
+                createMenuButton("View Inventory", () -> whenLoaded("inventory", this::viewInventory)),
+                createMenuButton("View Customers", () -> whenLoaded("customers", this::viewCustomers)),
+                createMenuButton("Add Customer", () -> whenLoaded("customers", this::addCustomer)),
+                createMenuButton("Upload Inventory", () -> whenLoaded("inventory", this::uploadInventory)),
+                createMenuButton("Purchase Items", () -> whenLoaded("inventory", this::purchaseItems)),
+                createMenuButton("Upload Video Testimony", () -> whenLoaded("customers", this::uploadVideoTestimony)),
+                createMenuButton("Reports", () -> whenLoaded("sales", this::viewReports))
         };
 
         for (Button btn : menuButtons) {
@@ -143,13 +259,13 @@ public class Main extends Application {
         submitBtn.setStyle("-fx-background-color: #2ecc71; -fx-text-fill: white;");
 
         submitBtn.setOnAction(e -> {
-            if (nameField.getText().isEmpty() || locationField.getText().isEmpty()) {
-                showAlert("Error", "Please fill in all fields!", Alert.AlertType.ERROR);
+            try {
+                service.createStore(nameField.getText(), locationField.getText());
+            } catch (IllegalArgumentException ex) {
+                showAlert("Error", ex.getMessage(), Alert.AlertType.ERROR);
                 return;
             }
 
-            dealership = new CarDealership(nameField.getText(), locationField.getText());
-            DataManager.saveDealership(dealership);
             showAlert("Success", "Store created successfully!", Alert.AlertType.INFORMATION);
             showWelcomeScreen();
         });
@@ -170,25 +286,60 @@ public class Main extends Application {
         Label headerLabel = new Label("Current Inventory");
         headerLabel.setFont(Font.font("Arial", FontWeight.BOLD, 18));
 
-        TableView<Car> tableView = new TableView<>();
+        // Rows are fetched and sorted by the service as the table needs them
+        PagedTable<Car, DealershipService.CarOrder> inventory = new PagedTable<>(
+                (order, descending) -> service.queryInventory(null, null, null, order, descending), searchExecutor);
+        inventory.addColumn("Brand", DealershipService.CarOrder.BRAND, Car::getBrand);
+        inventory.addColumn("Model", DealershipService.CarOrder.MODEL, Car::getModel);
+        inventory.addColumn("Price", DealershipService.CarOrder.PRICE, car -> String.format("$%.2f", car.getPrice()));
+        inventory.refresh();
+        TableView<Car> tableView = inventory.getTable();
 
-        TableColumn<Car, String> brandCol = new TableColumn<>("Brand");
-        brandCol.setCellValueFactory(cellData -> new SimpleStringProperty(cellData.getValue().getBrand()));
+        Label statsLabel = new Label(inventoryStats(null));
 
-        TableColumn<Car, String> modelCol = new TableColumn<>("Model");
-        modelCol.setCellValueFactory(cellData -> new SimpleStringProperty(cellData.getValue().getModel()));
-
-        TableColumn<Car, String> priceCol = new TableColumn<>("Price");
-        priceCol.setCellValueFactory(
-                cellData -> new SimpleStringProperty(String.format("$%.2f", cellData.getValue().getPrice())));
-
-        tableView.getColumns().add(brandCol);
-        tableView.getColumns().add(modelCol);
-        tableView.getColumns().add(priceCol);
-        tableView.setItems(FXCollections.observableArrayList(dealership.getCars()));
+        TextField brandField = new TextField();
+        brandField.setPromptText("Filter by brand...");
+        brandField.setMaxWidth(300);
+
+        PauseTransition debounce = new PauseTransition(Duration.millis(200));
+        debounce.setOnFinished(e -> {
+            String brand = brandField.getText().trim();
+            inventory.setQuery((order, descending) -> service.queryInventory(brand, null, null, order, descending));
+            statsLabel.setText(inventoryStats(brand));
+        });
+        brandField.textProperty().addListener((observable, oldValue, newValue) -> debounce.playFromStart());
+
+        // Sold or moved cars leave their rows; new cars need the query, run once per batch
+        followChanges(tableView, events -> {
+            Map<Integer, Car> gone = new HashMap<>();
+            boolean added = false;
+            for (ModelEvent event : events) {
+                if (event.isCarGone()) {
+                    gone.put(event.getCar().getId(), event.getCar());
+                } else if (event.getType() == ModelEvent.Type.CAR_ADDED
+                        || event.getType() == ModelEvent.Type.STORE_CREATED) {
+                    added = true;
+                }
+            }
+            if (added) {
+                inventory.refresh();
+            } else if (!gone.isEmpty()) {
+                inventory.removeRows(gone);
+            }
+            if (added || !gone.isEmpty()) {
+                statsLabel.setText(inventoryStats(brandField.getText().trim()));
+            }
+        });
 
         VBox.setVgrow(tableView, Priority.ALWAYS);
-        contentArea.getChildren().addAll(headerLabel, tableView);
+        contentArea.getChildren().addAll(headerLabel, statsLabel, brandField, tableView);
+    }
+
+    private String inventoryStats(String brand) {
+        InventoryColumns.Stats stats = service.inventoryStats(brand, null, null);
+        return stats.getCount() == 0 ? "No cars in stock" :
+                String.format("%d cars, $%.2f in total, $%.2f to $%.2f (average $%.2f)",
+                        stats.getCount(), stats.getTotal(), stats.getMin(), stats.getMax(), stats.getAverage());
     }
 
     private void addCustomer() {
@@ -218,17 +369,8 @@ public class Main extends Application {
 
         submitBtn.setOnAction(e -> {
             try {
-                validateCustomerInput(nameField.getText(), ageField.getText(),
+                service.addCustomer(nameField.getText(), ageField.getText(),
                         addressField.getText(), phoneField.getText(), emailField.getText());
-
-                Customer customer = new Customer(
-                        nameField.getText(),
-                        Integer.parseInt(ageField.getText()),
-                        addressField.getText(),
-                        phoneField.getText(),
-                        emailField.getText());
-                customers.add(customer);
-                DataManager.saveCustomers(customers);
                 showAlert("Success", "Customer added successfully!", Alert.AlertType.INFORMATION);
                 clearFields(nameField, ageField, addressField, phoneField, emailField);
             } catch (IllegalArgumentException ex) {
@@ -275,14 +417,7 @@ public class Main extends Application {
 
         submitBtn.setOnAction(e -> {
             try {
-                validateCarInput(brandField.getText(), modelField.getText(), priceField.getText());
-
-                Car car = new Car(
-                        modelField.getText(),
-                        brandField.getText(),
-                        Double.parseDouble(priceField.getText()));
-                dealership.addCar(car);
-                DataManager.saveCars(dealership.getCars());
+                service.addCar(brandField.getText(), modelField.getText(), priceField.getText());
                 showAlert("Success", "Car added to inventory!", Alert.AlertType.INFORMATION);
                 clearFields(brandField, modelField, priceField);
             } catch (IllegalArgumentException ex) {
@@ -299,71 +434,94 @@ public class Main extends Application {
         grid.add(priceField, 1, 3);
         grid.add(submitBtn, 1, 4);
 
+        // Bulk import of a CSV file with brand,model,price lines
+        Button importBtn = new Button("Import from File...");
+        importBtn.setStyle("-fx-background-color: #3498db; -fx-text-fill: white;");
+        Label importStatus = new Label();
+
+        importBtn.setOnAction(e -> {
+            FileChooser fileChooser = new FileChooser();
+            fileChooser.setTitle("Select Inventory File");
+            fileChooser.getExtensionFilters().add(
+                    new FileChooser.ExtensionFilter("CSV Files", "*.csv", "*.txt"));
+            File selectedFile = fileChooser.showOpenDialog(contentArea.getScene().getWindow());
+            if (selectedFile == null) {
+                return;
+            }
+
+            importBtn.setDisable(true);
+            importStatus.setText("Importing " + selectedFile.getName() + "...");
+            CompletableFuture.supplyAsync(() -> {
+                try {
+                    return new InventoryImporter().importFile(selectedFile.toPath());
+                } catch (IOException ex) {
+                    throw new UncheckedIOException(ex);
+                }
+            }).whenComplete((result, error) -> Platform.runLater(() -> {
+                importBtn.setDisable(false);
+                importStatus.setText("");
+                if (error != null) {
+                    showAlert("Error", "Could not read file: " + error.getCause().getMessage(),
+                            Alert.AlertType.ERROR);
+                    return;
+                }
+                service.addCars(result.getAccepted());
+                showImportResult(result);
+            }));
+        });
+
+        grid.add(new Separator(), 0, 5, 2, 1);
+        grid.add(importBtn, 1, 6);
+        grid.add(importStatus, 1, 7);
+
         contentArea.getChildren().add(grid);
     }
 
-    private double calculateDiscountedTotal(double total) {
-        if (total >= 100000) {
-            return total * 0.8; // 20% discount
-        } else if (total >= 50000) {
-            return total * 0.9; // 10% discount
-        } else if (total >= 25000) {
-            return total * 0.95; // 5% discount
+    private void showImportResult(InventoryImporter.Result result) {
+        List<InventoryImporter.Rejection> rejected = result.getRejected();
+        StringBuilder message = new StringBuilder(String.format("%d cars added to inventory.",
+                result.getAccepted().size()));
+        if (!rejected.isEmpty()) {
+            message.append(String.format("\n%d lines were rejected:\n", rejected.size()));
+            for (int i = 0; i < Math.min(rejected.size(), 20); i++) {
+                message.append(rejected.get(i)).append('\n');
+            }
+            if (rejected.size() > 20) {
+                message.append(String.format("... and %d more", rejected.size() - 20));
+            }
         }
-        return total;
+        showAlert("Import Complete", message.toString(),
+                rejected.isEmpty() ? Alert.AlertType.INFORMATION : Alert.AlertType.WARNING);
     }
 
-    private void updateAvailableCars(ComboBox<Car> carComboBox, ListView<Car> cartListView) {
-        List<Car> availableCars = dealership.getCars().stream()
-                .filter(car -> !cartListView.getItems().contains(car))
+    // Lists every car in stock that is neither in the cart nor reserved by another session
+    private void updateAvailableCars(ComboBox<Car> carComboBox, Cart cart, String session) {
+        ReservationManager reservations = service.getReservations();
+        List<Car> availableCars = service.getCars().stream()
+                .filter(car -> !cart.contains(car))
+                .filter(car -> reservations.isAvailableTo(car, session))
                 .toList();
         carComboBox.setItems(FXCollections.observableArrayList(availableCars));
     }
 
-    private void updateCartSummary(ListView<Car> cartListView, ComboBox<Customer> customerComboBox,
+    private void updateCartSummary(Cart cart, ComboBox<Customer> customerComboBox,
             TextArea summaryArea, Label cartLabel) {
-        if (cartListView.getItems().isEmpty() || customerComboBox.getValue() == null) {
+        cartLabel.setText(String.format("Shopping Cart (%d items)", cart.size()));
+        if (cart.isEmpty() || customerComboBox.getValue() == null) {
             summaryArea.clear();
             return;
         }
 
-        double totalBasePrice = 0;
-        StringBuilder summary = new StringBuilder();
-        summary.append(String.format("Customer: %s\n\nSelected Cars:\n",
-                customerComboBox.getValue().getName()));
-
-        for (Car car : cartListView.getItems()) {
-            summary.append(String.format("%s %s - $%.2f\n",
-                    car.getBrand(), car.getModel(), car.getPrice()));
-            totalBasePrice += car.getPrice();
-        }
-
-        double tax = totalBasePrice * TAX_RATE;
-        double subtotal = totalBasePrice + tax;
-        double finalTotal = calculateDiscountedTotal(subtotal);
-        double discount = subtotal - finalTotal;
-
-        summary.append(String.format("""
-
-                Base Total: $%.2f
-                Sales Tax (7%%): $%.2f
-                Subtotal: $%.2f
-                Discount: $%.2f
-                Final Total: $%.2f
-                """,
-                totalBasePrice, tax, subtotal, discount, finalTotal));
-
-        summaryArea.setText(summary.toString());
-        cartLabel.setText(String.format("Shopping Cart (%d items)", cartListView.getItems().size()));
+        summaryArea.setText(cart.summary(customerComboBox.getValue()));
     }
 
     private void purchaseItems() {
-        if (dealership.getCars().isEmpty()) {
+        if (service.getCarCount() == 0) {
             showAlert("Error", "No cars available in inventory!", Alert.AlertType.ERROR);
             return;
         }
 
-        if (customers.isEmpty()) {
+        if (service.getCustomerCount() == 0) {
             showAlert("Error", "No customers available. Please add a customer first!", Alert.AlertType.ERROR);
             return;
         }
@@ -377,10 +535,15 @@ public class Main extends Application {
         headerLabel.setFont(Font.font("Arial", FontWeight.BOLD, 18));
 
         // Customer selection
-        ComboBox<Customer> customerComboBox = new ComboBox<>(FXCollections.observableArrayList(customers));
+        ComboBox<Customer> customerComboBox = new ComboBox<>(FXCollections.observableArrayList(service.getCustomers()));
         customerComboBox.setPromptText("Select Customer");
 
-        // Shopping cart list view
+        // Cars in this cart are reserved under this session until checkout
+        String session = UUID.randomUUID().toString();
+        ReservationManager reservations = service.getReservations();
+
+        // Shopping cart; the list view only displays it
+        Cart cart = service.newCart();
         ListView<Car> cartListView = new ListView<>();
         VBox.setVgrow(cartListView, Priority.ALWAYS);
         Label cartLabel = new Label("Shopping Cart (0 items)");
@@ -390,7 +553,7 @@ public class Main extends Application {
         carComboBox.setPromptText("Select a Car");
 
         // Update available cars
-        updateAvailableCars(carComboBox, cartListView);
+        updateAvailableCars(carComboBox, cart, session);
 
         Button addToCartBtn = new Button("Add to Cart");
         addToCartBtn.setStyle("-fx-background-color: #3498db; -fx-text-fill: white;");
@@ -400,39 +563,52 @@ public class Main extends Application {
         summaryArea.setPrefRowCount(6);
 
         // Update cart summary
-        updateCartSummary(cartListView, customerComboBox, summaryArea, cartLabel);
-        // Add to cart button action
+        updateCartSummary(cart, customerComboBox, summaryArea, cartLabel);
+        // Add to cart button action; the choices change by one car, so only that car moves
         addToCartBtn.setOnAction(e -> {
             Car selectedCar = carComboBox.getValue();
             if (selectedCar == null) {
                 showAlert("Error", "Please select a car to add!", Alert.AlertType.ERROR);
                 return;
             }
-            cartListView.getItems().add(selectedCar);
-            updateAvailableCars(carComboBox, cartListView);
-            updateCartSummary(cartListView, customerComboBox, summaryArea, cartLabel);
+            if (!reservations.reserve(selectedCar, session)) {
+                showAlert("Error", "This car is already in another cart!", Alert.AlertType.ERROR);
+                updateAvailableCars(carComboBox, cart, session);
+                return;
+            }
+            if (cart.add(selectedCar)) {
+                cartListView.getItems().add(selectedCar);
+            }
+            carComboBox.getItems().remove(carComboBox.getSelectionModel().getSelectedIndex());
+            carComboBox.setValue(null);
+            updateCartSummary(cart, customerComboBox, summaryArea, cartLabel);
         });
 
         // Remove from cart functionality
         Button removeFromCartBtn = new Button("Remove Selected");
         removeFromCartBtn.setStyle("-fx-background-color: #e74c3c; -fx-text-fill: white;");
         removeFromCartBtn.setOnAction(e -> {
-            Car selectedCar = cartListView.getSelectionModel().getSelectedItem();
-            if (selectedCar != null) {
-                cartListView.getItems().remove(selectedCar);
-                updateAvailableCars(carComboBox, cartListView);
-                updateCartSummary(cartListView, customerComboBox, summaryArea, cartLabel);
-                ;
+            int selected = cartListView.getSelectionModel().getSelectedIndex();
+            if (selected >= 0) {
+                Car selectedCar = cartListView.getItems().remove(selected);
+                cart.remove(selectedCar);
+                reservations.release(selectedCar, session);
+                carComboBox.getItems().add(selectedCar);
+                updateCartSummary(cart, customerComboBox, summaryArea, cartLabel);
             }
         });
 
-        customerComboBox.setOnAction(e -> updateCartSummary(cartListView, customerComboBox, summaryArea, cartLabel));
+        // A returning customer's earlier purchases can earn a discount
+        customerComboBox.setOnAction(e -> {
+            cart.setCustomerSpent(service.customerSpent(customerComboBox.getValue()));
+            updateCartSummary(cart, customerComboBox, summaryArea, cartLabel);
+        });
 
         Button checkoutBtn = new Button("Checkout");
         checkoutBtn.setStyle("-fx-background-color: #2ecc71; -fx-text-fill: white;");
 
         checkoutBtn.setOnAction(e -> {
-            if (cartListView.getItems().isEmpty()) {
+            if (cart.isEmpty()) {
                 showAlert("Error", "Cart is empty!", Alert.AlertType.ERROR);
                 return;
             }
@@ -447,31 +623,13 @@ public class Main extends Application {
                     "Are you sure you want to complete this purchase?");
 
             if (result.isPresent() && result.get() == ButtonType.OK) {
-                Customer selectedCustomer = customerComboBox.getValue();
-                double totalBasePrice = 0;
-
-                for (Car car : cartListView.getItems()) {
-                    totalBasePrice += car.getPrice();
-                }
-
-                double tax = totalBasePrice * TAX_RATE;
-                double subtotal = totalBasePrice + tax;
-                double finalTotal = calculateDiscountedTotal(subtotal);
-                double discount = subtotal - finalTotal;
-
-                // Save each car purchase
-                for (Car car : cartListView.getItems()) {
-                    // Calculate individual car's proportion of total
-                    double proportion = car.getPrice() / totalBasePrice;
-                    DataManager.saveSale(car, selectedCustomer,
-                            car.getPrice(),
-                            tax * proportion,
-                            discount * proportion,
-                            finalTotal * proportion);
-                    dealership.getCars().remove(car);
+                try {
+                    service.checkout(customerComboBox.getValue(), cart, session);
+                } catch (IllegalStateException ex) {
+                    showAlert("Error", ex.getMessage(), Alert.AlertType.ERROR);
+                    return;
                 }
 
-                DataManager.saveCars(dealership.getCars());
                 showAlert("Success", "Purchase completed successfully!", Alert.AlertType.INFORMATION);
                 showWelcomeScreen();
             }
@@ -506,6 +664,29 @@ public class Main extends Application {
                 summaryArea,
                 checkoutBtn);
 
+        // Cars and customers added or sold elsewhere come and go from the choices as they change
+        followChanges(purchaseBox, events -> {
+            List<Car> added = new ArrayList<>();
+            Set<Car> gone = new HashSet<>();
+            List<Customer> customers = new ArrayList<>();
+            for (ModelEvent event : events) {
+                switch (event.getType()) {
+                    case CAR_ADDED -> added.add(event.getCar());
+                    case CAR_SOLD, CAR_REMOVED -> gone.add(event.getCar());
+                    case CUSTOMER_ADDED -> customers.add(event.getCustomer());
+                    case STORE_CREATED -> {
+                        showWelcomeScreen();
+                        return;
+                    }
+                }
+            }
+            added.removeIf(car -> gone.contains(car) || cart.contains(car)
+                    || !reservations.isAvailableTo(car, session));
+            carComboBox.getItems().removeAll(gone);
+            carComboBox.getItems().addAll(added);
+            customerComboBox.getItems().addAll(customers);
+        });
+
         contentArea.getChildren().add(purchaseBox);
     }
 
@@ -518,7 +699,7 @@ public class Main extends Application {
         Label headerLabel = new Label("Upload Video Testimony");
         headerLabel.setFont(Font.font("Arial", FontWeight.BOLD, 18));
 
-        ComboBox<Customer> customerSelect = new ComboBox<>(FXCollections.observableArrayList(customers));
+        ComboBox<Customer> customerSelect = new ComboBox<>(FXCollections.observableArrayList(service.getCustomers()));
         customerSelect.setPromptText("Select Customer");
         customerSelect.setMaxWidth(Double.MAX_VALUE);
 
@@ -582,6 +763,14 @@ public class Main extends Application {
                 commentArea,
                 uploadBtn);
 
+        followChanges(videoBox, events -> {
+            for (ModelEvent event : events) {
+                if (event.getType() == ModelEvent.Type.CUSTOMER_ADDED) {
+                    customerSelect.getItems().add(event.getCustomer());
+                }
+            }
+        });
+
         contentArea.getChildren().add(videoBox);
     }
 
@@ -594,45 +783,33 @@ public class Main extends Application {
         Label headerLabel = new Label("Customer Database");
         headerLabel.setFont(Font.font("Arial", FontWeight.BOLD, 18));
 
-        TableView<Customer> tableView = new TableView<>();
-
-        TableColumn<Customer, String> nameCol = new TableColumn<>("Name");
-        nameCol.setCellValueFactory(cellData -> new SimpleStringProperty(cellData.getValue().getName()));
-
-        TableColumn<Customer, String> ageCol = new TableColumn<>("Age");
-        ageCol.setCellValueFactory(cellData -> new SimpleStringProperty(String.valueOf(cellData.getValue().getAge())));
-
-        TableColumn<Customer, String> phoneCol = new TableColumn<>("Phone");
-        phoneCol.setCellValueFactory(cellData -> new SimpleStringProperty(cellData.getValue().getPhone()));
-
-        TableColumn<Customer, String> emailCol = new TableColumn<>("Email");
-        emailCol.setCellValueFactory(cellData -> new SimpleStringProperty(cellData.getValue().getEmail()));
-
-        TableColumn<Customer, String> addressCol = new TableColumn<>("Address");
-        addressCol.setCellValueFactory(cellData -> new SimpleStringProperty(cellData.getValue().getAddress()));
-
-        tableView.getColumns().add(nameCol);
-        tableView.getColumns().add(ageCol);
-        tableView.getColumns().add(phoneCol);
-        tableView.getColumns().add(emailCol);
-        tableView.getColumns().add(addressCol);
-        tableView.setItems(FXCollections.observableArrayList(customers));
+        PagedTable<Customer, DealershipService.CustomerOrder> customers = new PagedTable<>(
+                (order, descending) -> service.queryCustomers(null, order, descending), searchExecutor);
+        customers.addColumn("Name", DealershipService.CustomerOrder.NAME, Customer::getName);
+        customers.addColumn("Age", DealershipService.CustomerOrder.AGE, customer -> String.valueOf(customer.getAge()));
+        customers.addColumn("Phone", DealershipService.CustomerOrder.PHONE, Customer::getPhone);
+        customers.addColumn("Email", DealershipService.CustomerOrder.EMAIL, Customer::getEmail);
+        customers.addColumn("Address", DealershipService.CustomerOrder.ADDRESS, Customer::getAddress);
+        customers.refresh();
+        TableView<Customer> tableView = customers.getTable();
 
         // Add search functionality
         TextField searchField = new TextField();
         searchField.setPromptText("Search customers...");
         searchField.setMaxWidth(300);
 
-        searchField.textProperty().addListener((observable, oldValue, newValue) -> {
-            if (newValue == null || newValue.isEmpty()) {
-                tableView.setItems(FXCollections.observableArrayList(customers));
-            } else {
-                List<Customer> filteredList = customers.stream()
-                        .filter(customer -> customer.getName().toLowerCase().contains(newValue.toLowerCase()) ||
-                                customer.getEmail().toLowerCase().contains(newValue.toLowerCase()) ||
-                                customer.getPhone().contains(newValue))
-                        .toList();
-                tableView.setItems(FXCollections.observableArrayList(filteredList));
+        // Wait for a pause in typing, then search the index in the background
+        PauseTransition debounce = new PauseTransition(Duration.millis(200));
+        debounce.setOnFinished(e -> {
+            String query = searchField.getText();
+            customers.setQuery((order, descending) -> service.queryCustomers(query, order, descending));
+        });
+        searchField.textProperty().addListener((observable, oldValue, newValue) -> debounce.playFromStart());
+
+        // New customers may sort anywhere, so the search runs again, once per batch
+        followChanges(customerBox, events -> {
+            if (events.stream().anyMatch(event -> event.getType() == ModelEvent.Type.CUSTOMER_ADDED)) {
+                customers.refresh();
             }
         });
 
@@ -641,42 +818,126 @@ public class Main extends Application {
         contentArea.getChildren().add(customerBox);
     }
 
-    private void validateCustomerInput(String name, String age, String address, String phone, String email) {
-        if (name.isEmpty() || age.isEmpty() || address.isEmpty() || phone.isEmpty() || email.isEmpty()) {
-            throw new IllegalArgumentException("All fields are required!");
-        }
+    private void viewReports() {
+        viewReports(null, null);
+    }
 
-        try {
-            int ageNum = Integer.parseInt(age);
-            if (ageNum < 18 || ageNum > 120) {
-                throw new IllegalArgumentException("Age must be between 18 and 120!");
-            }
-        } catch (NumberFormatException e) {
-            throw new IllegalArgumentException("Age must be a valid number!");
-        }
+    // A null date leaves that end of the range open
+    private void viewReports(LocalDate fromDate, LocalDate toDate) {
+        contentArea.getChildren().clear();
 
-        if (!email.matches("^[A-Za-z0-9+_.-]+@(.+)$")) {
-            throw new IllegalArgumentException("Invalid email format!");
-        }
+        VBox reportBox = new VBox(15);
+        reportBox.setPadding(new Insets(20));
 
-        if (!phone.matches("^[0-9()-]{10,}$")) {
-            throw new IllegalArgumentException("Invalid phone number format!");
-        }
+        Label headerLabel = new Label("Sales Reports");
+        headerLabel.setFont(Font.font("Arial", FontWeight.BOLD, 18));
+
+        // The running totals are available at once, the detailed report follows
+        SalesSummaries summaries = service.getSalesSummaries();
+        SalesReport.Totals today = summaries.getDay(LocalDate.now());
+        SalesReport.Totals allTime = summaries.getTotal();
+        Label dashboardLabel = new Label(String.format("Today: %d sales, $%.2f    All time: %d sales, $%.2f",
+                today.getSales(), today.getRevenue(), allTime.getSales(), allTime.getRevenue()));
+        dashboardLabel.setFont(Font.font("Arial", FontWeight.BOLD, 14));
+
+        // Only the monthly sales segments overlapping the range are read
+        DatePicker fromPicker = new DatePicker(fromDate);
+        fromPicker.setPromptText("From");
+        DatePicker toPicker = new DatePicker(toDate);
+        toPicker.setPromptText("To");
+        Button applyBtn = new Button("Apply");
+        applyBtn.setOnAction(e -> viewReports(fromPicker.getValue(), toPicker.getValue()));
+        HBox rangeBox = new HBox(10, new Label("Sales from"), fromPicker, new Label("to"), toPicker, applyBtn);
+        rangeBox.setAlignment(Pos.CENTER_LEFT);
+
+        long from = fromDate == null ? Long.MIN_VALUE
+                : fromDate.atStartOfDay(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        long to = toDate == null ? Long.MAX_VALUE
+                : toDate.plusDays(1).atStartOfDay(ZoneId.systemDefault()).toInstant().toEpochMilli() - 1;
+
+        ProgressIndicator progress = new ProgressIndicator();
+        progress.setMaxSize(40, 40);
+
+        reportBox.getChildren().addAll(headerLabel, dashboardLabel, rangeBox, progress);
+        contentArea.getChildren().add(reportBox);
+
+        // Aggregating the sales history can take a while, keep the UI responsive
+        CompletableFuture.supplyAsync(() -> service.salesReport(from, to))
+                .whenComplete((report, error) -> Platform.runLater(() -> {
+                    // The user may have moved on to another view in the meantime
+                    if (!contentArea.getChildren().contains(reportBox)) {
+                        return;
+                    }
+                    reportBox.getChildren().remove(progress);
+                    if (error != null) {
+                        showAlert("Error", "Could not build the report: " + error.getMessage(), Alert.AlertType.ERROR);
+                        return;
+                    }
+                    showReport(reportBox, report, fromDate, toDate, () -> viewReports(fromDate, toDate));
+                }));
     }
 
-    private void validateCarInput(String brand, String model, String price) {
-        if (brand.isEmpty() || model.isEmpty() || price.isEmpty()) {
-            throw new IllegalArgumentException("All fields are required!");
-        }
+    // The report covers the range already; the daily totals are cut to it here
+    private void showReport(VBox reportBox, SalesReport report, LocalDate fromDate, LocalDate toDate, Runnable refresh) {
+        Label summaryLabel = new Label(report.toString());
+        summaryLabel.setFont(Font.font("Arial", 14));
+
+        TableView<Map.Entry<Integer, Long>> tierTable = new TableView<>();
+        TableColumn<Map.Entry<Integer, Long>, String> tierCol = new TableColumn<>("Discount Tier");
+        tierCol.setCellValueFactory(cellData -> new SimpleStringProperty(cellData.getValue().getKey() + "%"));
+        TableColumn<Map.Entry<Integer, Long>, String> tierSalesCol = new TableColumn<>("Sales");
+        tierSalesCol.setCellValueFactory(
+                cellData -> new SimpleStringProperty(String.valueOf(cellData.getValue().getValue())));
+        tierTable.getColumns().add(tierCol);
+        tierTable.getColumns().add(tierSalesCol);
+        tierTable.setItems(FXCollections.observableArrayList(report.getDiscountTiers().entrySet()));
+
+        TabPane tabs = new TabPane(
+                new Tab("By Brand", createTotalsTable("Brand", report.getByBrand())),
+                new Tab("Top Models", createTotalsTable("Model", report.getTopModels(REPORT_TOP_N))),
+                new Tab("Top Customers", createTotalsTable("Customer", report.getTopCustomers(REPORT_TOP_N, service::getCustomerName))),
+                new Tab("Discount Tiers", tierTable),
+                new Tab("By Day", createTotalsTable("Day", service.getSalesSummaries().getDays(fromDate, toDate))));
+        tabs.setTabClosingPolicy(TabPane.TabClosingPolicy.UNAVAILABLE);
+
+        Button refreshBtn = new Button("Refresh");
+        refreshBtn.setStyle("-fx-background-color: #3498db; -fx-text-fill: white;");
+        refreshBtn.setOnAction(e -> refresh.run());
+
+        VBox.setVgrow(tabs, Priority.ALWAYS);
+        reportBox.getChildren().addAll(summaryLabel, tabs, refreshBtn);
+        VBox.setVgrow(reportBox, Priority.ALWAYS);
+    }
 
-        try {
-            double priceNum = Double.parseDouble(price);
-            if (priceNum <= 0) {
-                throw new IllegalArgumentException("Price must be greater than zero!");
-            }
-        } catch (NumberFormatException e) {
-            throw new IllegalArgumentException("Price must be a valid number!");
-        }
+    private TableView<SalesReport.Totals> createTotalsTable(String labelTitle, List<SalesReport.Totals> rows) {
+        TableView<SalesReport.Totals> tableView = new TableView<>();
+
+        TableColumn<SalesReport.Totals, String> labelCol = new TableColumn<>(labelTitle);
+        labelCol.setCellValueFactory(cellData -> new SimpleStringProperty(cellData.getValue().getLabel()));
+
+        TableColumn<SalesReport.Totals, String> salesCol = new TableColumn<>("Sales");
+        salesCol.setCellValueFactory(
+                cellData -> new SimpleStringProperty(String.valueOf(cellData.getValue().getSales())));
+
+        TableColumn<SalesReport.Totals, String> revenueCol = new TableColumn<>("Revenue");
+        revenueCol.setCellValueFactory(
+                cellData -> new SimpleStringProperty(String.format("$%.2f", cellData.getValue().getRevenue())));
+
+        TableColumn<SalesReport.Totals, String> taxCol = new TableColumn<>("Tax");
+        taxCol.setCellValueFactory(
+                cellData -> new SimpleStringProperty(String.format("$%.2f", cellData.getValue().getTax())));
+
+        TableColumn<SalesReport.Totals, String> discountCol = new TableColumn<>("Discount");
+        discountCol.setCellValueFactory(
+                cellData -> new SimpleStringProperty(String.format("$%.2f", cellData.getValue().getDiscount())));
+
+        tableView.getColumns().add(labelCol);
+        tableView.getColumns().add(salesCol);
+        tableView.getColumns().add(revenueCol);
+        tableView.getColumns().add(taxCol);
+        tableView.getColumns().add(discountCol);
+        tableView.setItems(FXCollections.observableArrayList(rows));
+        return tableView;
     }
 
     private void clearFields(TextField... fields) {
@@ -0,0 +1,66 @@
+package cardealership;
+
+/**
+ * One change to the home store's stock or the customers, as published on
+ * the {@link EventBus} of {@link DealershipService}. Views apply these to
+ * what they show instead of reading the whole model again.
+ */
+public class ModelEvent {
+    public enum Type {
+        /** A car came into stock: added, imported or moved here from another store. */
+        CAR_ADDED,
+        /** A car was sold to {@link #getCustomer()}. */
+        CAR_SOLD,
+        /** A car was moved to another store. */
+        CAR_REMOVED,
+        CUSTOMER_ADDED,
+        /** A new store replaced the home store, and with it the whole stock. */
+        STORE_CREATED
+    }
+
+    private final Type type;
+    private final Car car;
+    private final Customer customer;
+
+    private ModelEvent(Type type, Car car, Customer customer) {
+        this.type = type;
+        this.car = car;
+        this.customer = customer;
+    }
+
+    static ModelEvent carAdded(Car car) {
+        return new ModelEvent(Type.CAR_ADDED, car, null);
+    }
+
+    static ModelEvent carSold(Car car, Customer customer) {
+        return new ModelEvent(Type.CAR_SOLD, car, customer);
+    }
+
+    static ModelEvent carRemoved(Car car) {
+        return new ModelEvent(Type.CAR_REMOVED, car, null);
+    }
+
+    static ModelEvent customerAdded(Customer customer) {
+        return new ModelEvent(Type.CUSTOMER_ADDED, null, customer);
+    }
+
+    static ModelEvent storeCreated() {
+        return new ModelEvent(Type.STORE_CREATED, null, null);
+    }
+
+    public Type getType() { return type; }
+    /** The car, {@code null} for customer and store events. */
+    public Car getCar() { return car; }
+    /** The customer added or buying, {@code null} otherwise. */
+    public Customer getCustomer() { return customer; }
+
+    /** Whether the event takes a car out of stock. */
+    public boolean isCarGone() {
+        return type == Type.CAR_SOLD || type == Type.CAR_REMOVED;
+    }
+
+    @Override
+    public String toString() {
+        return type + (car != null ? " " + car : "") + (customer != null ? " " + customer.getName() : "");
+    }
+}
@@ -0,0 +1,38 @@
+package cardealership;
+
+import java.util.List;
+
+/**
+ * One version of the home store's cars and the customers, as published by
+ * {@link DealershipService} after a change. It never changes, so a report
+ * or an export can read it for as long as it likes without taking a lock
+ * or seeing half a checkout; {@link DealershipService#snapshot} hands out
+ * the latest one.
+ *
+ * Cars and customers are shared with the live model rather than copied;
+ * neither is changed once it is in stock or registered.
+ */
+public class ModelSnapshot {
+    private final long version;
+    private final EntityTable.Snapshot<Car> cars;
+    private final EntityTable.Snapshot<Customer> customers;
+
+    ModelSnapshot(long version, EntityTable.Snapshot<Car> cars, EntityTable.Snapshot<Customer> customers) {
+        this.version = version;
+        this.cars = cars;
+        this.customers = customers;
+    }
+
+    /** Grows by one with every change published; a later snapshot has a higher version. */
+    public long getVersion() { return version; }
+
+    /** The cars in stock, in the order they were added. */
+    public List<Car> getCars() { return cars.values(); }
+    public Car getCar(int id) { return cars.get(id); }
+    public int getCarCount() { return cars.size(); }
+
+    /** The customers, in the order they were added. */
+    public List<Customer> getCustomers() { return customers.values(); }
+    public Customer getCustomer(int id) { return customers.get(id); }
+    public int getCustomerCount() { return customers.size(); }
+}
@@ -0,0 +1,33 @@
+package cardealership;
+
+import java.util.List;
+
+/** One page of a larger result list. */
+public class Page<T> {
+    private final List<T> items;
+    private final int offset;
+    private final int limit;
+    private final int total;
+
+    public Page(List<T> items, int offset, int limit, int total) {
+        this.items = items;
+        this.offset = offset;
+        this.limit = limit;
+        this.total = total;
+    }
+
+    /** Cuts the page starting at {@code offset} out of {@code all}. */
+    public static <T> Page<T> of(List<T> all, int offset, int limit) {
+        if (offset < 0 || limit < 0) {
+            throw new IllegalArgumentException("Offset and limit must not be negative!");
+        }
+        int from = Math.min(offset, all.size());
+        int to = (int) Math.min((long) from + limit, all.size());
+        return new Page<>(List.copyOf(all.subList(from, to)), offset, limit, all.size());
+    }
+
+    public List<T> getItems() { return items; }
+    public int getOffset() { return offset; }
+    public int getLimit() { return limit; }
+    public int getTotal() { return total; }
+}
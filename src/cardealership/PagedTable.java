@@ -0,0 +1,187 @@
+package cardealership;
+
+import javafx.application.Platform;
+import javafx.beans.property.ReadOnlyStringWrapper;
+import javafx.beans.value.ObservableValue;
+import javafx.collections.ObservableListBase;
+import javafx.scene.control.TableColumn;
+import javafx.scene.control.TableView;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
+
+/**
+ * A {@link TableView} over a {@link QueryResult}, for tables too large to
+ * copy into an observable list.
+ *
+ * The table's items only know the result's size; rows are looked up a page
+ * at a time as the table scrolls to them, and the last pages read are kept.
+ * The text of each cell is formatted once per record and kept for the most
+ * recently shown records, so scrolling back neither looks up nor formats
+ * anything again.
+ *
+ * Clicking a column header runs the query again in the background, sorted
+ * by that column's order, instead of sorting the rows in the table. A new
+ * filter is a new query, see {@link #setQuery}. Add the columns before the
+ * first {@link #refresh}, and refresh after records are added; records
+ * that went away can be taken out row by row with {@link #removeRows}.
+ */
+public final class PagedTable<T, O> {
+    private static final int PAGE_SIZE = 100;
+    private static final int CACHED_PAGES = 32;
+    private static final int CACHED_RECORDS = 4096;
+
+    /** Runs the query in {@code order}, which is {@code null} while the table is unsorted. */
+    public interface Query<T, O> {
+        QueryResult<T> run(O order, boolean descending);
+    }
+
+    // The items of the table: a window onto the result, looked up page by page
+    private static class Rows<T> extends ObservableListBase<T> {
+        private QueryResult<T> result;
+        private final Map<Integer, List<T>> pages = lru(CACHED_PAGES);
+
+        Rows(QueryResult<T> result) {
+            this.result = result;
+        }
+
+        @Override
+        public T get(int index) {
+            Objects.checkIndex(index, result.size());
+            List<T> page = pages.computeIfAbsent(index / PAGE_SIZE,
+                    number -> result.window(number * PAGE_SIZE, PAGE_SIZE));
+            return page.get(index % PAGE_SIZE);
+        }
+
+        @Override
+        public int size() {
+            return result.size();
+        }
+
+        // One change for all the rows removed, each reported with its record
+        void remove(Map<Integer, T> removed) {
+            boolean changed = false;
+            beginChange();
+            for (int index = 0, shift = 0; index < result.size(); index++) {
+                T record = removed.get(result.id(index));
+                if (record != null) {
+                    nextRemove(index - shift++, record);
+                    changed = true;
+                }
+            }
+            if (changed) {
+                result = result.without(removed::containsKey);
+                pages.clear();
+            }
+            endChange();
+        }
+    }
+
+    private final TableView<T> table = new TableView<>();
+    private final Executor executor;
+    private final Map<TableColumn<T, ?>, O> orders = new HashMap<>();
+    private final List<Function<T, String>> formats = new ArrayList<>();
+    private final Map<T, ReadOnlyStringWrapper[]> cells = lru(CACHED_RECORDS);
+    private Query<T, O> query;
+    private int generation;
+    private O shownOrder;
+    private boolean shownDescending;
+
+    /** Queries run on {@code executor}; their results are shown on the JavaFX thread. */
+    public PagedTable(Query<T, O> query, Executor executor) {
+        this.query = query;
+        this.executor = executor;
+        table.setSortPolicy(view -> {
+            if (!Objects.equals(sortOrder(), shownOrder) || descending() != shownDescending) {
+                refresh();
+            }
+            return true;
+        });
+    }
+
+    public TableView<T> getTable() {
+        return table;
+    }
+
+    /** Adds a column showing {@code format} of each record, sortable by {@code order} unless it is {@code null}. */
+    public TableColumn<T, String> addColumn(String title, O order, Function<T, String> format) {
+        int index = formats.size();
+        formats.add(format);
+        TableColumn<T, String> column = new TableColumn<>(title);
+        column.setCellValueFactory(cell -> cell(cell.getValue(), index));
+        column.setSortable(order != null);
+        orders.put(column, order);
+        table.getColumns().add(column);
+        return column;
+    }
+
+    /** Replaces the query, for a new filter, and runs it in the current order. */
+    public void setQuery(Query<T, O> query) {
+        this.query = query;
+        refresh();
+    }
+
+    /** Runs the query again; results of earlier runs still in progress are dropped. */
+    public void refresh() {
+        int current = ++generation;
+        Query<T, O> running = query;
+        O order = sortOrder();
+        boolean descending = descending();
+        CompletableFuture.supplyAsync(() -> running.run(order, descending), executor)
+                .thenAccept(result -> Platform.runLater(() -> {
+                    if (current == generation) {
+                        shownOrder = order;
+                        shownDescending = descending;
+                        table.setItems(new Rows<>(result));
+                    }
+                }));
+    }
+
+    /**
+     * Takes the rows of {@code removed}, by id, out of the table as it is,
+     * without running the query again. Records not in the table are ignored.
+     */
+    public void removeRows(Map<Integer, T> removed) {
+        if (!removed.isEmpty() && table.getItems() instanceof Rows<T> rows) {
+            rows.remove(removed);
+            removed.values().forEach(cells::remove);
+        }
+    }
+
+    private ObservableValue<String> cell(T record, int column) {
+        if (record == null) {
+            return new ReadOnlyStringWrapper("");  // removed since the query ran
+        }
+        ReadOnlyStringWrapper[] row = cells.computeIfAbsent(record, key -> new ReadOnlyStringWrapper[formats.size()]);
+        if (row[column] == null) {
+            row[column] = new ReadOnlyStringWrapper(formats.get(column).apply(record));
+        }
+        return row[column].getReadOnlyProperty();
+    }
+
+    private O sortOrder() {
+        return table.getSortOrder().isEmpty() ? null : orders.get(table.getSortOrder().get(0));
+    }
+
+    private boolean descending() {
+        return !table.getSortOrder().isEmpty()
+                && table.getSortOrder().get(0).getSortType() == TableColumn.SortType.DESCENDING;
+    }
+
+    // Access ordered, dropping the least recently used entry beyond the limit
+    private static <K, V> Map<K, V> lru(int limit) {
+        return new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+                return size() > limit;
+            }
+        };
+    }
+}
@@ -0,0 +1,240 @@
+package cardealership;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Tax and discount rules for a purchase, read from {@code pricing.txt} in
+ * the data directory. One rule per line, as comma separated values:
+ * <pre>
+ * tax,,0.07              sales tax; the store location, or empty for every other store
+ * volume,25000,0.05      discount once the subtotal (with tax) reaches the amount
+ * promotion,Toyota,0.03  discount on the taxed price of every car of the brand
+ * customer,100000,0.02   discount for customers who have already spent the amount
+ * </pre>
+ * Lines starting with {@code #} are comments. Without the file the rules
+ * are the ones the dealership always had: 7% tax, and 5, 10 and 20% off
+ * from $25,000, $50,000 and $100,000.
+ *
+ * Rules are immutable and compiled when built: each tier list into sorted
+ * threshold and rate arrays searched by binary search, stores and brands
+ * into maps keyed in lower case. Discounts add up, and never exceed the
+ * subtotal.
+ */
+public class PricingRules {
+    static final String FILE_NAME = "pricing.txt";
+
+    public static final PricingRules DEFAULT = new PricingRules(0.07, Map.of(), Map.of(),
+        new TreeMap<>(Map.of(25000.0, 0.05, 50000.0, 0.10, 100000.0, 0.20)), new TreeMap<>());
+
+    private final double defaultTax;
+    private final Map<String, Double> taxByStore;
+    private final Map<String, Double> promotionByBrand;
+    private final double[] volumeThresholds;
+    private final double[] volumeRates;
+    private final double[] customerThresholds;
+    private final double[] customerRates;
+
+    private PricingRules(double defaultTax, Map<String, Double> taxByStore, Map<String, Double> promotionByBrand,
+                         TreeMap<Double, Double> volume, TreeMap<Double, Double> customer) {
+        this.defaultTax = defaultTax;
+        this.taxByStore = Map.copyOf(taxByStore);
+        this.promotionByBrand = Map.copyOf(promotionByBrand);
+        this.volumeThresholds = thresholds(volume);
+        this.volumeRates = rates(volume);
+        this.customerThresholds = thresholds(customer);
+        this.customerRates = rates(customer);
+    }
+
+    /** Reads the rules in {@code file}, or returns {@link #DEFAULT} if there is none. */
+    public static PricingRules read(Path file) throws IOException {
+        if (!Files.exists(file)) {
+            return DEFAULT;
+        }
+        double defaultTax = DEFAULT.defaultTax;
+        Map<String, Double> taxByStore = new HashMap<>();
+        Map<String, Double> promotionByBrand = new HashMap<>();
+        TreeMap<Double, Double> volume = new TreeMap<>();
+        TreeMap<Double, Double> customer = new TreeMap<>();
+        boolean volumeGiven = false;
+        try (CsvReader csv = new CsvReader(Files.newInputStream(file))) {
+            int line = 0;
+            while (csv.next()) {
+                line++;
+                String kind = csv.getString(0).trim().toLowerCase(Locale.ROOT);
+                if (kind.startsWith("#")) {
+                    continue;
+                }
+                if (csv.fieldCount() != 3) {
+                    throw new IOException(FILE_NAME + " line " + line + ": expected kind,key,rate");
+                }
+                String key = csv.getString(1).trim();
+                double rate = parse(csv.getString(2), line);
+                if (rate < 0 || rate >= 1) {
+                    throw new IOException(FILE_NAME + " line " + line + ": rate must be at least 0 and below 1");
+                }
+                switch (kind) {
+                    case "tax" -> {
+                        if (key.isEmpty()) {
+                            defaultTax = rate;
+                        } else {
+                            taxByStore.put(key.toLowerCase(Locale.ROOT), rate);
+                        }
+                    }
+                    case "promotion" -> promotionByBrand.put(key.toLowerCase(Locale.ROOT), rate);
+                    case "volume" -> {
+                        volume.put(parse(key, line), rate);
+                        volumeGiven = true;
+                    }
+                    case "customer" -> customer.put(parse(key, line), rate);
+                    default -> throw new IOException(FILE_NAME + " line " + line + ": unknown rule '" + kind + "'");
+                }
+            }
+        }
+        if (!volumeGiven) {
+            volume.putAll(tiers(DEFAULT.volumeThresholds, DEFAULT.volumeRates));
+        }
+        return new PricingRules(defaultTax, taxByStore, promotionByBrand, volume, customer);
+    }
+
+    /** A copy of these rules with a promotion on {@code brand}; 0 removes it. For trying out promotions. */
+    public PricingRules withPromotion(String brand, double rate) {
+        Map<String, Double> promotions = new HashMap<>(promotionByBrand);
+        if (rate == 0) {
+            promotions.remove(brand.toLowerCase(Locale.ROOT));
+        } else {
+            promotions.put(brand.toLowerCase(Locale.ROOT), rate);
+        }
+        return new PricingRules(defaultTax, taxByStore, promotions,
+            tiers(volumeThresholds, volumeRates), tiers(customerThresholds, customerRates));
+    }
+
+    // Lookups
+
+    /** Tax rate at the store in {@code location}; {@code null} means any store without a rate of its own. */
+    public double taxRate(String location) {
+        return location == null ? defaultTax : taxByStore.getOrDefault(location.toLowerCase(Locale.ROOT), defaultTax);
+    }
+
+    public double promotion(String brand) {
+        return brand == null ? 0 : promotionByBrand.getOrDefault(brand.toLowerCase(Locale.ROOT), 0.0);
+    }
+
+    public double volumeDiscount(double subtotal) {
+        return rate(volumeThresholds, volumeRates, subtotal);
+    }
+
+    public double customerDiscount(double spent) {
+        return rate(customerThresholds, customerRates, spent);
+    }
+
+    // Quotes
+
+    /** Quotes {@code cars} at the store in {@code location} for a customer who has spent {@code spent} before. */
+    public Quote quote(List<Car> cars, String location, double spent) {
+        double basePrice = 0;
+        double promotion = 0;
+        for (Car car : cars) {
+            basePrice += car.getPrice();
+            promotion += car.getPrice() * promotion(car.getBrand());
+        }
+        return quote(basePrice, promotion, location, spent);
+    }
+
+    /**
+     * Quotes cars costing {@code basePrice} in total, of which
+     * {@code promotion} is taken off by brand promotions before tax.
+     */
+    public Quote quote(double basePrice, double promotion, String location, double spent) {
+        double taxRate = taxRate(location);
+        double tax = basePrice * taxRate;
+        double subtotal = basePrice + tax;
+        double discount = discount(subtotal, promotion * (1 + taxRate), customerDiscount(spent));
+        return new Quote(basePrice, taxRate, tax, subtotal, discount, subtotal - discount);
+    }
+
+    /**
+     * Prices many purchases at once: fills {@code finalTotals} with the final
+     * total of a purchase of each of the {@code baseTotals}, without brand
+     * promotions. Allocates nothing.
+     */
+    public void quoteTotals(double[] baseTotals, String location, double spent, double[] finalTotals) {
+        double taxRate = taxRate(location);
+        double customerRate = customerDiscount(spent);
+        for (int i = 0; i < baseTotals.length; i++) {
+            double subtotal = baseTotals[i] + baseTotals[i] * taxRate;
+            finalTotals[i] = subtotal - discount(subtotal, 0, customerRate);
+        }
+    }
+
+    /**
+     * Prices every car of the inventory as a purchase of its own, promotions
+     * included, at the store in {@code location}. {@code finalPrices} is
+     * filled in the row order of {@code columns} and must have room for all
+     * of them; only a rate per brand is allocated.
+     *
+     * @return the sum of the final prices
+     */
+    public double priceInventory(InventoryColumns columns, String location, double[] finalPrices) {
+        double taxRate = taxRate(location);
+        double[] promotions = new double[columns.brandCount()];
+        for (int code = 0; code < promotions.length; code++) {
+            promotions[code] = promotion(columns.brandName(code));
+        }
+        long[] prices = columns.priceColumn();
+        int[] brands = columns.brandColumn();
+        double total = 0;
+        for (int row = 0; row < columns.size(); row++) {
+            double basePrice = prices[row] / 100.0;
+            double subtotal = basePrice + basePrice * taxRate;
+            double finalPrice = subtotal - discount(subtotal, subtotal * promotions[brands[row]], 0);
+            finalPrices[row] = finalPrice;
+            total += finalPrice;
+        }
+        return total;
+    }
+
+    private double discount(double subtotal, double promotion, double customerRate) {
+        return Math.min(subtotal, subtotal * (volumeDiscount(subtotal) + customerRate) + promotion);
+    }
+
+    // The rate of the highest threshold at or below value, 0 below the first
+    private static double rate(double[] thresholds, double[] rates, double value) {
+        int index = Arrays.binarySearch(thresholds, value);
+        if (index < 0) {
+            index = -index - 2;
+        }
+        return index < 0 ? 0 : rates[index];
+    }
+
+    private static double[] thresholds(TreeMap<Double, Double> tiers) {
+        return tiers.keySet().stream().mapToDouble(Double::doubleValue).toArray();
+    }
+
+    private static double[] rates(TreeMap<Double, Double> tiers) {
+        return tiers.values().stream().mapToDouble(Double::doubleValue).toArray();
+    }
+
+    private static TreeMap<Double, Double> tiers(double[] thresholds, double[] rates) {
+        TreeMap<Double, Double> tiers = new TreeMap<>();
+        for (int i = 0; i < thresholds.length; i++) {
+            tiers.put(thresholds[i], rates[i]);
+        }
+        return tiers;
+    }
+
+    private static double parse(String value, int line) throws IOException {
+        try {
+            return Double.parseDouble(value.trim());
+        } catch (NumberFormatException e) {
+            throw new IOException(FILE_NAME + " line " + line + ": '" + value + "' is not a number");
+        }
+    }
+}
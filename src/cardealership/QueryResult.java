@@ -0,0 +1,84 @@
+package cardealership;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.IntFunction;
+import java.util.function.IntPredicate;
+import java.util.function.ToIntFunction;
+
+/**
+ * The rows of a filtered, sorted query, held as the ids of the matching
+ * records in result order. Records are only looked up for the window being
+ * read, so a result of a million rows costs four bytes per row until it is
+ * shown.
+ *
+ * A record removed after the query ran (a sold car) reads as {@code null}
+ * and is left out of pages.
+ */
+public class QueryResult<T> {
+    private final int[] ids;
+    private final IntFunction<T> lookup;
+
+    public QueryResult(int[] ids, IntFunction<T> lookup) {
+        this.ids = ids;
+        this.lookup = lookup;
+    }
+
+    /** Collects the ids of {@code records}, in order or reversed; rows are read back through {@code lookup}. */
+    static <T> QueryResult<T> of(List<T> records, ToIntFunction<T> id,
+                                 boolean reversed, IntFunction<T> lookup) {
+        int[] ids = new int[records.size()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[reversed ? ids.length - 1 - i : i] = id.applyAsInt(records.get(i));
+        }
+        return new QueryResult<>(ids, lookup);
+    }
+
+    public int size() {
+        return ids.length;
+    }
+
+    /** The id of the record at {@code index}. */
+    public int id(int index) {
+        return ids[index];
+    }
+
+    /** This result without the rows whose id is {@code removed}; the others keep their order. */
+    public QueryResult<T> without(IntPredicate removed) {
+        int[] kept = new int[ids.length];
+        int count = 0;
+        for (int id : ids) {
+            if (!removed.test(id)) {
+                kept[count++] = id;
+            }
+        }
+        return count == ids.length ? this : new QueryResult<>(Arrays.copyOf(kept, count), lookup);
+    }
+
+    /** The record at {@code index}, or {@code null} if it no longer exists. */
+    public T get(int index) {
+        return lookup.apply(ids[index]);
+    }
+
+    /** The records from {@code offset} on, at most {@code limit}, keeping positions ({@code null} for removed ones). */
+    public List<T> window(int offset, int limit) {
+        int from = Math.min(offset, ids.length);
+        int to = (int) Math.min((long) from + limit, ids.length);
+        List<T> records = new ArrayList<>(to - from);
+        for (int i = from; i < to; i++) {
+            records.add(lookup.apply(ids[i]));
+        }
+        return records;
+    }
+
+    /** Cuts a page out of the result, looking up only its records. */
+    public Page<T> page(int offset, int limit) {
+        if (offset < 0 || limit < 0) {
+            throw new IllegalArgumentException("Offset and limit must not be negative!");
+        }
+        List<T> items = new ArrayList<>(window(offset, limit));
+        items.removeIf(item -> item == null);
+        return new Page<>(List.copyOf(items), offset, limit, ids.length);
+    }
+}
@@ -0,0 +1,83 @@
+package cardealership;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Price breakdown of a set of cars: base total, sales tax, discount and the
+ * final amount to pay.
+ */
+public class Quote {
+    private final double basePrice;
+    private final double taxRate;
+    private final double tax;
+    private final double subtotal;
+    private final double discount;
+    private final double finalTotal;
+
+    public Quote(double basePrice, double taxRate, double tax, double subtotal, double discount, double finalTotal) {
+        this.basePrice = basePrice;
+        this.taxRate = taxRate;
+        this.tax = tax;
+        this.subtotal = subtotal;
+        this.discount = discount;
+        this.finalTotal = finalTotal;
+    }
+
+    /** Adds up the sales of one checkout into the quote they were sold at. */
+    public static Quote ofSales(List<Sale> sales) {
+        double basePrice = 0;
+        double tax = 0;
+        double discount = 0;
+        double finalTotal = 0;
+        for (Sale sale : sales) {
+            basePrice += sale.getBasePrice();
+            tax += sale.getTax();
+            discount += sale.getDiscount();
+            finalTotal += sale.getFinalPrice();
+        }
+        return new Quote(basePrice, basePrice == 0 ? 0 : tax / basePrice, tax, basePrice + tax, discount, finalTotal);
+    }
+
+    public double getBasePrice() { return basePrice; }
+    public double getTaxRate() { return taxRate; }
+    public double getTax() { return tax; }
+    public double getSubtotal() { return subtotal; }
+    public double getDiscount() { return discount; }
+    public double getFinalTotal() { return finalTotal; }
+
+    /** Splits the quote over the cars in proportion to their price, one sale per car. */
+    public List<Sale> toSales(Customer customer, List<Car> cars) {
+        List<Sale> sales = new ArrayList<>(cars.size());
+        for (Car car : cars) {
+            // Calculate individual car's proportion of total
+            double proportion = car.getPrice() / basePrice;
+            sales.add(new Sale(car, customer,
+                    car.getPrice(),
+                    tax * proportion,
+                    discount * proportion,
+                    finalTotal * proportion));
+        }
+        return sales;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("""
+                Base Total: $%.2f
+                Sales Tax (%s%%): $%.2f
+                Subtotal: $%.2f
+                Discount: $%.2f
+                Final Total: $%.2f
+                """,
+                basePrice, percent(taxRate), tax, subtotal, discount, finalTotal);
+    }
+
+    // 0.07 as 7, 0.0825 as 8.25
+    private static String percent(double rate) {
+        return BigDecimal.valueOf(rate).movePointRight(2).setScale(2, RoundingMode.HALF_UP)
+                .stripTrailingZeros().toPlainString();
+    }
+}
@@ -0,0 +1,178 @@
+package cardealership;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.LongSupplier;
+
+/**
+ * Tracks which cars are sitting in a shopping cart so that two sales
+ * sessions can never sell the same car.
+ *
+ * Each car has its own atomic state that moves AVAILABLE -> RESERVED -> SOLD
+ * by compare-and-set, so sessions working on different cars never wait for
+ * each other. A reservation that is not committed within the timeout expires
+ * and the car becomes available again. The state of a car is dropped with
+ * {@link #forget} once the car has left the store.
+ */
+public class ReservationManager {
+    private static final long DEFAULT_TIMEOUT = TimeUnit.MINUTES.toMillis(15);
+
+    private static final class Hold {
+        static final Hold AVAILABLE = new Hold(CarStatus.AVAILABLE, null, 0);
+        // Held by no session while the car leaves the store other than by a sale
+        static final Hold WITHDRAWN = new Hold(CarStatus.RESERVED, "", Long.MAX_VALUE);
+
+        final CarStatus status;
+        final String session;
+        final long expiresAt;
+
+        Hold(CarStatus status, String session, long expiresAt) {
+            this.status = status;
+            this.session = session;
+            this.expiresAt = expiresAt;
+        }
+
+        boolean isHeldBy(String other, long now) {
+            return status == CarStatus.RESERVED && session.equals(other) && expiresAt > now;
+        }
+
+        boolean isFree(long now) {
+            return status == CarStatus.AVAILABLE || (status == CarStatus.RESERVED && expiresAt <= now);
+        }
+    }
+
+    private final ConcurrentMap<Integer, AtomicReference<Hold>> states = new ConcurrentHashMap<>();
+    private final long timeoutMillis;
+    private final LongSupplier clock;
+
+    public ReservationManager() {
+        this(DEFAULT_TIMEOUT, System::currentTimeMillis);
+    }
+
+    public ReservationManager(long timeoutMillis, LongSupplier clock) {
+        this.timeoutMillis = timeoutMillis;
+        this.clock = clock;
+    }
+
+    private AtomicReference<Hold> state(Car car) {
+        return states.computeIfAbsent(car.getId(), k -> new AtomicReference<>(Hold.AVAILABLE));
+    }
+
+    /**
+     * Claims the car for {@code session}, or extends the session's existing
+     * reservation.
+     *
+     * @return {@code false} if another session holds the car or it was sold
+     */
+    public boolean reserve(Car car, String session) {
+        AtomicReference<Hold> state = state(car);
+        while (true) {
+            Hold current = state.get();
+            long now = clock.getAsLong();
+            if (!current.isFree(now) && !current.isHeldBy(session, now)) {
+                return false;
+            }
+            if (state.compareAndSet(current, new Hold(CarStatus.RESERVED, session, now + timeoutMillis))) {
+                return true;
+            }
+        }
+    }
+
+    /** Gives the car back if {@code session} holds it. */
+    public boolean release(Car car, String session) {
+        AtomicReference<Hold> state = states.get(car.getId());
+        if (state == null) {
+            return false;
+        }
+        while (true) {
+            Hold current = state.get();
+            if (current.status != CarStatus.RESERVED || !current.session.equals(session)) {
+                return false;
+            }
+            if (state.compareAndSet(current, Hold.AVAILABLE)) {
+                return true;
+            }
+        }
+    }
+
+    public void releaseAll(List<Car> cars, String session) {
+        for (Car car : cars) {
+            release(car, session);
+        }
+    }
+
+    /**
+     * Marks all {@code cars} as sold. Every car must still be reserved by
+     * {@code session}; if one is not, the cars already marked are put back
+     * and nothing is sold.
+     *
+     * @return {@code true} if all cars were committed
+     */
+    public boolean commit(List<Car> cars, String session) {
+        Hold[] previous = new Hold[cars.size()];
+        long now = clock.getAsLong();
+        for (int i = 0; i < cars.size(); i++) {
+            AtomicReference<Hold> state = state(cars.get(i));
+            Hold current = state.get();
+            if (!current.isHeldBy(session, now)
+                    || !state.compareAndSet(current, new Hold(CarStatus.SOLD, session, Long.MAX_VALUE))) {
+                // Only this session can move its SOLD cars, so the rollback cannot race
+                for (int j = 0; j < i; j++) {
+                    state(cars.get(j)).set(previous[j]);
+                }
+                return false;
+            }
+            previous[i] = current;
+        }
+        return true;
+    }
+
+    /**
+     * Takes a free car out of reach of every session before it leaves the
+     * store, e.g. for a transfer, by the same compare-and-set as
+     * {@link #reserve}. The state stays until {@link #forget}; forgetting it
+     * makes the car available again if it does not leave after all.
+     *
+     * @return {@code false} if a session holds the car or it was sold
+     */
+    public boolean withdraw(Car car) {
+        AtomicReference<Hold> state = state(car);
+        while (true) {
+            Hold current = state.get();
+            if (!current.isFree(clock.getAsLong())) {
+                return false;
+            }
+            if (state.compareAndSet(current, Hold.WITHDRAWN)) {
+                return true;
+            }
+        }
+    }
+
+    /** Drops the state of a car that has left the store, sold or moved, so it is not kept forever. */
+    public void forget(Car car) {
+        states.remove(car.getId());
+    }
+
+    public CarStatus getStatus(Car car) {
+        AtomicReference<Hold> state = states.get(car.getId());
+        if (state == null) {
+            return CarStatus.AVAILABLE;
+        }
+        Hold current = state.get();
+        return current.isFree(clock.getAsLong()) ? CarStatus.AVAILABLE : current.status;
+    }
+
+    /** Whether {@code session} may put the car in its cart. */
+    public boolean isAvailableTo(Car car, String session) {
+        AtomicReference<Hold> state = states.get(car.getId());
+        if (state == null) {
+            return true;
+        }
+        Hold current = state.get();
+        long now = clock.getAsLong();
+        return current.isFree(now) || current.isHeldBy(session, now);
+    }
+}
@@ -0,0 +1,56 @@
+package cardealership;
+
+public class Sale {
+    private int id;
+    private Car car;
+    private Customer customer;
+    private double basePrice;
+    private double tax;
+    private double discount;
+    private double finalPrice;
+    private long timestamp;
+    private String transactionId;
+    private String location;
+
+    public Sale() {}
+
+    public Sale(Car car, Customer customer, double basePrice,
+                double tax, double discount, double finalPrice) {
+        this.car = car;
+        this.customer = customer;
+        this.basePrice = basePrice;
+        this.tax = tax;
+        this.discount = discount;
+        this.finalPrice = finalPrice;
+    }
+
+    // Getters and Setters
+    public int getId() { return id; }
+    public void setId(int id) { this.id = id; }
+    public Car getCar() { return car; }
+    public void setCar(Car car) { this.car = car; }
+    public Customer getCustomer() { return customer; }
+    public void setCustomer(Customer customer) { this.customer = customer; }
+    public double getBasePrice() { return basePrice; }
+    public void setBasePrice(double basePrice) { this.basePrice = basePrice; }
+    public double getTax() { return tax; }
+    public void setTax(double tax) { this.tax = tax; }
+    public double getDiscount() { return discount; }
+    public void setDiscount(double discount) { this.discount = discount; }
+    public double getFinalPrice() { return finalPrice; }
+    public void setFinalPrice(double finalPrice) { this.finalPrice = finalPrice; }
+    /** When the sale was made, in epoch milliseconds; 0 for sales recorded before sales were dated. */
+    public long getTimestamp() { return timestamp; }
+    public void setTimestamp(long timestamp) { this.timestamp = timestamp; }
+    /** Shared by all sales of one checkout. */
+    public String getTransactionId() { return transactionId; }
+    public void setTransactionId(String transactionId) { this.transactionId = transactionId; }
+    /** Location of the store that made the sale; {@code null} for sales recorded before it was kept. */
+    public String getLocation() { return location; }
+    public void setLocation(String location) { this.location = location; }
+
+    @Override
+    public String toString() {
+        return String.format("%s sold to %s - $%.2f", car, customer.getName(), finalPrice);
+    }
+}
@@ -0,0 +1,238 @@
+package cardealership;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Builds a {@link SalesReport} from the {@link SalesLog}.
+ *
+ * Only the segments whose time range overlaps the query are read. Open
+ * segments are cut into chunks that end on a line break and each chunk is
+ * memory-mapped; a compressed segment is one chunk, streamed through GZIP.
+ * A fork-join pool aggregates the chunks in parallel, each with its own
+ * {@link CsvReader}, and merges the per-chunk reports pairwise. Sales lines
+ * never contain line breaks (names and emails cannot), so a chunk boundary
+ * never falls inside a record.
+ */
+public class SalesAnalytics {
+    private static final long MIN_CHUNK_SIZE = 4 * 1024 * 1024;
+    private static final long MAX_CHUNK_SIZE = 256 * 1024 * 1024;
+    private static final int BOUNDARY_SCAN = 4096;
+
+    private SalesAnalytics() {}
+
+    static SalesReport analyze(SalesLog log, long from, long to) throws IOException {
+        return analyze(log, from, to, ForkJoinPool.commonPool());
+    }
+
+    static SalesReport analyze(SalesLog log, long from, long to, ForkJoinPool pool) throws IOException {
+        List<Chunk> chunks = new ArrayList<>();
+        for (SalesLog.Segment segment : log.segments(from, to)) {
+            // Segments entirely inside the range need no per-sale time check
+            boolean filter = segment.minTime < from || segment.maxTime > to;
+            if (segment.compressed) {
+                chunks.add(new Chunk(log, segment, 0, -1, filter));
+            } else {
+                // The length was taken under the log's lock; bytes appended since are not read
+                long[] boundaries = chunkBoundaries(log.path(segment), segment.length, pool.getParallelism());
+                for (int i = 0; i + 1 < boundaries.length; i++) {
+                    chunks.add(new Chunk(log, segment, boundaries[i], boundaries[i + 1], filter));
+                }
+            }
+        }
+        if (chunks.isEmpty()) {
+            return new SalesReport();
+        }
+        try {
+            return pool.invoke(new ChunkTask(chunks, from, to, 0, chunks.size()));
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /** Aggregates sales that are already in memory, as returned by {@link Storage#loadSales()}. */
+    public static SalesReport aggregate(List<Sale> sales) {
+        return sales.parallelStream().collect(SalesReport::new, SalesAnalytics::add, SalesReport::add);
+    }
+
+    private static void add(SalesReport report, Sale sale) {
+        Customer customer = sale.getCustomer();
+        if (customer.getId() > 0) {
+            report.add(sale.getCar().getBrand(), sale.getCar().getModel(), customer.getId(),
+                sale.getBasePrice(), sale.getTax(), sale.getDiscount(), sale.getFinalPrice());
+        } else {
+            report.add(sale.getCar().getBrand(), sale.getCar().getModel(), customer.getName(), customer.getEmail(),
+                sale.getBasePrice(), sale.getTax(), sale.getDiscount(), sale.getFinalPrice());
+        }
+    }
+
+    // Offsets at which the chunks of the first size bytes start, plus size; every inner offset follows a line break
+    private static long[] chunkBoundaries(Path file, long size, int parallelism) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long chunkSize = Math.min(MAX_CHUNK_SIZE, Math.max(MIN_CHUNK_SIZE, size / (parallelism * 4L) + 1));
+            List<Long> boundaries = new ArrayList<>();
+            boundaries.add(0L);
+            ByteBuffer window = ByteBuffer.allocate(BOUNDARY_SCAN);
+            long position = chunkSize;
+            while (position < size) {
+                long lineEnd = nextLineStart(channel, position, size, window);
+                if (lineEnd >= size) {
+                    break;
+                }
+                boundaries.add(lineEnd);
+                position = lineEnd + chunkSize;
+            }
+            boundaries.add(size);
+            return boundaries.stream().mapToLong(Long::longValue).toArray();
+        }
+    }
+
+    private static long nextLineStart(FileChannel channel, long position, long size, ByteBuffer window)
+            throws IOException {
+        while (true) {
+            window.clear();
+            window.limit((int) Math.min(window.capacity(), size - position));
+            int read = window.hasRemaining() ? channel.read(window, position) : -1;
+            if (read <= 0) {
+                return size;
+            }
+            for (int i = 0; i < read; i++) {
+                if (window.get(i) == '\n') {
+                    return position + i + 1;
+                }
+            }
+            position += read;
+        }
+    }
+
+    /** A byte range of an open segment, or a whole compressed segment ({@code end} -1). */
+    private static class Chunk {
+        final SalesLog log;
+        final SalesLog.Segment segment;
+        final long start;
+        final long end;
+        final boolean filter;
+
+        Chunk(SalesLog log, SalesLog.Segment segment, long start, long end, boolean filter) {
+            this.log = log;
+            this.segment = segment;
+            this.start = start;
+            this.end = end;
+            this.filter = filter;
+        }
+
+        InputStream open() throws IOException {
+            if (end < 0) {
+                return log.openSegment(segment);
+            }
+            try (FileChannel channel = FileChannel.open(log.path(segment), StandardOpenOption.READ)) {
+                return new ByteBufferInputStream(channel.map(FileChannel.MapMode.READ_ONLY, start, end - start));
+            }
+        }
+    }
+
+    private static SalesReport aggregate(Chunk chunk, long from, long to) throws IOException {
+        SalesReport report = new SalesReport();
+        StringDictionary dictionary = chunk.log.dictionary();
+        try (CsvReader csv = new CsvReader(chunk.open())) {
+            while (csv.next()) {
+                TextStorage.SaleLayout layout = TextStorage.SaleLayout.of(csv);
+                if (layout == null) {
+                    continue;
+                }
+                if (chunk.filter) {
+                    long timestamp = layout.timestamp >= 0
+                        ? csv.getLong(layout.timestamp)
+                        : chunk.segment.undatedTime();
+                    if (timestamp < from || timestamp > to) {
+                        continue;
+                    }
+                }
+                int brand = layout.brand;
+                int prices = layout.prices;
+                if (layout.hasCustomerId()) {
+                    // Coded lines resolve to the dictionary's shared strings, nothing is copied per line
+                    report.add(layout.text(csv, brand, dictionary), layout.text(csv, brand + 1, dictionary),
+                        csv.getInt(brand - 1),
+                        csv.getDouble(prices), csv.getDouble(prices + 1),
+                        csv.getDouble(prices + 2), csv.getDouble(prices + 3));
+                } else {
+                    report.add(csv.getString(brand), csv.getString(brand + 1),
+                        csv.getString(brand + 2), csv.getString(brand + 3),
+                        csv.getDouble(prices), csv.getDouble(prices + 1),
+                        csv.getDouble(prices + 2), csv.getDouble(prices + 3));
+                }
+            }
+        }
+        return report;
+    }
+
+    private static class ChunkTask extends RecursiveTask<SalesReport> {
+        private static final long serialVersionUID = 1L;
+
+        // Tasks are never serialized; transient keeps the lint quiet about the list type
+        private final transient List<Chunk> chunks;
+        private final long from;
+        private final long to;
+        private final int low;
+        private final int high;
+
+        ChunkTask(List<Chunk> chunks, long from, long to, int low, int high) {
+            this.chunks = chunks;
+            this.from = from;
+            this.to = to;
+            this.low = low;
+            this.high = high;
+        }
+
+        @Override
+        protected SalesReport compute() {
+            if (high - low == 1) {
+                try {
+                    return aggregate(chunks.get(low), from, to);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+            int middle = (low + high) >>> 1;
+            ChunkTask left = new ChunkTask(chunks, from, to, low, middle);
+            left.fork();
+            SalesReport report = new ChunkTask(chunks, from, to, middle, high).compute();
+            report.add(left.join());
+            return report;
+        }
+    }
+
+    // Lets a CsvReader copy from a mapped chunk in bulk
+    private static class ByteBufferInputStream extends InputStream {
+        private final ByteBuffer buffer;
+
+        ByteBufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xff : -1;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) {
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+            int count = Math.min(length, buffer.remaining());
+            buffer.get(bytes, offset, count);
+            return count;
+        }
+    }
+}
@@ -0,0 +1,334 @@
+package cardealership;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.time.YearMonth;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * The sales history, split into one segment per month.
+ *
+ * New sales are appended to the segment of the current month,
+ * {@code sales-2025-03.txt}. When the first sale of a later month arrives the
+ * previous segment is closed: compressed to {@code sales-2025-03.txt.gz} and
+ * the plain file removed. The original single {@code sales.txt}, whose lines
+ * carry no timestamp, is kept as a read-only segment of its own. A line
+ * without a timestamp counts as made at its segment's first sale (0 in the
+ * legacy file), so range queries keep or drop it with its segment.
+ *
+ * {@code sales.index} lists every segment with the first and last sale time,
+ * the number of sales and how many bytes of the open segment were indexed,
+ * so a query for a time range only opens the segments that overlap it. The
+ * index is rewritten after every append; a segment whose size no longer
+ * matches its entry (after a crash) is simply scanned again.
+ *
+ * Current sale lines store brand, model and location as codes of the
+ * directory's {@link StringDictionary}.
+ */
+class SalesLog {
+    private static final String LEGACY = "sales.txt";
+    // Stands for the legacy file in the index; sorts before every month
+    static final String LEGACY_KEY = "0000-00";
+    static final String INDEX = "sales.index";
+    private static final String PREFIX = "sales-";
+    private static final String SUFFIX = ".txt";
+    private static final String COMPRESSED = ".gz";
+    private static final ZoneId ZONE = ZoneId.systemDefault();
+
+    /** One month of sales, or the legacy file. */
+    static class Segment {
+        final String key;
+        long minTime = Long.MAX_VALUE;
+        long maxTime = Long.MIN_VALUE;
+        long count;
+        long length;
+        boolean compressed;
+
+        Segment(String key) {
+            this.key = key;
+        }
+
+        boolean overlaps(long from, long to) {
+            return count > 0 && minTime <= to && maxTime >= from;
+        }
+
+        Segment copy() {
+            Segment copy = new Segment(key);
+            copy.minTime = minTime;
+            copy.maxTime = maxTime;
+            copy.count = count;
+            copy.length = length;
+            copy.compressed = compressed;
+            return copy;
+        }
+
+        /**
+         * The time a sale line without one counts as: the earliest sale of
+         * the segment, or 0 in the legacy file, where no line has one.
+         */
+        long undatedTime() {
+            return count > 0 ? minTime : 0;
+        }
+
+        void add(long timestamp) {
+            minTime = Math.min(minTime, timestamp);
+            maxTime = Math.max(maxTime, timestamp);
+            count++;
+        }
+    }
+
+    /** Where the next sales go: a segment and the offset its data currently ends at. */
+    static class Position {
+        final String segment;
+        final long offset;
+
+        Position(String segment, long offset) {
+            this.segment = segment;
+            this.offset = offset;
+        }
+    }
+
+    private final Path directory;
+    private final StringDictionary dictionary;
+    // Keyed by month ("2025-03"), the legacy file sorts before every month
+    private final TreeMap<String, Segment> segments = new TreeMap<>();
+    private boolean opened;
+
+    SalesLog(Path directory, StringDictionary dictionary) {
+        this.directory = directory;
+        this.dictionary = dictionary;
+    }
+
+    StringDictionary dictionary() {
+        return dictionary;
+    }
+
+    /** Returns the position for sales made at {@code timestamp}, closing the previous month if needed. */
+    synchronized Position position(long timestamp) throws IOException {
+        open();
+        String month = YearMonth.from(Instant.ofEpochMilli(timestamp).atZone(ZONE)).toString();
+        Segment latest = segments.isEmpty() ? null : segments.lastEntry().getValue();
+        // A sale dated before the latest month (the clock went back) still goes to the latest segment
+        if (latest != null && !isLegacy(latest) && month.compareTo(latest.key) <= 0) {
+            return new Position(latest.key, Files.exists(plainPath(latest.key)) ? Files.size(plainPath(latest.key)) : 0);
+        }
+        if (latest != null && !isLegacy(latest) && !latest.compressed) {
+            compress(latest);
+        }
+        Segment segment = new Segment(month);
+        segments.put(month, segment);
+        writeIndex();
+        return new Position(month, 0);
+    }
+
+    /**
+     * Writes {@code lines} to the segment at the position, replacing anything
+     * after it, and updates the index. Safe to repeat after a crash.
+     */
+    synchronized void append(Position position, List<String> lines) throws IOException {
+        open();
+        Path file = plainPath(position.segment);
+        CheckoutIntent.writeSynced(file, position.offset, CheckoutIntent.lines(lines));
+        Segment segment = segments.computeIfAbsent(position.segment, Segment::new);
+        if (segment.length == position.offset) {
+            for (String line : lines) {
+                segment.add(TextStorage.saleTimestamp(CsvReader.ofLine(line)));
+            }
+            segment.length = Files.size(file);
+        } else {
+            scan(segment);
+        }
+        writeIndex();
+    }
+
+    /** Reads every sale made between {@code from} and {@code to}, inclusive, oldest segment first. */
+    synchronized List<Sale> read(long from, long to) throws IOException {
+        open();
+        List<Sale> sales = new ArrayList<>();
+        for (Segment segment : segments.values()) {
+            if (!segment.overlaps(from, to)) {
+                continue;
+            }
+            try (CsvReader csv = new CsvReader(openSegment(segment))) {
+                while (csv.next()) {
+                    Sale sale = TextStorage.readSale(csv, dictionary);
+                    if (sale == null) {
+                        continue;
+                    }
+                    long timestamp = sale.getTimestamp() > 0 ? sale.getTimestamp() : segment.undatedTime();
+                    if (timestamp >= from && timestamp <= to) {
+                        sales.add(sale);
+                    }
+                }
+            }
+        }
+        return sales;
+    }
+
+    /** Copies of the segments overlapping the time range, oldest first. */
+    synchronized List<Segment> segments(long from, long to) throws IOException {
+        open();
+        List<Segment> matching = new ArrayList<>();
+        for (Segment segment : segments.values()) {
+            if (segment.overlaps(from, to)) {
+                matching.add(segment.copy());
+            }
+        }
+        return matching;
+    }
+
+    Path path(Segment segment) {
+        return segment.compressed ? compressedPath(segment.key) : plainPath(segment.key);
+    }
+
+    InputStream openSegment(Segment segment) throws IOException {
+        InputStream in = Files.newInputStream(path(segment));
+        return segment.compressed ? new GZIPInputStream(in, 1 << 16) : in;
+    }
+
+    // Loads the index and checks it against the files that are actually there
+    private void open() throws IOException {
+        if (opened) {
+            return;
+        }
+        TreeMap<String, Segment> indexed = readIndex();
+        List<String> found = new ArrayList<>();
+        if (Files.exists(directory.resolve(LEGACY))) {
+            found.add(LEGACY_KEY);
+        }
+        if (Files.isDirectory(directory)) {
+            try (Stream<Path> files = Files.list(directory)) {
+                files.map(path -> path.getFileName().toString())
+                     .filter(name -> name.startsWith(PREFIX) && (name.endsWith(SUFFIX) || name.endsWith(SUFFIX + COMPRESSED)))
+                     .map(name -> name.substring(PREFIX.length(), name.indexOf(SUFFIX)))
+                     .distinct()
+                     .forEach(found::add);
+            }
+        }
+        boolean changed = false;
+        for (String key : found) {
+            Segment segment = indexed.getOrDefault(key, new Segment(key));
+            boolean plain = Files.exists(plainPath(key));
+            boolean compressed = !isLegacy(segment) && Files.exists(compressedPath(key));
+            if (plain && compressed) {
+                // Interrupted while closing the segment; the compressed copy was moved into place complete
+                Files.delete(plainPath(key));
+                plain = false;
+            }
+            segment.compressed = compressed;
+            if (!indexed.containsKey(key) || plain && Files.size(path(segment)) != segment.length) {
+                scan(segment);
+                changed = true;
+            }
+            segments.put(key, segment);
+        }
+        if (changed || segments.size() != indexed.size()) {
+            writeIndex();
+        }
+        opened = true;
+    }
+
+    private void scan(Segment segment) throws IOException {
+        segment.minTime = Long.MAX_VALUE;
+        segment.maxTime = Long.MIN_VALUE;
+        segment.count = 0;
+        // Undated lines take the segment's range instead of widening it to 0
+        long undated = 0;
+        try (CsvReader csv = new CsvReader(openSegment(segment))) {
+            while (csv.next()) {
+                long timestamp = TextStorage.saleTimestamp(csv);
+                if (timestamp > 0) {
+                    segment.add(timestamp);
+                } else if (timestamp == 0) {
+                    undated++;
+                }
+            }
+        }
+        if (undated > 0 && segment.count == 0) {
+            segment.minTime = 0;
+            segment.maxTime = 0;
+        }
+        segment.count += undated;
+        segment.length = segment.compressed ? 0 : Files.size(path(segment));
+    }
+
+    private void compress(Segment segment) throws IOException {
+        Path plain = plainPath(segment.key);
+        Path compressed = compressedPath(segment.key);
+        Path temp = compressed.resolveSibling(compressed.getFileName() + ".tmp");
+        try (FileOutputStream fileOut = new FileOutputStream(temp.toFile())) {
+            GZIPOutputStream out = new GZIPOutputStream(fileOut, 1 << 16);
+            Files.copy(plain, out);
+            out.finish();
+            fileOut.getFD().sync();
+        }
+        Files.move(temp, compressed, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        segment.compressed = true;
+        segment.length = 0;
+        writeIndex();
+        Files.delete(plain);
+    }
+
+    private TreeMap<String, Segment> readIndex() throws IOException {
+        TreeMap<String, Segment> indexed = new TreeMap<>();
+        Path index = directory.resolve(INDEX);
+        if (!Files.exists(index)) {
+            return indexed;
+        }
+        try (BufferedReader reader = Files.newBufferedReader(index)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] parts = line.split(" ");
+                if (parts.length != 5) {
+                    return new TreeMap<>();  // damaged, rebuild it from the segments
+                }
+                Segment segment = new Segment(parts[0]);
+                segment.minTime = Long.parseLong(parts[1]);
+                segment.maxTime = Long.parseLong(parts[2]);
+                segment.count = Long.parseLong(parts[3]);
+                segment.length = Long.parseLong(parts[4]);
+                indexed.put(segment.key, segment);
+            }
+        } catch (NumberFormatException e) {
+            return new TreeMap<>();
+        }
+        return indexed;
+    }
+
+    private void writeIndex() throws IOException {
+        Path index = directory.resolve(INDEX);
+        Path temp = index.resolveSibling(INDEX + ".tmp");
+        try (BufferedWriter writer = Files.newBufferedWriter(temp)) {
+            for (Segment segment : segments.values()) {
+                writer.write(segment.key + " " + segment.minTime + " " + segment.maxTime + " "
+                        + segment.count + " " + segment.length + "\n");
+            }
+        }
+        Files.move(temp, index, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static boolean isLegacy(Segment segment) {
+        return segment.key.equals(LEGACY_KEY);
+    }
+
+    private Path plainPath(String key) {
+        return key.equals(LEGACY_KEY) ? directory.resolve(LEGACY) : directory.resolve(PREFIX + key + SUFFIX);
+    }
+
+    private Path compressedPath(String key) {
+        return directory.resolve(PREFIX + key + SUFFIX + COMPRESSED);
+    }
+}
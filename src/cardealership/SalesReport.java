@@ -0,0 +1,252 @@
+package cardealership;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.function.IntFunction;
+
+/**
+ * Aggregated sales figures: overall totals, totals per brand, model and
+ * customer, and how many sales fell into each discount tier.
+ *
+ * Customers are counted in an array indexed by customer id. Sales recorded
+ * before customers had ids name the customer instead and are counted by
+ * email.
+ *
+ * Reports are built by {@link SalesAnalytics}, one per chunk of the sales
+ * log, and merged; once handed out they are not changed any more.
+ */
+public class SalesReport {
+
+    /** Number of sales and money amounts for one brand, model or customer. */
+    public static class Totals {
+        private final String label;
+        private long sales;
+        private double basePrice;
+        private double tax;
+        private double discount;
+        private double revenue;
+
+        Totals(String label) {
+            this.label = label;
+        }
+
+        void add(double basePrice, double tax, double discount, double revenue) {
+            this.sales++;
+            this.basePrice += basePrice;
+            this.tax += tax;
+            this.discount += discount;
+            this.revenue += revenue;
+        }
+
+        void set(long sales, double basePrice, double tax, double discount, double revenue) {
+            this.sales = sales;
+            this.basePrice = basePrice;
+            this.tax = tax;
+            this.discount = discount;
+            this.revenue = revenue;
+        }
+
+        void add(Totals other) {
+            this.sales += other.sales;
+            this.basePrice += other.basePrice;
+            this.tax += other.tax;
+            this.discount += other.discount;
+            this.revenue += other.revenue;
+        }
+
+        public String getLabel() { return label; }
+        public long getSales() { return sales; }
+        public double getBasePrice() { return basePrice; }
+        public double getTax() { return tax; }
+        public double getDiscount() { return discount; }
+        public double getRevenue() { return revenue; }
+    }
+
+    private static final Comparator<Totals> BY_REVENUE =
+        Comparator.comparingDouble(Totals::getRevenue).reversed().thenComparing(Totals::getLabel);
+
+    private final Totals total = new Totals("All sales");
+    private final Map<String, Totals> byBrand = new HashMap<>();
+    private final Map<String, Map<String, Totals>> byModel = new HashMap<>();
+    private Totals[] byCustomer = new Totals[16];
+    private final Map<String, Totals> byCustomerEmail = new HashMap<>();
+    private final long[] discountTiers = new long[101];
+
+    /** Adds one sale. Models are kept per brand since model names repeat across brands. */
+    void add(String brand, String model, int customerId,
+             double basePrice, double tax, double discount, double revenue) {
+        if (customerId >= byCustomer.length) {
+            byCustomer = Arrays.copyOf(byCustomer, Math.max(customerId + 1, byCustomer.length * 2));
+        }
+        Totals customer = byCustomer[customerId];
+        if (customer == null) {
+            customer = new Totals(null);
+            byCustomer[customerId] = customer;
+        }
+        add(brand, model, customer, basePrice, tax, discount, revenue);
+    }
+
+    /** Adds a sale recorded before customers had ids. */
+    void add(String brand, String model, String customerName, String customerEmail,
+             double basePrice, double tax, double discount, double revenue) {
+        add(brand, model, totals(byCustomerEmail, customerEmail, customerName), basePrice, tax, discount, revenue);
+    }
+
+    private void add(String brand, String model, Totals customer,
+                     double basePrice, double tax, double discount, double revenue) {
+        total.add(basePrice, tax, discount, revenue);
+        totals(byBrand, brand, brand).add(basePrice, tax, discount, revenue);
+        Map<String, Totals> models = byModel.get(brand);
+        if (models == null) {
+            models = new HashMap<>();
+            byModel.put(brand, models);
+        }
+        Totals modelTotals = models.get(model);
+        if (modelTotals == null) {
+            modelTotals = new Totals(brand + " " + model);
+            models.put(model, modelTotals);
+        }
+        modelTotals.add(basePrice, tax, discount, revenue);
+        customer.add(basePrice, tax, discount, revenue);
+        discountTiers[discountTier(basePrice, tax, discount)]++;
+    }
+
+    void add(SalesReport other) {
+        total.add(other.total);
+        merge(byBrand, other.byBrand);
+        for (Map.Entry<String, Map<String, Totals>> brand : other.byModel.entrySet()) {
+            Map<String, Totals> models = byModel.putIfAbsent(brand.getKey(), brand.getValue());
+            if (models != null) {
+                merge(models, brand.getValue());
+            }
+        }
+        if (other.byCustomer.length > byCustomer.length) {
+            byCustomer = Arrays.copyOf(byCustomer, other.byCustomer.length);
+        }
+        for (int id = 0; id < other.byCustomer.length; id++) {
+            Totals customer = other.byCustomer[id];
+            if (customer == null) {
+                continue;
+            }
+            if (byCustomer[id] == null) {
+                byCustomer[id] = customer;
+            } else {
+                byCustomer[id].add(customer);
+            }
+        }
+        merge(byCustomerEmail, other.byCustomerEmail);
+        for (int tier = 0; tier < discountTiers.length; tier++) {
+            discountTiers[tier] += other.discountTiers[tier];
+        }
+    }
+
+    // The discount as a whole percentage of the price including tax, e.g. 10 for the 10% tier
+    static int discountTier(double basePrice, double tax, double discount) {
+        double subtotal = basePrice + tax;
+        long tier = subtotal > 0 ? Math.round(discount / subtotal * 100) : 0;
+        return (int) Math.max(0, Math.min(100, tier));
+    }
+
+    private static Totals totals(Map<String, Totals> map, String key, String label) {
+        Totals totals = map.get(key);
+        if (totals == null) {
+            totals = new Totals(label);
+            map.put(key, totals);
+        }
+        return totals;
+    }
+
+    private static void merge(Map<String, Totals> into, Map<String, Totals> from) {
+        for (Map.Entry<String, Totals> entry : from.entrySet()) {
+            Totals existing = into.putIfAbsent(entry.getKey(), entry.getValue());
+            if (existing != null) {
+                existing.add(entry.getValue());
+            }
+        }
+    }
+
+    public Totals getTotal() {
+        return total;
+    }
+
+    /** Totals per brand, highest revenue first. */
+    public List<Totals> getByBrand() {
+        return sorted(byBrand, Integer.MAX_VALUE);
+    }
+
+    /** The {@code n} models with the highest revenue. */
+    public List<Totals> getTopModels(int n) {
+        List<Totals> models = new ArrayList<>();
+        for (Map<String, Totals> brand : byModel.values()) {
+            models.addAll(brand.values());
+        }
+        return top(models, n);
+    }
+
+    /**
+     * The {@code n} customers who spent the most, labelled with the name
+     * {@code names} gives for their id ({@code null} if it knows none).
+     */
+    public List<Totals> getTopCustomers(int n, IntFunction<String> names) {
+        List<Totals> customers = new ArrayList<>(byCustomerEmail.values());
+        for (int id = 0; id < byCustomer.length; id++) {
+            if (byCustomer[id] != null) {
+                String name = names.apply(id);
+                Totals labelled = new Totals(name != null ? name : "Customer #" + id);
+                labelled.add(byCustomer[id]);
+                customers.add(labelled);
+            }
+        }
+        return top(customers, n);
+    }
+
+    /** Number of sales per discount tier in percent, lowest tier first. */
+    public SortedMap<Integer, Long> getDiscountTiers() {
+        SortedMap<Integer, Long> tiers = new TreeMap<>();
+        for (int tier = 0; tier < discountTiers.length; tier++) {
+            if (discountTiers[tier] > 0) {
+                tiers.put(tier, discountTiers[tier]);
+            }
+        }
+        return tiers;
+    }
+
+    /** The discount tier of the average sale, in percent. */
+    public double getAverageDiscountTier() {
+        long sales = 0;
+        double sum = 0;
+        for (int tier = 0; tier < discountTiers.length; tier++) {
+            sales += discountTiers[tier];
+            sum += (double) tier * discountTiers[tier];
+        }
+        return sales == 0 ? 0 : sum / sales;
+    }
+
+    private static List<Totals> sorted(Map<String, Totals> map, int limit) {
+        return top(new ArrayList<>(map.values()), limit);
+    }
+
+    private static List<Totals> top(List<Totals> list, int limit) {
+        list.sort(BY_REVENUE);
+        return list.size() > limit ? new ArrayList<>(list.subList(0, limit)) : list;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("""
+                Sales: %d
+                Revenue: $%.2f
+                Sales Tax: $%.2f
+                Discounts: $%.2f
+                Average Discount Tier: %.1f%%
+                """,
+                total.getSales(), total.getRevenue(), total.getTax(), total.getDiscount(),
+                getAverageDiscountTier());
+    }
+}
@@ -0,0 +1,275 @@
+package cardealership;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.zip.CRC32C;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Running sales totals per brand, per customer and per day, kept up to date
+ * as sales are recorded so the dashboard never scans the sales history.
+ *
+ * The summaries are saved next to the data files at shutdown, stamped with
+ * the same data fingerprint as the {@link BinarySnapshot}. They are rebuilt
+ * from the sales log only when the file is missing, corrupt, of another
+ * version, or the data changed without them (after a crash, for example).
+ * Customers are kept in an array indexed by customer id. Sales recorded
+ * before sales were dated count towards no day, and those recorded before
+ * customers had ids towards no customer.
+ *
+ * <pre>
+ * int    magic, int version, long fingerprint
+ * totals of all sales
+ * int    brand count, then per brand: totals
+ * int    customer count, then per customer: int id, totals
+ * int    day count, then per day: long epoch day, totals
+ * long   CRC32C of everything above
+ * </pre>
+ * where totals are a string label, long sales and four doubles (base price,
+ * tax, discount, revenue), and strings are an int length and UTF-8 bytes.
+ */
+public class SalesSummaries {
+    static final String FILE_NAME = "summaries.bin";
+    private static final int MAGIC = 0x43445332; // "CDS2"
+    private static final int VERSION = 2;
+
+    private final SalesReport.Totals total = new SalesReport.Totals("All sales");
+    private final Map<String, SalesReport.Totals> byBrand = new HashMap<>();
+    private SalesReport.Totals[] byCustomer = new SalesReport.Totals[16];
+    private int customerCount;
+    private final TreeMap<LocalDate, SalesReport.Totals> byDay = new TreeMap<>();
+
+    /** Rebuilds the summaries from the full sales history. */
+    public static SalesSummaries rebuild(List<Sale> sales) {
+        SalesSummaries summaries = new SalesSummaries();
+        for (Sale sale : sales) {
+            summaries.add(sale);
+        }
+        return summaries;
+    }
+
+    /** Adds the sales of one checkout to every summary. */
+    public synchronized void record(List<Sale> sales) {
+        for (Sale sale : sales) {
+            add(sale);
+        }
+    }
+
+    private void add(Sale sale) {
+        double basePrice = sale.getBasePrice();
+        double tax = sale.getTax();
+        double discount = sale.getDiscount();
+        double revenue = sale.getFinalPrice();
+        total.add(basePrice, tax, discount, revenue);
+        String brand = sale.getCar().getBrand();
+        byBrand.computeIfAbsent(brand, SalesReport.Totals::new).add(basePrice, tax, discount, revenue);
+        int customerId = sale.getCustomer().getId();
+        if (customerId > 0) {
+            customerTotals(customerId).add(basePrice, tax, discount, revenue);
+        }
+        if (sale.getTimestamp() > 0) {
+            LocalDate day = Instant.ofEpochMilli(sale.getTimestamp()).atZone(ZoneId.systemDefault()).toLocalDate();
+            byDay.computeIfAbsent(day, date -> new SalesReport.Totals(date.toString()))
+                    .add(basePrice, tax, discount, revenue);
+        }
+    }
+
+    private SalesReport.Totals customerTotals(int id) {
+        if (id >= byCustomer.length) {
+            byCustomer = Arrays.copyOf(byCustomer, Math.max(id + 1, byCustomer.length * 2));
+        }
+        if (byCustomer[id] == null) {
+            byCustomer[id] = new SalesReport.Totals("Customer #" + id);
+            customerCount++;
+        }
+        return byCustomer[id];
+    }
+
+    // Reads; each returns a copy so callers never see a half applied checkout
+
+    public synchronized SalesReport.Totals getTotal() {
+        return copy(total, total.getLabel());
+    }
+
+    public synchronized SalesReport.Totals getBrand(String brand) {
+        return copy(byBrand.get(brand), brand);
+    }
+
+    public synchronized SalesReport.Totals getCustomer(int id) {
+        return copy(id > 0 && id < byCustomer.length ? byCustomer[id] : null, "Customer #" + id);
+    }
+
+    public synchronized SalesReport.Totals getDay(LocalDate day) {
+        return copy(byDay.get(day), day.toString());
+    }
+
+    /** Totals per brand, highest revenue first. */
+    public synchronized List<SalesReport.Totals> getBrands() {
+        List<SalesReport.Totals> brands = new ArrayList<>();
+        for (SalesReport.Totals totals : byBrand.values()) {
+            brands.add(copy(totals, totals.getLabel()));
+        }
+        brands.sort(Comparator.comparingDouble(SalesReport.Totals::getRevenue).reversed());
+        return brands;
+    }
+
+    /** Daily totals, most recent day first. */
+    public List<SalesReport.Totals> getDays() {
+        return getDays(null, null);
+    }
+
+    /** Daily totals from {@code from} to {@code to} inclusive, most recent day first; a {@code null} bound is open. */
+    public synchronized List<SalesReport.Totals> getDays(LocalDate from, LocalDate to) {
+        NavigableMap<LocalDate, SalesReport.Totals> range = byDay;
+        if (from != null) {
+            range = range.tailMap(from, true);
+        }
+        if (to != null) {
+            range = range.headMap(to, true);
+        }
+        List<SalesReport.Totals> days = new ArrayList<>();
+        for (SalesReport.Totals totals : range.descendingMap().values()) {
+            days.add(copy(totals, totals.getLabel()));
+        }
+        return days;
+    }
+
+    private static SalesReport.Totals copy(SalesReport.Totals totals, String label) {
+        SalesReport.Totals copy = new SalesReport.Totals(label);
+        if (totals != null) {
+            copy.add(totals);
+        }
+        return copy;
+    }
+
+    // Persistence
+
+    public synchronized void write(Path file, long fingerprint) throws IOException {
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        CRC32C checksum = new CRC32C();
+        try (FileOutputStream fileOut = new FileOutputStream(temp.toFile())) {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                    new CheckedOutputStream(fileOut, checksum), 1 << 16));
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(fingerprint);
+            writeTotals(out, total);
+
+            out.writeInt(byBrand.size());
+            for (SalesReport.Totals totals : byBrand.values()) {
+                writeTotals(out, totals);
+            }
+            out.writeInt(customerCount);
+            for (int id = 0; id < byCustomer.length; id++) {
+                if (byCustomer[id] != null) {
+                    out.writeInt(id);
+                    writeTotals(out, byCustomer[id]);
+                }
+            }
+            out.writeInt(byDay.size());
+            for (Map.Entry<LocalDate, SalesReport.Totals> day : byDay.entrySet()) {
+                out.writeLong(day.getKey().toEpochDay());
+                writeTotals(out, day.getValue());
+            }
+            out.flush();
+            // The checksum itself is not part of the checked data
+            new DataOutputStream(fileOut).writeLong(checksum.getValue());
+            fileOut.getFD().sync();
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static void writeTotals(DataOutputStream out, SalesReport.Totals totals) throws IOException {
+        writeString(out, totals.getLabel());
+        out.writeLong(totals.getSales());
+        out.writeDouble(totals.getBasePrice());
+        out.writeDouble(totals.getTax());
+        out.writeDouble(totals.getDiscount());
+        out.writeDouble(totals.getRevenue());
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = (value == null ? "" : value).getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    /**
+     * @return the saved summaries, or {@code null} if the file is missing,
+     *         corrupt, of another version or does not match {@code fingerprint}
+     */
+    public static SalesSummaries read(Path file, long fingerprint) throws IOException {
+        if (!Files.exists(file)) {
+            return null;
+        }
+        byte[] bytes = Files.readAllBytes(file);
+        if (bytes.length < 24) {
+            return null;
+        }
+        CRC32C checksum = new CRC32C();
+        checksum.update(bytes, 0, bytes.length - 8);
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        if (checksum.getValue() != buffer.getLong(bytes.length - 8)) {
+            return null;
+        }
+        buffer.limit(bytes.length - 8);
+        try {
+            if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION || buffer.getLong() != fingerprint) {
+                return null;
+            }
+            SalesSummaries summaries = new SalesSummaries();
+            summaries.total.add(readTotals(buffer));
+            int brands = buffer.getInt();
+            for (int i = 0; i < brands; i++) {
+                SalesReport.Totals totals = readTotals(buffer);
+                summaries.byBrand.put(totals.getLabel(), totals);
+            }
+            int customers = buffer.getInt();
+            for (int i = 0; i < customers; i++) {
+                int id = buffer.getInt();
+                if (id <= 0) {
+                    return null;
+                }
+                summaries.customerTotals(id).add(readTotals(buffer));
+            }
+            int days = buffer.getInt();
+            for (int i = 0; i < days; i++) {
+                summaries.byDay.put(LocalDate.ofEpochDay(buffer.getLong()), readTotals(buffer));
+            }
+            return summaries;
+        } catch (BufferUnderflowException | IndexOutOfBoundsException | NegativeArraySizeException e) {
+            return null;
+        }
+    }
+
+    private static SalesReport.Totals readTotals(ByteBuffer buffer) {
+        SalesReport.Totals totals = new SalesReport.Totals(readString(buffer));
+        totals.set(buffer.getLong(), buffer.getDouble(), buffer.getDouble(), buffer.getDouble(), buffer.getDouble());
+        return totals;
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.getInt()];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
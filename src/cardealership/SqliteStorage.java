@@ -0,0 +1,507 @@
+package cardealership;
+
+import java.io.File;
+import java.io.IOException;
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * SQLite backed storage. Every record operation is a single-row statement, so
+ * adding a car or a customer no longer rewrites the whole data set.
+ *
+ * The database lives next to the text files as {@code dealership.db}. When it
+ * is created for the first time the existing text files are imported, in the
+ * same transaction as the schema.
+ */
+public final class SqliteStorage implements Storage {
+    private static final int POOL_SIZE = 4;
+
+    private static final String[] SCHEMA = {
+        "CREATE TABLE IF NOT EXISTS dealership (" +
+            "id INTEGER PRIMARY KEY CHECK (id = 1), name TEXT NOT NULL, location TEXT NOT NULL)",
+        "CREATE TABLE IF NOT EXISTS cars (" +
+            "id INTEGER PRIMARY KEY AUTOINCREMENT, model TEXT NOT NULL, brand TEXT NOT NULL, price REAL NOT NULL)",
+        "CREATE INDEX IF NOT EXISTS idx_cars_brand ON cars (brand)",
+        "CREATE INDEX IF NOT EXISTS idx_cars_price ON cars (price)",
+        "CREATE TABLE IF NOT EXISTS customers (" +
+            "id INTEGER PRIMARY KEY AUTOINCREMENT, name TEXT NOT NULL, age INTEGER NOT NULL, " +
+            "address TEXT NOT NULL, phone TEXT NOT NULL, email TEXT NOT NULL)",
+        "CREATE INDEX IF NOT EXISTS idx_customers_email ON customers (email)",
+        // customer_name and customer_email are only filled in for sales made before customers had ids
+        "CREATE TABLE IF NOT EXISTS sales (" +
+            "id INTEGER PRIMARY KEY AUTOINCREMENT, sale_date INTEGER NOT NULL, transaction_id TEXT, " +
+            "car_id INTEGER, customer_id INTEGER, brand TEXT NOT NULL, model TEXT NOT NULL, " +
+            "customer_name TEXT NOT NULL DEFAULT '', customer_email TEXT NOT NULL DEFAULT '', " +
+            "base_price REAL NOT NULL, tax REAL NOT NULL, discount REAL NOT NULL, final_price REAL NOT NULL, " +
+            "location TEXT)",
+        "CREATE INDEX IF NOT EXISTS idx_sales_date ON sales (sale_date)",
+        "CREATE TABLE IF NOT EXISTS testimonies (" +
+            "id INTEGER PRIMARY KEY AUTOINCREMENT, customer_id INTEGER, " +
+            "customer_name TEXT NOT NULL DEFAULT '', customer_email TEXT NOT NULL DEFAULT '', " +
+            "file_path TEXT NOT NULL, comments TEXT NOT NULL)"
+    };
+
+    // Columns added since the first release, created on databases that predate them
+    private static final String[][] ADDED_COLUMNS = {
+        {"sales", "transaction_id", "TEXT"},
+        {"sales", "car_id", "INTEGER"},
+        {"sales", "customer_id", "INTEGER"},
+        {"sales", "location", "TEXT"},
+        {"testimonies", "customer_id", "INTEGER"}
+    };
+
+    private static final String INSERT_CAR = "INSERT INTO cars (id, model, brand, price) VALUES (?, ?, ?, ?)";
+    private static final String INSERT_CUSTOMER =
+        "INSERT INTO customers (id, name, age, address, phone, email) VALUES (?, ?, ?, ?, ?, ?)";
+    private static final String INSERT_SALE =
+        "INSERT INTO sales (id, sale_date, transaction_id, car_id, customer_id, brand, model, " +
+        "customer_name, customer_email, base_price, tax, discount, final_price, location) " +
+        "VALUES (?, ?, ?, ?, ?, ?, ?, '', '', ?, ?, ?, ?, ?)";
+    // Older sales name the customer themselves, newer ones are joined with the customers table
+    private static final String SELECT_SALES =
+        "SELECT s.id, s.sale_date, s.transaction_id, s.car_id, s.customer_id, s.brand, s.model, " +
+        "COALESCE(c.name, s.customer_name), COALESCE(c.email, s.customer_email), " +
+        "s.base_price, s.tax, s.discount, s.final_price, s.location " +
+        "FROM sales s LEFT JOIN customers c ON c.id = s.customer_id";
+
+    // Stored in PRAGMA user_version once the schema exists and the text files are imported
+    private static final int SCHEMA_VERSION = 1;
+
+    private final ConnectionPool pool;
+
+    public SqliteStorage(String directory) throws IOException {
+        File databaseFile = new File(directory, "dealership.db");
+        try {
+            pool = new ConnectionPool("jdbc:sqlite:" + databaseFile.getPath(), POOL_SIZE);
+        } catch (SQLException e) {
+            throw new IOException("Could not open " + databaseFile, e);
+        }
+        try {
+            open(new TextStorage(directory));
+        } catch (IOException | SQLException | RuntimeException e) {
+            try {
+                pool.close();
+            } catch (SQLException suppressed) {
+                e.addSuppressed(suppressed);
+            }
+            throw e instanceof IOException io ? io : new IOException("Could not open " + databaseFile, e);
+        }
+    }
+
+    /**
+     * Creates the schema and, for a new database, imports the text files, all
+     * in one transaction that ends by setting the schema version. A crash
+     * part way leaves an empty database that is imported again on the next
+     * start.
+     */
+    private void open(Storage source) throws IOException, SQLException {
+        int version = query(connection -> userVersion(connection));
+        // Databases from before the version was kept have the tables but version 0; they were already imported
+        boolean fresh = version == 0 && !query(connection -> tableExists(connection, "cars"));
+        CarDealership dealership = null;
+        List<Car> cars = List.of();
+        List<Customer> customers = List.of();
+        if (fresh) {
+            dealership = source.loadDealership();
+            // Text files written before ids were kept have records without one
+            cars = source.loadCars();
+            DataManager.assignCarIds(cars);
+            customers = source.loadCustomers();
+            DataManager.assignCustomerIds(customers);
+        }
+        CarDealership importedDealership = dealership;
+        List<Car> importedCars = cars;
+        List<Customer> importedCustomers = customers;
+        inTransaction(connection -> {
+            try (Statement statement = connection.createStatement()) {
+                for (String sql : SCHEMA) {
+                    statement.execute(sql);
+                }
+                for (String[] column : ADDED_COLUMNS) {
+                    addColumn(statement, column[0], column[1], column[2]);
+                }
+            }
+            if (fresh) {
+                if (importedDealership != null) {
+                    writeDealership(connection, importedDealership);
+                }
+                insertCars(connection, importedCars);
+                insertCustomers(connection, importedCustomers);
+            }
+            if (version < SCHEMA_VERSION) {
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("PRAGMA user_version = " + SCHEMA_VERSION);
+                }
+            }
+            return null;
+        });
+    }
+
+    private static int userVersion(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery("PRAGMA user_version")) {
+            return rs.next() ? rs.getInt(1) : 0;
+        }
+    }
+
+    private static boolean tableExists(Connection connection, String table) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(
+                "SELECT 1 FROM sqlite_master WHERE type = 'table' AND name = ?")) {
+            statement.setString(1, table);
+            try (ResultSet rs = statement.executeQuery()) {
+                return rs.next();
+            }
+        }
+    }
+
+    private static void addColumn(Statement statement, String table, String column, String type)
+            throws SQLException {
+        try (ResultSet rs = statement.executeQuery("PRAGMA table_info(" + table + ")")) {
+            while (rs.next()) {
+                if (rs.getString("name").equals(column)) {
+                    return;
+                }
+            }
+        }
+        statement.execute("ALTER TABLE " + table + " ADD COLUMN " + column + " " + type);
+    }
+
+    // Dealership methods
+    @Override
+    public CarDealership loadDealership() throws IOException {
+        return query(connection -> {
+            try (Statement statement = connection.createStatement();
+                 ResultSet rs = statement.executeQuery("SELECT name, location FROM dealership WHERE id = 1")) {
+                return rs.next() ? new CarDealership(rs.getString(1), rs.getString(2)) : null;
+            }
+        });
+    }
+
+    @Override
+    public void saveDealership(CarDealership dealership) throws IOException {
+        update(connection -> {
+            writeDealership(connection, dealership);
+            return null;
+        });
+    }
+
+    private static void writeDealership(Connection connection, CarDealership dealership) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(
+                "INSERT OR REPLACE INTO dealership (id, name, location) VALUES (1, ?, ?)")) {
+            statement.setString(1, dealership.getStoreName());
+            statement.setString(2, dealership.getStoreLocation());
+            statement.executeUpdate();
+        }
+    }
+
+    // Cars methods
+    @Override
+    public List<Car> loadCars() throws IOException {
+        return query(connection -> {
+            List<Car> cars = new ArrayList<>();
+            try (Statement statement = connection.createStatement();
+                 ResultSet rs = statement.executeQuery("SELECT id, model, brand, price FROM cars ORDER BY id")) {
+                while (rs.next()) {
+                    Car car = new Car(rs.getString(2), rs.getString(3), rs.getDouble(4));
+                    car.setId(rs.getInt(1));
+                    cars.add(car);
+                }
+            }
+            return cars;
+        });
+    }
+
+    @Override
+    public void saveCars(List<Car> cars) throws IOException {
+        update(connection -> {
+            try (Statement statement = connection.createStatement()) {
+                statement.executeUpdate("DELETE FROM cars");
+            }
+            insertCars(connection, cars);
+            return null;
+        });
+    }
+
+    @Override
+    public void addCar(Car car) throws IOException {
+        update(connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(INSERT_CAR)) {
+                bindCar(statement, car);
+                statement.executeUpdate();
+            }
+            return null;
+        });
+    }
+
+    @Override
+    public void addCars(List<Car> cars) throws IOException {
+        update(connection -> {
+            insertCars(connection, cars);
+            return null;
+        });
+    }
+
+    private static void insertCars(Connection connection, List<Car> cars) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(INSERT_CAR)) {
+            for (Car car : cars) {
+                bindCar(statement, car);
+                statement.addBatch();
+            }
+            statement.executeBatch();
+        }
+    }
+
+    @Override
+    public void removeCar(Car car) throws IOException {
+        update(connection -> {
+            try (PreparedStatement statement = connection.prepareStatement("DELETE FROM cars WHERE id = ?")) {
+                statement.setInt(1, car.getId());
+                statement.executeUpdate();
+            }
+            return null;
+        });
+    }
+
+    // Customers methods
+    @Override
+    public List<Customer> loadCustomers() throws IOException {
+        return query(connection -> {
+            List<Customer> customers = new ArrayList<>();
+            try (Statement statement = connection.createStatement();
+                 ResultSet rs = statement.executeQuery(
+                     "SELECT id, name, age, address, phone, email FROM customers ORDER BY id")) {
+                while (rs.next()) {
+                    Customer customer = new Customer(rs.getString(2), rs.getInt(3),
+                        rs.getString(4), rs.getString(5), rs.getString(6));
+                    customer.setId(rs.getInt(1));
+                    customers.add(customer);
+                }
+            }
+            return customers;
+        });
+    }
+
+    @Override
+    public void saveCustomers(List<Customer> customers) throws IOException {
+        update(connection -> {
+            try (Statement statement = connection.createStatement()) {
+                statement.executeUpdate("DELETE FROM customers");
+            }
+            insertCustomers(connection, customers);
+            return null;
+        });
+    }
+
+    private static void insertCustomers(Connection connection, List<Customer> customers) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(INSERT_CUSTOMER)) {
+            for (Customer customer : customers) {
+                bindCustomer(statement, customer);
+                statement.addBatch();
+            }
+            statement.executeBatch();
+        }
+    }
+
+    @Override
+    public void addCustomer(Customer customer) throws IOException {
+        update(connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(INSERT_CUSTOMER)) {
+                bindCustomer(statement, customer);
+                statement.executeUpdate();
+            }
+            return null;
+        });
+    }
+
+    // Sales methods
+    @Override
+    public List<Sale> loadSales() throws IOException {
+        return loadSales(Long.MIN_VALUE, Long.MAX_VALUE);
+    }
+
+    @Override
+    public List<Sale> loadSales(long from, long to) throws IOException {
+        return query(connection -> {
+            List<Sale> sales = new ArrayList<>();
+            try (PreparedStatement statement = connection.prepareStatement(
+                    SELECT_SALES + " WHERE s.sale_date BETWEEN ? AND ? ORDER BY s.id")) {
+                statement.setLong(1, from);
+                statement.setLong(2, to);
+                try (ResultSet rs = statement.executeQuery()) {
+                    while (rs.next()) {
+                        Car car = new Car(rs.getString(7), rs.getString(6), rs.getDouble(10));
+                        car.setId(rs.getInt(4));
+                        Customer customer = new Customer(rs.getString(8), 0, "", "", rs.getString(9));
+                        customer.setId(rs.getInt(5));
+                        Sale sale = new Sale(car, customer, rs.getDouble(10), rs.getDouble(11),
+                            rs.getDouble(12), rs.getDouble(13));
+                        sale.setId(rs.getInt(1));
+                        sale.setTimestamp(rs.getLong(2));
+                        sale.setTransactionId(rs.getString(3));
+                        sale.setLocation(rs.getString(14));
+                        sales.add(sale);
+                    }
+                }
+            }
+            return sales;
+        });
+    }
+
+    @Override
+    public void saveSale(Sale sale) throws IOException {
+        update(connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(INSERT_SALE)) {
+                bindSale(statement, sale.getTimestamp() > 0 ? sale.getTimestamp() : System.currentTimeMillis(), sale);
+                statement.executeUpdate();
+            }
+            return null;
+        });
+    }
+
+    @Override
+    public void saveCheckout(List<Sale> sales) throws IOException {
+        update(connection -> {
+            long now = System.currentTimeMillis();
+            try (PreparedStatement insert = connection.prepareStatement(INSERT_SALE);
+                 PreparedStatement delete = connection.prepareStatement("DELETE FROM cars WHERE id = ?")) {
+                for (Sale sale : sales) {
+                    bindSale(insert, sale.getTimestamp() > 0 ? sale.getTimestamp() : now, sale);
+                    insert.addBatch();
+                    delete.setInt(1, sale.getCar().getId());
+                    delete.addBatch();
+                }
+                insert.executeBatch();
+                delete.executeBatch();
+            }
+            return null;
+        });
+    }
+
+    @Override
+    public List<Testimony> loadVideoTestimonies() throws IOException {
+        return query(connection -> {
+            List<Testimony> testimonies = new ArrayList<>();
+            try (Statement statement = connection.createStatement();
+                 ResultSet rs = statement.executeQuery(
+                     "SELECT t.customer_id, COALESCE(c.name, t.customer_name), COALESCE(c.email, t.customer_email), " +
+                     "t.file_path, t.comments " +
+                     "FROM testimonies t LEFT JOIN customers c ON c.id = t.customer_id ORDER BY t.id")) {
+                while (rs.next()) {
+                    Testimony testimony = new Testimony(rs.getString(2), rs.getString(3),
+                        rs.getString(4), rs.getString(5));
+                    testimony.setCustomerId(rs.getInt(1));
+                    testimonies.add(testimony);
+                }
+            }
+            return testimonies;
+        });
+    }
+
+    @Override
+    public void saveVideoTestimony(Customer customer, String filePath, String comments) throws IOException {
+        update(connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(
+                    "INSERT INTO testimonies (customer_id, customer_name, customer_email, file_path, comments) " +
+                    "VALUES (?, '', '', ?, ?)")) {
+                statement.setInt(1, customer.getId());
+                statement.setString(2, filePath);
+                statement.setString(3, comments);
+                statement.executeUpdate();
+            }
+            return null;
+        });
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            pool.close();
+        } catch (SQLException e) {
+            throw new IOException("Error closing database", e);
+        }
+    }
+
+    // Ids come from the IdAllocator; the AUTOINCREMENT of the tables is never used
+    private static void bindCar(PreparedStatement statement, Car car) throws SQLException {
+        statement.setInt(1, requireId(car.getId(), "car"));
+        statement.setString(2, car.getModel());
+        statement.setString(3, car.getBrand());
+        statement.setDouble(4, car.getPrice());
+    }
+
+    private static void bindCustomer(PreparedStatement statement, Customer customer) throws SQLException {
+        statement.setInt(1, requireId(customer.getId(), "customer"));
+        statement.setString(2, customer.getName());
+        statement.setInt(3, customer.getAge());
+        statement.setString(4, customer.getAddress());
+        statement.setString(5, customer.getPhone());
+        statement.setString(6, customer.getEmail());
+    }
+
+    private static void bindSale(PreparedStatement statement, long date, Sale sale) throws SQLException {
+        statement.setInt(1, requireId(sale.getId(), "sale"));
+        statement.setLong(2, date);
+        statement.setString(3, sale.getTransactionId());
+        statement.setInt(4, sale.getCar().getId());
+        statement.setInt(5, sale.getCustomer().getId());
+        statement.setString(6, sale.getCar().getBrand());
+        statement.setString(7, sale.getCar().getModel());
+        statement.setDouble(8, sale.getBasePrice());
+        statement.setDouble(9, sale.getTax());
+        statement.setDouble(10, sale.getDiscount());
+        statement.setDouble(11, sale.getFinalPrice());
+        statement.setString(12, sale.getLocation());
+    }
+
+    private static int requireId(int id, String kind) {
+        if (id <= 0) {
+            throw new IllegalArgumentException("A " + kind + " needs an id before it is saved");
+        }
+        return id;
+    }
+
+    private interface SqlWork<T> {
+        T run(Connection connection) throws SQLException;
+    }
+
+    private <T> T query(SqlWork<T> work) throws IOException {
+        try {
+            Connection connection = pool.acquire();
+            try {
+                return work.run(connection);
+            } finally {
+                pool.release(connection);
+            }
+        } catch (SQLException e) {
+            throw new IOException(e.getMessage(), e);
+        }
+    }
+
+    private <T> T update(SqlWork<T> work) throws IOException {
+        try {
+            return inTransaction(work);
+        } catch (SQLException e) {
+            throw new IOException(e.getMessage(), e);
+        }
+    }
+
+    private <T> T inTransaction(SqlWork<T> work) throws SQLException {
+        Connection connection = pool.acquire();
+        try {
+            connection.setAutoCommit(false);
+            try {
+                T result = work.run(connection);
+                connection.commit();
+                return result;
+            } catch (SQLException | RuntimeException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(true);
+            }
+        } finally {
+            pool.release(connection);
+        }
+    }
+}
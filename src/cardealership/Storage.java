@@ -0,0 +1,79 @@
+package cardealership;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Persistence backend used by {@link DataManager}.
+ *
+ * Bulk operations ({@code saveCars}, {@code saveCustomers}) replace the whole
+ * collection, record operations ({@code addCar}, {@code removeCar},
+ * {@code addCustomer}) touch a single entry so that backends which support it
+ * can avoid rewriting the full data set on every change.
+ */
+public interface Storage extends AutoCloseable {
+
+    CarDealership loadDealership() throws IOException;
+
+    void saveDealership(CarDealership dealership) throws IOException;
+
+    List<Car> loadCars() throws IOException;
+
+    void saveCars(List<Car> cars) throws IOException;
+
+    void addCar(Car car) throws IOException;
+
+    /** Adds many cars with one write. */
+    void addCars(List<Car> cars) throws IOException;
+
+    void removeCar(Car car) throws IOException;
+
+    List<Customer> loadCustomers() throws IOException;
+
+    void saveCustomers(List<Customer> customers) throws IOException;
+
+    void addCustomer(Customer customer) throws IOException;
+
+    /**
+     * Returns every recorded sale. The car and customer of a sale are only
+     * as complete as the sales record: brand, model, name and email.
+     */
+    List<Sale> loadSales() throws IOException;
+
+    /** The sales made between {@code from} and {@code to} (epoch milliseconds, inclusive). */
+    default List<Sale> loadSales(long from, long to) throws IOException {
+        List<Sale> sales = new ArrayList<>();
+        for (Sale sale : loadSales()) {
+            if (sale.getTimestamp() >= from && sale.getTimestamp() <= to) {
+                sales.add(sale);
+            }
+        }
+        return sales;
+    }
+
+    default SalesReport loadSalesReport() throws IOException {
+        return loadSalesReport(Long.MIN_VALUE, Long.MAX_VALUE);
+    }
+
+    /** Aggregates the sales of a time range; backends that can read their log directly override this. */
+    default SalesReport loadSalesReport(long from, long to) throws IOException {
+        return SalesAnalytics.aggregate(loadSales(from, to));
+    }
+
+    /** Records one sale, which already has its id and timestamp. */
+    void saveSale(Sale sale) throws IOException;
+
+    /**
+     * Records every sale of one checkout and removes the sold cars from the
+     * inventory as a single atomic write: either all of it is durable or none.
+     */
+    void saveCheckout(List<Sale> sales) throws IOException;
+
+    List<Testimony> loadVideoTestimonies() throws IOException;
+
+    void saveVideoTestimony(Customer customer, String filePath, String comments) throws IOException;
+
+    @Override
+    default void close() throws IOException {}
+}
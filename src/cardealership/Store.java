@@ -1,41 +1,48 @@
 package cardealership;
 
-import java.util.ArrayList;
 import java.util.List;
 
-public abstract class Store {
+/**
+ * A store and the items it stocks. Subclasses keep the inventory in
+ * whatever structure their queries need; the store itself holds none, so
+ * an item is stored once.
+ */
+public abstract class Store<T> {
+    private int id;
     private String storeType;
     private String storeName;
     private String storeLocation;
-    private List<Object> inventory;
 
     public Store() {
-        this.inventory = new ArrayList<>();
     }
 
     public Store(String type, String name, String location) {
         this.storeType = type;
         this.storeName = name;
         this.storeLocation = location;
-        this.inventory = new ArrayList<>();
     }
 
     // Getters and Setters
+    /** The store's number in a {@link StoreNetwork}; 0 until it joins one. */
+    public int getId() { return id; }
+    public void setId(int id) { this.id = id; }
     public String getStoreType() { return storeType; }
     public void setStoreType(String type) { this.storeType = type; }
     public String getStoreName() { return storeName; }
     public void setStoreName(String name) { this.storeName = name; }
     public String getStoreLocation() { return storeLocation; }
     public void setStoreLocation(String location) { this.storeLocation = location; }
-    
-    public List<Object> getInventory() { return inventory; }
-    public void addToInventory(Object item) { inventory.add(item); }
-    
+
+    /** The items in stock, as a snapshot. */
+    public abstract List<T> getInventory();
+
+    public abstract int getInventorySize();
+
     public abstract void displayInventory();
 
     @Override
     public String toString() {
-        return String.format("Store Type: %s\nStore Name: %s\nLocation: %s", 
+        return String.format("Store Type: %s\nStore Name: %s\nLocation: %s",
             storeType, storeName, storeLocation);
     }
-}
\ No newline at end of file
+}
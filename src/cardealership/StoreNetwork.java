@@ -0,0 +1,242 @@
+package cardealership;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+
+/**
+ * The stores of the dealership: the home store this instance sells from,
+ * with id {@link #HOME}, and any number of branch stores.
+ *
+ * Every store is a shard: a {@link CarDealership} holding its own cars and
+ * indexes, guarded by its own lock, so work at one location never waits on
+ * another. A car is in exactly one store. Queries over all stores run on
+ * each store in parallel and are merged in store order. A transfer locks
+ * the two stores it moves a car between, lower id first.
+ *
+ * Branch stores and the cars moved to them are saved in the files of
+ * {@link StoreRegistry}; the home store and every car keep being saved by
+ * the storage backend.
+ */
+public class StoreNetwork {
+    public static final int HOME = 1;
+
+    // A store and the lock guarding it
+    private static final class Shard {
+        final ReadWriteLock lock;
+        volatile CarDealership store;
+
+        Shard(CarDealership store, ReadWriteLock lock) {
+            this.store = store;
+            this.lock = lock;
+        }
+
+        <R> R read(Function<CarDealership, R> query) {
+            lock.readLock().lock();
+            try {
+                return query.apply(store);
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+    }
+
+    private final ConcurrentSkipListMap<Integer, Shard> shards = new ConcurrentSkipListMap<>();
+
+    /** A network of {@code home} alone, guarded by {@code homeLock}, which its owner also uses for it. */
+    public StoreNetwork(CarDealership home, ReadWriteLock homeLock) {
+        home.setId(HOME);
+        shards.put(HOME, new Shard(home, homeLock));
+    }
+
+    /**
+     * Adds the saved branch stores and puts every car in its store:
+     * {@code stock} maps the ids of cars away from home to their store.
+     * A branch with the home store's id, or one already taken, is reported
+     * and skipped. Cars of unknown stores go home. For loading, before the
+     * network is shared.
+     */
+    void load(List<CarDealership> branches, List<Car> cars, Map<Integer, Integer> stock) {
+        for (CarDealership branch : branches) {
+            if (branch.getId() <= HOME || shards.containsKey(branch.getId())) {
+                DataManager.reportError("Store " + branch.getStoreName() + " has id " + branch.getId()
+                    + ", which is taken, skipped");
+                continue;
+            }
+            shards.put(branch.getId(), new Shard(branch, new ReentrantReadWriteLock()));
+        }
+        CarDealership home = shards.get(HOME).store;
+        List<Car> homeCars = new ArrayList<>(cars.size());
+        for (Car car : cars) {
+            Shard shard = shards.get(stock.getOrDefault(car.getId(), HOME));
+            if (shard == null || shard.store == home) {
+                homeCars.add(car);
+            } else {
+                shard.store.addCar(car);
+            }
+        }
+        home.addCars(homeCars);
+    }
+
+    /** Replaces the home store; the caller holds the home lock. */
+    void setHome(CarDealership home) {
+        home.setId(HOME);
+        shards.get(HOME).store = home;
+    }
+
+    // Stores
+
+    /** Opens a branch store with the next free id. */
+    public CarDealership addStore(String name, String location) {
+        synchronized (shards) {
+            CarDealership store = new CarDealership(name, location);
+            store.setId(shards.lastKey() + 1);
+            DataManager.addStore(store);
+            shards.put(store.getId(), new Shard(store, new ReentrantReadWriteLock()));
+            return store;
+        }
+    }
+
+    /** The stores, home first; use the queries below to read their stock. */
+    public List<CarDealership> getStores() {
+        List<CarDealership> stores = new ArrayList<>(shards.size());
+        for (Shard shard : shards.values()) {
+            stores.add(shard.store);
+        }
+        return stores;
+    }
+
+    /** The store with {@code id}, or {@code null} if there is none. */
+    public CarDealership getStore(int id) {
+        Shard shard = shards.get(id);
+        return shard == null ? null : shard.store;
+    }
+
+    // Queries over every store
+
+    /** The cars of {@code brand} ({@code null} for any) priced between the bounds, per store, cheapest first. */
+    public Map<CarDealership, List<Car>> findStock(String brand, double minPrice, double maxPrice) {
+        return fanOut(store -> brand == null
+            ? store.findCars(minPrice, maxPrice)
+            : store.findCars(brand, minPrice, maxPrice));
+    }
+
+    /** Statistics of the cars of {@code brand} ({@code null} for any) priced between the bounds, per store. */
+    public Map<CarDealership, InventoryColumns.Stats> stockStats(String brand, double minPrice, double maxPrice) {
+        return fanOut(store -> brand == null
+            ? store.getColumns().stats(minPrice, maxPrice)
+            : store.getColumns().stats(brand, minPrice, maxPrice));
+    }
+
+    /** The store that has the car with {@code carId}, or {@code null} if none has. */
+    public CarDealership storeOf(int carId) {
+        for (Shard shard : shards.values()) {
+            CarDealership store = shard.read(s -> s.getCar(carId) != null ? s : null);
+            if (store != null) {
+                return store;
+            }
+        }
+        return null;
+    }
+
+    /** Every car of every store, home first. Reads one store after the other, so may be called holding a store lock. */
+    public List<Car> getAllCars() {
+        List<Car> cars = new ArrayList<>();
+        for (Shard shard : shards.values()) {
+            cars.addAll(shard.read(CarDealership::getCars));
+        }
+        return cars;
+    }
+
+    /** The store of every car away from the home store, by car id. */
+    Map<Integer, Integer> getBranchStock() {
+        Map<Integer, Integer> stock = new LinkedHashMap<>();
+        for (Shard shard : shards.values()) {
+            if (shard.store.getId() != HOME) {
+                for (Car car : shard.read(CarDealership::getCars)) {
+                    stock.put(car.getId(), shard.store.getId());
+                }
+            }
+        }
+        return stock;
+    }
+
+    // Runs the query on every store at once, each under its read lock. The
+    // queries run on other threads, so the caller must not hold a store lock.
+    private <R> Map<CarDealership, R> fanOut(Function<CarDealership, R> query) {
+        List<Shard> all = new ArrayList<>(shards.values());
+        List<CompletableFuture<R>> results = new ArrayList<>(all.size());
+        for (Shard shard : all) {
+            results.add(all.size() == 1
+                ? CompletableFuture.completedFuture(shard.read(query))
+                : CompletableFuture.supplyAsync(() -> shard.read(query)));
+        }
+        Map<CarDealership, R> merged = new LinkedHashMap<>();
+        for (int i = 0; i < all.size(); i++) {
+            merged.put(all.get(i).store, results.get(i).join());
+        }
+        return merged;
+    }
+
+    // Transfers
+
+    /**
+     * Moves the car with {@code carId} from one store to another.
+     *
+     * @throws IllegalArgumentException if a store does not exist or they are the same
+     * @throws IllegalStateException if the car is not in stock at the source or is in a cart
+     */
+    public Car transfer(int carId, int fromStore, int toStore) {
+        if (fromStore == toStore) {
+            throw new IllegalArgumentException("A car can only be moved to another store!");
+        }
+        Shard from = shard(fromStore);
+        Shard to = shard(toStore);
+        Lock first = (fromStore < toStore ? from : to).lock.writeLock();
+        Lock second = (fromStore < toStore ? to : from).lock.writeLock();
+        first.lock();
+        try {
+            second.lock();
+            try {
+                CarDealership source = from.store;
+                Car car = source.getCar(carId);
+                if (car == null) {
+                    throw new IllegalStateException("Car " + carId + " is not in stock at "
+                        + source.getStoreName() + "!");
+                }
+                // Reserving takes no store lock, so claim the car by compare-and-set
+                if (!source.getReservations().withdraw(car)) {
+                    throw new IllegalStateException(car + " is in a customer's cart!");
+                }
+                try {
+                    to.store.addCar(car);
+                } catch (RuntimeException e) {
+                    source.getReservations().forget(car);
+                    throw e;
+                }
+                source.removeCar(car);
+                DataManager.saveStock(carId, toStore);
+                return car;
+            } finally {
+                second.unlock();
+            }
+        } finally {
+            first.unlock();
+        }
+    }
+
+    private Shard shard(int storeId) {
+        Shard shard = shards.get(storeId);
+        if (shard == null) {
+            throw new IllegalArgumentException("Unknown store " + storeId + "!");
+        }
+        return shard;
+    }
+}
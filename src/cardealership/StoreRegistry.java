@@ -0,0 +1,103 @@
+package cardealership;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The branch stores of a {@link StoreNetwork} and where their cars are, in
+ * two files next to the other data files, whichever storage backend is in
+ * use:
+ * <pre>
+ * stores.txt   id,name,location   one line per branch store
+ * stock.txt    carId,storeId      one line per car moved or added away from the home store
+ * </pre>
+ * The home store is the one in {@code dealership.txt} and has no line.
+ * Both files are appended to; in {@code stock.txt} a later line for a car
+ * overrides an earlier one, and cars without a line are at the home store.
+ * {@link #writeStock} compacts it to one line per car still away.
+ */
+final class StoreRegistry {
+    static final String STORES_FILE = "stores.txt";
+    static final String STOCK_FILE = "stock.txt";
+
+    private StoreRegistry() {}
+
+    static List<CarDealership> readStores(Path directory) throws IOException {
+        List<CarDealership> stores = new ArrayList<>();
+        Path file = directory.resolve(STORES_FILE);
+        if (!Files.exists(file)) {
+            return stores;
+        }
+        try (CsvReader csv = new CsvReader(Files.newInputStream(file))) {
+            while (csv.next()) {
+                if (csv.fieldCount() != 3) {
+                    continue;  // torn by a crash while appending
+                }
+                CarDealership store = new CarDealership(csv.getString(1), csv.getString(2));
+                store.setId(csv.getInt(0));
+                stores.add(store);
+            }
+        }
+        return stores;
+    }
+
+    static void appendStore(Path directory, CarDealership store) throws IOException {
+        append(directory.resolve(STORES_FILE), String.join(",", String.valueOf(store.getId()),
+            CsvReader.field(store.getStoreName()), CsvReader.field(store.getStoreLocation())));
+    }
+
+    /** The store of every car away from the home store, by car id. */
+    static Map<Integer, Integer> readStock(Path directory) throws IOException {
+        Map<Integer, Integer> stock = new HashMap<>();
+        Path file = directory.resolve(STOCK_FILE);
+        if (!Files.exists(file)) {
+            return stock;
+        }
+        try (CsvReader csv = new CsvReader(Files.newInputStream(file))) {
+            while (csv.next()) {
+                if (csv.fieldCount() != 2) {
+                    continue;
+                }
+                int carId = csv.getInt(0);
+                int storeId = csv.getInt(1);
+                if (storeId == StoreNetwork.HOME) {
+                    stock.remove(carId);
+                } else {
+                    stock.put(carId, storeId);
+                }
+            }
+        }
+        return stock;
+    }
+
+    static void appendStock(Path directory, int carId, int storeId) throws IOException {
+        append(directory.resolve(STOCK_FILE), carId + "," + storeId);
+    }
+
+    /** Replaces {@code stock.txt} with {@code stock}, the store of every car away from the home store. */
+    static void writeStock(Path directory, Map<Integer, Integer> stock) throws IOException {
+        Path temp = directory.resolve(STOCK_FILE + ".tmp");
+        try (BufferedWriter writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+            for (Map.Entry<Integer, Integer> entry : stock.entrySet()) {
+                writer.write(entry.getKey() + "," + entry.getValue());
+                writer.newLine();
+            }
+        }
+        Files.move(temp, directory.resolve(STOCK_FILE),
+            StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static void append(Path file, String line) throws IOException {
+        Files.writeString(file, line + System.lineSeparator(), StandardCharsets.UTF_8,
+            StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    }
+}
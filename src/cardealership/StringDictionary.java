@@ -0,0 +1,166 @@
+package cardealership;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Stable integer codes for the low-cardinality strings of the data set:
+ * brands, models and store locations.
+ *
+ * In memory, {@link #intern} returns one shared instance per distinct value,
+ * so a hundred thousand cars of a few dozen brands hold a few dozen brand
+ * strings. On disk, the sales log and the binary snapshot store the code
+ * instead of the text. Codes are assigned in order of first use and never
+ * change: {@code dictionary.txt} is append-only, one value per line, and the
+ * value on line {@code n} has code {@code n}. Code 0 stands for no value.
+ *
+ * New values are appended at once but only synced by {@link #sync}, which
+ * writers call before a record that uses the codes becomes durable. A torn
+ * last line left by a crash is dropped when the dictionary is opened.
+ */
+public class StringDictionary {
+    static final String FILE_NAME = "dictionary.txt";
+
+    // One dictionary per data directory, shared by every backend using it
+    private static final Map<Path, StringDictionary> OPEN = new HashMap<>();
+
+    private final Path file;
+    private final ConcurrentHashMap<String, Integer> codes = new ConcurrentHashMap<>();
+    private volatile String[] values = new String[16];
+    private volatile boolean loaded;
+    private int size;
+    private boolean dirty;
+    private IOException writeError;
+
+    private StringDictionary(Path file) {
+        this.file = file;
+    }
+
+    /** Returns the dictionary of {@code directory}. */
+    static synchronized StringDictionary open(Path directory) {
+        return OPEN.computeIfAbsent(directory.toAbsolutePath().normalize(),
+            path -> new StringDictionary(path.resolve(FILE_NAME)));
+    }
+
+    /** The shared instance equal to {@code value}, adding the value if it is new. */
+    public String intern(String value) {
+        return value == null ? null : value(code(value));
+    }
+
+    /** The code of {@code value}, assigning the next one if it is new. */
+    public int code(String value) {
+        if (value == null) {
+            return 0;
+        }
+        load();
+        Integer code = codes.get(value);
+        return code != null ? code : add(value);
+    }
+
+    /** The value with {@code code}, {@code null} for 0. */
+    public String value(int code) {
+        load();
+        String[] current = values;
+        if (code < 0 || code >= current.length || (code > 0 && current[code] == null)) {
+            throw new IllegalArgumentException("Unknown dictionary code " + code);
+        }
+        return current[code];
+    }
+
+    /**
+     * Makes every code handed out so far durable.
+     *
+     * @throws IOException if a value could not be written, now or when it was added
+     */
+    public synchronized void sync() throws IOException {
+        if (writeError != null) {
+            throw writeError;
+        }
+        if (dirty) {
+            try (FileOutputStream out = new FileOutputStream(file.toFile(), true)) {
+                out.getFD().sync();
+            }
+            dirty = false;
+        }
+    }
+
+    private synchronized int add(String value) {
+        Integer existing = codes.get(value);
+        if (existing != null) {
+            return existing;
+        }
+        // Blank lines are skipped when reading, so the empty string is written quoted
+        String line = (value.isEmpty() ? "\"\"" : CsvReader.field(value)) + "\n";
+        try {
+            Files.writeString(file, line, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+            dirty = true;
+        } catch (IOException e) {
+            // The code stays usable in memory; whoever syncs next reports the failure
+            writeError = e;
+        }
+        return put(value);
+    }
+
+    // The caller holds the lock
+    private int put(String value) {
+        int code = ++size;
+        if (code >= values.length) {
+            values = Arrays.copyOf(values, values.length * 2);
+        }
+        values[code] = value;
+        codes.put(value, code);
+        return code;
+    }
+
+    private void load() {
+        if (loaded) {
+            return;
+        }
+        synchronized (this) {
+            if (loaded) {
+                return;
+            }
+            if (Files.exists(file)) {
+                try {
+                    dropTornLine();
+                    try (CsvReader csv = new CsvReader(Files.newInputStream(file))) {
+                        while (csv.next()) {
+                            put(csv.fieldCount() == 1 ? csv.getString(0) : "");
+                        }
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException("Could not read " + file, e);
+                }
+            }
+            loaded = true;
+        }
+    }
+
+    private void dropTornLine() throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file.toFile(), "rw")) {
+            long length = raf.length();
+            long end = length;
+            while (end > 0) {
+                raf.seek(end - 1);
+                if (raf.read() == '\n') {
+                    break;
+                }
+                end--;
+            }
+            if (end < length) {
+                raf.setLength(end);
+            }
+        }
+    }
+}
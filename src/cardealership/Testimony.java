@@ -0,0 +1,43 @@
+package cardealership;
+
+public class Testimony {
+    private int customerId;
+    private String customerName;
+    private String customerEmail;
+    private String filePath;
+    private String comments;
+
+    public Testimony() {}
+
+    public Testimony(int customerId, String filePath, String comments) {
+        this.customerId = customerId;
+        this.filePath = filePath;
+        this.comments = comments;
+    }
+
+    /** A testimony recorded before customers had ids, naming the customer instead. */
+    public Testimony(String customerName, String customerEmail, String filePath, String comments) {
+        this.customerName = customerName;
+        this.customerEmail = customerEmail;
+        this.filePath = filePath;
+        this.comments = comments;
+    }
+
+    // Getters and Setters
+    public int getCustomerId() { return customerId; }
+    public void setCustomerId(int customerId) { this.customerId = customerId; }
+    public String getCustomerName() { return customerName; }
+    public void setCustomerName(String customerName) { this.customerName = customerName; }
+    public String getCustomerEmail() { return customerEmail; }
+    public void setCustomerEmail(String customerEmail) { this.customerEmail = customerEmail; }
+    public String getFilePath() { return filePath; }
+    public void setFilePath(String filePath) { this.filePath = filePath; }
+    public String getComments() { return comments; }
+    public void setComments(String comments) { this.comments = comments; }
+
+    @Override
+    public String toString() {
+        String customer = customerName != null ? customerName : "Customer #" + customerId;
+        return String.format("%s (%s): %s", customer, filePath, comments);
+    }
+}
@@ -0,0 +1,478 @@
+package cardealership;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * The original flat text file format: one comma separated record per line in
+ * {@code cars.txt}, {@code customers.txt} and so on. Sales go to the monthly
+ * segments of a {@link SalesLog}, with brand, model and location written as
+ * {@link StringDictionary} codes.
+ */
+public class TextStorage implements Storage {
+    private final String carsFile;
+    private final String customersFile;
+    private final String dealershipFile;
+    private final StringDictionary dictionary;
+    private final SalesLog salesLog;
+    private final String testimoniesFile;
+    private final Path checkoutFile;
+    private final Path carsTempFile;
+
+    public TextStorage(String directory) {
+        this.carsFile = directory + "/cars.txt";
+        this.customersFile = directory + "/customers.txt";
+        this.dealershipFile = directory + "/dealership.txt";
+        this.dictionary = StringDictionary.open(Paths.get(directory));
+        this.salesLog = new SalesLog(Paths.get(directory), dictionary);
+        this.testimoniesFile = directory + "/testimonies.txt";
+        this.checkoutFile = Paths.get(directory, "checkout.pending");
+        this.carsTempFile = Paths.get(directory, "cars.txt.tmp");
+    }
+
+    // Dealership methods
+    @Override
+    public void saveDealership(CarDealership dealership) throws IOException {
+        try (PrintWriter writer = new PrintWriter(new FileWriter(dealershipFile))) {
+            writer.println(dealership.getStoreName());
+            writer.println(dealership.getStoreLocation());
+        }
+    }
+
+    @Override
+    public CarDealership loadDealership() throws IOException {
+        File file = new File(dealershipFile);
+        if (!file.exists()) {
+            return null;
+        }
+
+        try (BufferedReader reader = new BufferedReader(new FileReader(dealershipFile))) {
+            String name = reader.readLine();
+            String location = reader.readLine();
+            if (name != null && location != null) {
+                return new CarDealership(name, location);
+            }
+        }
+        return null;
+    }
+
+    // Cars methods
+    @Override
+    public void saveCars(List<Car> cars) throws IOException {
+        try (PrintWriter writer = new PrintWriter(new FileWriter(carsFile))) {
+            for (Car car : cars) {
+                writer.println(formatCar(car));
+            }
+        }
+    }
+
+    @Override
+    public void addCar(Car car) throws IOException {
+        try (PrintWriter writer = new PrintWriter(new FileWriter(carsFile, true))) {
+            writer.println(formatCar(car));
+        }
+    }
+
+    @Override
+    public void addCars(List<Car> cars) throws IOException {
+        try (PrintWriter writer = new PrintWriter(new BufferedWriter(new FileWriter(carsFile, true)))) {
+            for (Car car : cars) {
+                writer.println(formatCar(car));
+            }
+        }
+    }
+
+    @Override
+    public void removeCar(Car car) throws IOException {
+        List<Car> cars = loadCars();
+        if (removeFirstMatch(cars, car)) {
+            saveCars(cars);
+        }
+    }
+
+    // Drop the first line describing the same car; with the id in every line that is the car itself
+    private static boolean removeFirstMatch(List<Car> cars, Car car) {
+        String line = formatCar(car);
+        for (int i = 0; i < cars.size(); i++) {
+            if (formatCar(cars.get(i)).equals(line)) {
+                cars.remove(i);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public List<Car> loadCars() throws IOException {
+        recoverCheckout();
+        return readAll(carsFile, TextStorage::readCar);
+    }
+
+    // Customers methods
+    @Override
+    public void saveCustomers(List<Customer> customers) throws IOException {
+        try (PrintWriter writer = new PrintWriter(new FileWriter(customersFile))) {
+            for (Customer customer : customers) {
+                writer.println(formatCustomer(customer));
+            }
+        }
+    }
+
+    @Override
+    public void addCustomer(Customer customer) throws IOException {
+        try (PrintWriter writer = new PrintWriter(new FileWriter(customersFile, true))) {
+            writer.println(formatCustomer(customer));
+        }
+    }
+
+    @Override
+    public List<Customer> loadCustomers() throws IOException {
+        return readAll(customersFile, TextStorage::readCustomer);
+    }
+
+    // Sales methods
+    @Override
+    public List<Sale> loadSales() throws IOException {
+        return salesLog.read(Long.MIN_VALUE, Long.MAX_VALUE);
+    }
+
+    @Override
+    public List<Sale> loadSales(long from, long to) throws IOException {
+        return salesLog.read(from, to);
+    }
+
+    @Override
+    public SalesReport loadSalesReport(long from, long to) throws IOException {
+        return SalesAnalytics.analyze(salesLog, from, to);
+    }
+
+    @Override
+    public void saveSale(Sale sale) throws IOException {
+        salesLog.append(salesLog.position(sale.getTimestamp()), formatSales(List.of(sale)));
+    }
+
+    /**
+     * Writes the remaining inventory to a temporary file and syncs it, then
+     * commits the checkout by syncing a {@link CheckoutIntent} that also
+     * lists the sold cars. Only after that are the sales appended and the new
+     * inventory moved into place.
+     */
+    @Override
+    public void saveCheckout(List<Sale> sales) throws IOException {
+        List<Car> cars = loadCars();
+        CheckoutIntent intent = new CheckoutIntent();
+        for (Sale sale : sales) {
+            removeFirstMatch(cars, sale.getCar());
+            intent.removals.add(formatCar(sale.getCar()));
+        }
+        writeInventory(carsTempFile, cars);
+
+        SalesLog.Position position = salesPosition(sales);
+        intent.salesSegment = position.segment;
+        intent.salesOffset = position.offset;
+        intent.sales.addAll(formatSales(sales));
+        intent.write(checkoutFile);
+        applyCheckout(intent);
+    }
+
+    private static void writeInventory(Path file, List<Car> cars) throws IOException {
+        List<String> lines = new ArrayList<>(cars.size());
+        for (Car car : cars) {
+            lines.add(formatCar(car));
+        }
+        CheckoutIntent.writeSynced(file, 0, CheckoutIntent.lines(lines));
+    }
+
+    private void applyCheckout(CheckoutIntent intent) throws IOException {
+        appendSales(new SalesLog.Position(intent.salesSegment, intent.salesOffset), intent.sales);
+        if (Files.exists(carsTempFile)) {
+            Files.move(carsTempFile, Paths.get(carsFile),
+                StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+        Files.delete(checkoutFile);
+    }
+
+    /**
+     * Finishes a checkout that was committed but interrupted, or drops one
+     * that was not. The remaining inventory is rebuilt from {@code cars.txt}
+     * and the sold cars rather than taken from the temporary file, which a
+     * crash may have left incomplete; if it was already moved into place the
+     * sold cars are simply no longer there to remove.
+     */
+    private void recoverCheckout() throws IOException {
+        CheckoutIntent intent = CheckoutIntent.read(checkoutFile);
+        Files.deleteIfExists(carsTempFile);
+        if (intent != null) {
+            List<Car> cars = readAll(carsFile, TextStorage::readCar);
+            for (String line : intent.removals) {
+                removeFirstMatch(cars, parseCar(line));
+            }
+            writeInventory(carsTempFile, cars);
+            applyCheckout(intent);
+        }
+    }
+
+    // All sales of a checkout are stamped with the same time by the caller
+    SalesLog.Position salesPosition(List<Sale> sales) throws IOException {
+        long timestamp = sales.isEmpty() ? System.currentTimeMillis() : sales.get(0).getTimestamp();
+        return salesLog.position(timestamp);
+    }
+
+    /** Formats sales for the log, making the dictionary codes they use durable first. */
+    List<String> formatSales(List<Sale> sales) throws IOException {
+        List<String> lines = new ArrayList<>(sales.size());
+        for (Sale sale : sales) {
+            if (sale.getId() <= 0) {
+                throw new IllegalArgumentException("A sale needs an id before it is saved");
+            }
+            lines.add(formatSale(sale, dictionary));
+        }
+        dictionary.sync();
+        return lines;
+    }
+
+    void appendSales(SalesLog.Position position, List<String> lines) throws IOException {
+        salesLog.append(position, lines);
+    }
+
+    @Override
+    public void saveVideoTestimony(Customer customer, String filePath, String comments) throws IOException {
+        try (PrintWriter writer = new PrintWriter(new FileWriter(testimoniesFile, true))) {
+            writer.println(formatTestimony(new Testimony(customer.getId(), filePath, comments)));
+        }
+    }
+
+    @Override
+    public List<Testimony> loadVideoTestimonies() throws IOException {
+        return readAll(testimoniesFile, TextStorage::readTestimony);
+    }
+
+    // Streams the records of one file through a single CsvReader
+    private static <T> List<T> readAll(String fileName, Function<CsvReader, T> read) throws IOException {
+        List<T> records = new ArrayList<>();
+        Path path = Paths.get(fileName);
+        if (!Files.exists(path)) {
+            return records;
+        }
+
+        try (CsvReader csv = new CsvReader(Files.newInputStream(path))) {
+            while (csv.next()) {
+                T record = read.apply(csv);
+                if (record != null) {
+                    records.add(record);
+                }
+            }
+        }
+        return records;
+    }
+
+    static String formatCar(Car car) {
+        return String.format("%d,%s,%s,%.2f",
+            car.getId(),
+            CsvReader.field(car.getModel()),
+            CsvReader.field(car.getBrand()),
+            car.getPrice());
+    }
+
+    static String formatCustomer(Customer customer) {
+        return String.format("%d,%s,%d,%s,%s,%s",
+            customer.getId(),
+            CsvReader.field(customer.getName()),
+            customer.getAge(),
+            CsvReader.field(customer.getAddress()),
+            CsvReader.field(customer.getPhone()),
+            CsvReader.field(customer.getEmail()));
+    }
+
+    // The sold car leaves the inventory, so its brand and model stay with the sale
+    static String formatSale(Sale sale, StringDictionary dictionary) {
+        return String.format("%d,%d,%s,%d,%d,%d,%d,%d,%.2f,%.2f,%.2f,%.2f",
+            sale.getId(),
+            sale.getTimestamp(),
+            CsvReader.field(sale.getTransactionId()),
+            dictionary.code(sale.getLocation()),
+            sale.getCar().getId(),
+            sale.getCustomer().getId(),
+            dictionary.code(sale.getCar().getBrand()),
+            dictionary.code(sale.getCar().getModel()),
+            sale.getBasePrice(),
+            sale.getTax(),
+            sale.getDiscount(),
+            sale.getFinalPrice());
+    }
+
+    static String formatTestimony(Testimony testimony) {
+        if (testimony.getCustomerId() <= 0) {
+            return String.join(",",
+                CsvReader.field(testimony.getCustomerName()),
+                CsvReader.field(testimony.getCustomerEmail()),
+                CsvReader.field(testimony.getFilePath()),
+                CsvReader.field(testimony.getComments()));
+        }
+        return String.join(",",
+            String.valueOf(testimony.getCustomerId()),
+            CsvReader.field(testimony.getFilePath()),
+            CsvReader.field(testimony.getComments()));
+    }
+
+    static Car parseCar(String line) {
+        return readCar(CsvReader.ofLine(line));
+    }
+
+    static Customer parseCustomer(String line) {
+        return readCustomer(CsvReader.ofLine(line));
+    }
+
+    /** Reads a car line: id, model, brand and price. Lines written before cars had ids lack the id. */
+    static Car readCar(CsvReader csv) {
+        int first = csv.fieldCount() - 3;
+        if (first != 0 && first != 1) {
+            return null;
+        }
+        Car car = new Car(
+            csv.getString(first),     // model
+            csv.getString(first + 1), // brand
+            csv.getDouble(first + 2)  // price
+        );
+        if (first > 0) {
+            car.setId(csv.getInt(0));
+        }
+        return car;
+    }
+
+    /** Reads a customer line: id, name, age, address, phone and email; older lines lack the id. */
+    static Customer readCustomer(CsvReader csv) {
+        int first = csv.fieldCount() - 5;
+        if (first != 0 && first != 1) {
+            return null;
+        }
+        Customer customer = new Customer(
+            csv.getString(first),     // name
+            csv.getInt(first + 1),    // age
+            csv.getString(first + 2), // address
+            csv.getString(first + 3), // phone
+            csv.getString(first + 4)  // email
+        );
+        if (first > 0) {
+            customer.setId(csv.getInt(0));
+        }
+        return customer;
+    }
+
+    /**
+     * The layouts sale lines have had, newest first. Current lines hold the
+     * sale id, timestamp, transaction id, location code, car and customer
+     * ids, brand and model codes and the four prices. Before that brand and
+     * model were written out and there was no location; before ids, lines
+     * named the customer instead (name and email after the model), and
+     * before that they had no timestamp or transaction id either.
+     */
+    enum SaleLayout {
+        CODED(12, 1, 3, 6, 8, true),
+        IDS(11, 1, -1, 5, 7, false),
+        DATED(10, 0, -1, 2, 6, false),
+        UNDATED(8, -1, -1, 0, 4, false);
+
+        final int fields;
+        /** Index of the timestamp, -1 if the layout has none. */
+        final int timestamp;
+        /** Index of the location code, -1 if the layout has none. */
+        final int location;
+        final int brand;
+        final int prices;
+        /** Whether location, brand and model are {@link StringDictionary} codes. */
+        final boolean coded;
+
+        SaleLayout(int fields, int timestamp, int location, int brand, int prices, boolean coded) {
+            this.fields = fields;
+            this.timestamp = timestamp;
+            this.location = location;
+            this.brand = brand;
+            this.prices = prices;
+            this.coded = coded;
+        }
+
+        boolean hasCustomerId() {
+            return this == CODED || this == IDS;
+        }
+
+        /** The layout of the current record, or {@code null} if it is not a sale. */
+        static SaleLayout of(CsvReader csv) {
+            return switch (csv.fieldCount()) {
+                case 12 -> CODED;
+                case 11 -> IDS;
+                case 10 -> DATED;
+                case 8 -> UNDATED;
+                default -> null;
+            };
+        }
+
+        /** Brand, model or location at {@code field}, decoded if the layout codes it. */
+        String text(CsvReader csv, int field, StringDictionary dictionary) {
+            return coded ? dictionary.value(csv.getInt(field)) : csv.getString(field);
+        }
+    }
+
+    /** The timestamp of the current record, 0 if it has none, or -1 if it is not a sale. */
+    static long saleTimestamp(CsvReader csv) {
+        SaleLayout layout = SaleLayout.of(csv);
+        if (layout == null) {
+            return -1;
+        }
+        return layout.timestamp >= 0 ? csv.getLong(layout.timestamp) : 0;
+    }
+
+    /**
+     * Reads a sale line in any {@link SaleLayout}. A sale line only names the
+     * car and refers to the customer, so both are partial: the car has its
+     * id, brand and model, the customer just its id (or, for older lines,
+     * name and email).
+     */
+    static Sale readSale(CsvReader csv, StringDictionary dictionary) {
+        SaleLayout layout = SaleLayout.of(csv);
+        if (layout == null) {
+            return null;
+        }
+        int brand = layout.brand;
+        int prices = layout.prices;
+        double basePrice = csv.getDouble(prices);
+        Car car = new Car(layout.text(csv, brand + 1, dictionary), layout.text(csv, brand, dictionary), basePrice);
+        Customer customer;
+        if (layout.hasCustomerId()) {
+            // The car and customer ids come just before the brand
+            car.setId(csv.getInt(brand - 2));
+            customer = new Customer();
+            customer.setId(csv.getInt(brand - 1));
+        } else {
+            customer = new Customer(csv.getString(brand + 2), 0, "", "", csv.getString(brand + 3));
+        }
+        Sale sale = new Sale(car, customer, basePrice,
+            csv.getDouble(prices + 1), csv.getDouble(prices + 2), csv.getDouble(prices + 3));
+        if (layout.timestamp >= 0) {
+            sale.setTimestamp(csv.getLong(layout.timestamp));
+            sale.setTransactionId(csv.getString(layout.timestamp + 1));
+        }
+        if (layout.hasCustomerId()) {
+            sale.setId(csv.getInt(0));
+        }
+        if (layout.location >= 0) {
+            sale.setLocation(dictionary.value(csv.getInt(layout.location)));
+        }
+        return sale;
+    }
+
+    /** Reads a testimony: customer id, file path and comments, or customer name and email for older lines. */
+    static Testimony readTestimony(CsvReader csv) {
+        return switch (csv.fieldCount()) {
+            case 3 -> new Testimony(csv.getInt(0), csv.getString(1), csv.getString(2));
+            case 4 -> new Testimony(csv.getString(0), csv.getString(1), csv.getString(2), csv.getString(3));
+            default -> null;
+        };
+    }
+}
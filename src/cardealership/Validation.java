@@ -0,0 +1,53 @@
+package cardealership;
+
+import java.util.regex.Pattern;
+
+/**
+ * Input rules for cars and customers, shared by the forms in {@link Main}
+ * and the bulk importer. Each check throws an
+ * {@link IllegalArgumentException} with a message for the user.
+ */
+public class Validation {
+    private static final Pattern EMAIL = Pattern.compile("^[A-Za-z0-9+_.-]+@(.+)$");
+    private static final Pattern PHONE = Pattern.compile("^[0-9()-]{10,}$");
+
+    private Validation() {}
+
+    public static void validateCustomerInput(String name, String age, String address, String phone, String email) {
+        if (name.isEmpty() || age.isEmpty() || address.isEmpty() || phone.isEmpty() || email.isEmpty()) {
+            throw new IllegalArgumentException("All fields are required!");
+        }
+
+        try {
+            int ageNum = Integer.parseInt(age);
+            if (ageNum < 18 || ageNum > 120) {
+                throw new IllegalArgumentException("Age must be between 18 and 120!");
+            }
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Age must be a valid number!");
+        }
+
+        if (!EMAIL.matcher(email).matches()) {
+            throw new IllegalArgumentException("Invalid email format!");
+        }
+
+        if (!PHONE.matcher(phone).matches()) {
+            throw new IllegalArgumentException("Invalid phone number format!");
+        }
+    }
+
+    public static void validateCarInput(String brand, String model, String price) {
+        if (brand.isEmpty() || model.isEmpty() || price.isEmpty()) {
+            throw new IllegalArgumentException("All fields are required!");
+        }
+
+        try {
+            double priceNum = Double.parseDouble(price);
+            if (priceNum <= 0) {
+                throw new IllegalArgumentException("Price must be greater than zero!");
+            }
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Price must be a valid number!");
+        }
+    }
+}
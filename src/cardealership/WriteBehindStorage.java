@@ -0,0 +1,292 @@
+package cardealership;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * Storage decorator that performs writes on a dedicated writer thread so that
+ * callers (the JavaFX application thread) never wait for the disk.
+ *
+ * Writes are queued in order in a bounded queue; when the queue is full the
+ * caller blocks until the writer catches up. A snapshot write
+ * ({@code saveCars}, {@code saveCustomers}, {@code saveDealership}) that is
+ * queued directly behind another not yet started snapshot of the same kind
+ * replaces it, so bursts of full saves become a single write.
+ *
+ * Reads first wait for all queued writes, so they always see earlier changes.
+ * Failed writes are passed to the error handler instead of being thrown.
+ */
+public class WriteBehindStorage implements Storage {
+    private static final int DEFAULT_CAPACITY = 1024;
+
+    interface Write {
+        void run() throws IOException;
+    }
+
+    private static class Task {
+        final String kind;
+        final boolean snapshot;
+        Write write;
+
+        Task(String kind, boolean snapshot, Write write) {
+            this.kind = kind;
+            this.snapshot = snapshot;
+            this.write = write;
+        }
+    }
+
+    private final Storage delegate;
+    private final Consumer<Exception> errorHandler;
+    private final int capacity;
+    private final ArrayDeque<Task> queue = new ArrayDeque<>();
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private final Condition notFull = lock.newCondition();
+    private final Condition progress = lock.newCondition();
+    private final Thread writer;
+
+    private long enqueued;
+    private long completed;
+    private boolean closed;
+
+    public WriteBehindStorage(Storage delegate, Consumer<Exception> errorHandler) {
+        this(delegate, errorHandler, DEFAULT_CAPACITY);
+    }
+
+    public WriteBehindStorage(Storage delegate, Consumer<Exception> errorHandler, int capacity) {
+        this.delegate = delegate;
+        this.errorHandler = errorHandler;
+        this.capacity = capacity;
+        this.writer = Thread.ofPlatform().name("write-behind").daemon(true).start(this::drain);
+    }
+
+    public Storage getDelegate() {
+        return delegate;
+    }
+
+    // Reads
+
+    @Override
+    public CarDealership loadDealership() throws IOException {
+        flush();
+        return delegate.loadDealership();
+    }
+
+    @Override
+    public List<Car> loadCars() throws IOException {
+        flush();
+        return delegate.loadCars();
+    }
+
+    @Override
+    public List<Customer> loadCustomers() throws IOException {
+        flush();
+        return delegate.loadCustomers();
+    }
+
+    @Override
+    public List<Sale> loadSales() throws IOException {
+        flush();
+        return delegate.loadSales();
+    }
+
+    @Override
+    public List<Sale> loadSales(long from, long to) throws IOException {
+        flush();
+        return delegate.loadSales(from, to);
+    }
+
+    @Override
+    public SalesReport loadSalesReport(long from, long to) throws IOException {
+        flush();
+        return delegate.loadSalesReport(from, to);
+    }
+
+    @Override
+    public List<Testimony> loadVideoTestimonies() throws IOException {
+        flush();
+        return delegate.loadVideoTestimonies();
+    }
+
+    // Writes
+
+    @Override
+    public void saveDealership(CarDealership dealership) {
+        submit("dealership", true, () -> delegate.saveDealership(dealership));
+    }
+
+    @Override
+    public void saveCars(List<Car> cars) {
+        List<Car> copy = new ArrayList<>(cars);
+        submit("cars", true, () -> delegate.saveCars(copy));
+    }
+
+    @Override
+    public void addCar(Car car) {
+        submit("car", false, () -> delegate.addCar(car));
+    }
+
+    @Override
+    public void addCars(List<Car> cars) {
+        List<Car> copy = new ArrayList<>(cars);
+        submit("cars", false, () -> delegate.addCars(copy));
+    }
+
+    @Override
+    public void removeCar(Car car) {
+        submit("car", false, () -> delegate.removeCar(car));
+    }
+
+    @Override
+    public void saveCustomers(List<Customer> customers) {
+        List<Customer> copy = new ArrayList<>(customers);
+        submit("customers", true, () -> delegate.saveCustomers(copy));
+    }
+
+    @Override
+    public void addCustomer(Customer customer) {
+        submit("customer", false, () -> delegate.addCustomer(customer));
+    }
+
+    @Override
+    public void saveSale(Sale sale) {
+        submit("sale", false, () -> delegate.saveSale(sale));
+    }
+
+    @Override
+    public void saveCheckout(List<Sale> sales) {
+        List<Sale> copy = new ArrayList<>(sales);
+        submit("checkout", false, () -> delegate.saveCheckout(copy));
+    }
+
+    @Override
+    public void saveVideoTestimony(Customer customer, String filePath, String comments) {
+        submit("testimony", false, () -> delegate.saveVideoTestimony(customer, filePath, comments));
+    }
+
+    /**
+     * Queues a write to a file kept next to the delegate's, in order with the
+     * delegate's writes and reported to the same error handler.
+     */
+    void submitFile(String kind, Write write) {
+        submit(kind, false, write);
+    }
+
+    private void submit(String kind, boolean snapshot, Write write) {
+        lock.lock();
+        try {
+            if (closed) {
+                throw new IllegalStateException("Storage is closed");
+            }
+            Task last = queue.peekLast();
+            if (snapshot && last != null && last.snapshot && last.kind.equals(kind)) {
+                last.write = write;
+                return;
+            }
+            while (queue.size() >= capacity) {
+                notFull.awaitUninterruptibly();
+            }
+            queue.addLast(new Task(kind, snapshot, write));
+            enqueued++;
+            notEmpty.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void drain() {
+        while (true) {
+            Task task;
+            lock.lock();
+            try {
+                while (queue.isEmpty() && !closed) {
+                    notEmpty.awaitUninterruptibly();
+                }
+                if (queue.isEmpty()) {
+                    return;
+                }
+                // Remove before running so a snapshot in progress is never replaced
+                task = queue.pollFirst();
+                notFull.signal();
+            } finally {
+                lock.unlock();
+            }
+
+            try {
+                task.write.run();
+            } catch (Exception e) {
+                errorHandler.accept(new IOException("Error saving " + task.kind + ": " + e.getMessage(), e));
+            }
+
+            lock.lock();
+            try {
+                completed++;
+                progress.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /** Blocks until every write queued before this call has been performed. */
+    public void flush() {
+        lock.lock();
+        try {
+            long target = enqueued;
+            while (completed < target) {
+                progress.awaitUninterruptibly();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Waits at most {@code timeout} for queued writes.
+     *
+     * @return {@code true} if everything queued before the call was written
+     */
+    public boolean awaitFlush(long timeout, TimeUnit unit) throws InterruptedException {
+        long remaining = unit.toNanos(timeout);
+        lock.lock();
+        try {
+            long target = enqueued;
+            while (completed < target) {
+                if (remaining <= 0) {
+                    return false;
+                }
+                remaining = progress.awaitNanos(remaining);
+            }
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Writes everything still queued, stops the writer and closes the delegate. */
+    @Override
+    public void close() throws IOException {
+        lock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            notEmpty.signal();
+        } finally {
+            lock.unlock();
+        }
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        delegate.close();
+    }
+}
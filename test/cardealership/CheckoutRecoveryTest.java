@@ -0,0 +1,147 @@
+package cardealership;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/** Recovery of a checkout interrupted by a crash, with the text and journaled backends. */
+class CheckoutRecoveryTest {
+    private static final String INTENT = "journal-checkout.pending";
+    private static final String TEXT_INTENT = "checkout.pending";
+    private static final String CARS_TEMP = "cars.txt.tmp";
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void committedIntentIsReplayed() throws IOException {
+        List<Car> cars = seed();
+        writeIntent(cars.subList(0, 2));
+
+        List<Car> loaded = new JournalStorage(directory.toString()).loadCars();
+
+        assertEquals(List.of(cars.get(2).getId()), ids(loaded));
+        assertFalse(Files.exists(directory.resolve(INTENT)));
+    }
+
+    @Test
+    void intentTornInTheRemovalsIsDropped() throws IOException {
+        List<Car> cars = seed();
+        writeIntent(cars.subList(0, 2));
+        Path intent = directory.resolve(INTENT);
+        String text = Files.readString(intent, StandardCharsets.UTF_8);
+        // Cut the file in the middle of the second removal, before the commit line
+        int secondRemoval = text.indexOf("\nR", text.indexOf("\nR") + 1) + 1;
+        truncate(intent, secondRemoval + 4);
+
+        List<Car> loaded = new JournalStorage(directory.toString()).loadCars();
+
+        assertEquals(ids(cars), ids(loaded));
+        assertFalse(Files.exists(intent));
+    }
+
+    @Test
+    void intentWithoutCommitLineIsNotRead() throws IOException {
+        List<Car> cars = seed();
+        writeIntent(cars.subList(0, 1));
+        Path intent = directory.resolve(INTENT);
+        String text = Files.readString(intent, StandardCharsets.UTF_8);
+        truncate(intent, text.lastIndexOf("commit "));
+
+        assertNull(CheckoutIntent.read(intent));
+        assertFalse(Files.exists(intent));
+    }
+
+    @Test
+    void textCheckoutWithTornInventoryIsRebuilt() throws IOException {
+        List<Car> cars = seedText();
+        // The temporary inventory was cut short, but the intent made it to disk
+        Files.writeString(directory.resolve(CARS_TEMP), "2,Mod", StandardCharsets.UTF_8);
+        writeTextIntent(cars.subList(0, 1));
+
+        List<Car> loaded = new TextStorage(directory.toString()).loadCars();
+
+        assertEquals(List.of(2, 3), ids(loaded));
+        assertFalse(Files.exists(directory.resolve(TEXT_INTENT)));
+        assertFalse(Files.exists(directory.resolve(CARS_TEMP)));
+    }
+
+    @Test
+    void textCheckoutAlreadyMovedIntoPlaceIsNotAppliedTwice() throws IOException {
+        List<Car> cars = seedText();
+        new TextStorage(directory.toString()).saveCars(cars.subList(1, 3));
+        writeTextIntent(cars.subList(0, 1));
+
+        List<Car> loaded = new TextStorage(directory.toString()).loadCars();
+
+        assertEquals(List.of(2, 3), ids(loaded));
+    }
+
+    // Three cars in cars.txt, with the journal seeded from them
+    private List<Car> seed() throws IOException {
+        List<Car> cars = seedText();
+        new JournalStorage(directory.toString()).loadCars();
+        return cars;
+    }
+
+    // Three cars in cars.txt
+    private List<Car> seedText() throws IOException {
+        List<Car> cars = new ArrayList<>();
+        for (int i = 1; i <= 3; i++) {
+            Car car = new Car("Model " + i, "Brand", 10000 * i);
+            car.setId(i);
+            cars.add(car);
+        }
+        new TextStorage(directory.toString()).saveCars(cars);
+        return cars;
+    }
+
+    private void writeTextIntent(List<Car> sold) throws IOException {
+        CheckoutIntent intent = new CheckoutIntent();
+        intent.salesSegment = "2026-01";
+        intent.salesOffset = 0;
+        for (Car car : sold) {
+            intent.removals.add(TextStorage.formatCar(car));
+        }
+        intent.write(directory.resolve(TEXT_INTENT));
+    }
+
+    // A committed checkout of the cars that crashed before any data file was written
+    private void writeIntent(List<Car> sold) throws IOException {
+        CheckoutIntent intent = new CheckoutIntent();
+        intent.salesSegment = "2026-01";
+        intent.salesOffset = 0;
+        intent.journalSegment = 1;
+        intent.journalOffset = 0;
+        for (Car car : sold) {
+            intent.removals.add(TextStorage.formatCar(car));
+        }
+        intent.write(directory.resolve(INTENT));
+    }
+
+    private static void truncate(Path file, long length) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.truncate(length);
+        }
+    }
+
+    private static List<Integer> ids(List<Car> cars) {
+        List<Integer> ids = new ArrayList<>();
+        for (Car car : cars) {
+            ids.add(car.getId());
+        }
+        return ids;
+    }
+}
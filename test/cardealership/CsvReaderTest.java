@@ -0,0 +1,167 @@
+package cardealership;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/** Splitting and quoting of {@link CsvReader}, and its number parsing against the JDK parsers. */
+class CsvReaderTest {
+
+    @Test
+    void quotedFieldsRoundTrip() throws IOException {
+        List<String> values =
+            List.of("plain", "with, comma", "say \"hi\"", "two\nlines", "cr\r\nlf", "", "\"", "ünï");
+        StringBuilder line = new StringBuilder();
+        for (String value : values) {
+            line.append(line.length() == 0 ? "" : ",").append(CsvReader.field(value));
+        }
+
+        assertEquals(List.of(values), records(line + "\n"));
+    }
+
+    @Test
+    void fieldOnlyQuotesWhenNeeded() {
+        assertEquals("Toyota", CsvReader.field("Toyota"));
+        assertEquals("\"a,b\"", CsvReader.field("a,b"));
+        assertEquals("\"say \"\"hi\"\"\"", CsvReader.field("say \"hi\""));
+        assertEquals("", CsvReader.field(null));
+    }
+
+    @Test
+    void blankLinesAndLineEndingsAreSkipped() throws IOException {
+        assertEquals(List.of(List.of("a", "b"), List.of("c", ""), List.of("", "d")),
+            records("a,b\r\n\r\n\nc,\n,d"));
+    }
+
+    @Test
+    void textAfterAClosingQuoteIsIgnored() throws IOException {
+        assertEquals(List.of(List.of("quoted", "next")), records("\"quoted\"junk,next\n"));
+    }
+
+    @Test
+    void recordsSplitAcrossReadsAndLargerThanTheBuffer() throws IOException {
+        String big = "x".repeat(200_000) + ",\"" + "y,".repeat(50_000) + "\"";
+        String text = "a,b\n" + big + "\nc\n";
+        CsvReader csv = new CsvReader(new TrickleInputStream(text.getBytes(StandardCharsets.UTF_8), 7));
+
+        assertTrue(csv.next());
+        assertEquals("b", csv.getString(1));
+        assertTrue(csv.next());
+        assertEquals(200_000, csv.getString(0).length());
+        assertEquals("y,".repeat(50_000), csv.getString(1));
+        assertTrue(csv.next());
+        assertEquals("c", csv.getString(0));
+        assertFalse(csv.next());
+    }
+
+    @Test
+    void missingFieldIsAnError() {
+        CsvReader csv = CsvReader.ofLine("a,b");
+        assertThrows(IndexOutOfBoundsException.class, () -> csv.getString(2));
+    }
+
+    @Test
+    void integersMatchTheJdk() {
+        List<String> values = new ArrayList<>(List.of("0", "7", "-7", "+7", "007", "999999999", "1000000000",
+            "2147483647", "-2147483648", "123456789012345678", "-999999999999999999", "9223372036854775807"));
+        Random random = new Random(7);
+        for (int i = 0; i < 1000; i++) {
+            values.add(Long.toString(random.nextLong() >> random.nextInt(64)));
+        }
+        for (String value : values) {
+            CsvReader csv = CsvReader.ofLine(value);
+            assertEquals(Long.parseLong(value), csv.getLong(0));
+            if (fitsInt(value)) {
+                assertEquals(Integer.parseInt(value), csv.getInt(0));
+            } else {
+                assertThrows(NumberFormatException.class, () -> csv.getInt(0));
+            }
+        }
+        for (String value : List.of("", "-", "+", "1.5", "12a", " 1")) {
+            CsvReader csv = CsvReader.ofLine(value + ",x");
+            assertThrows(NumberFormatException.class, () -> csv.getInt(0));
+            assertThrows(NumberFormatException.class, () -> csv.getLong(0));
+        }
+    }
+
+    @Test
+    void decimalsMatchTheJdk() {
+        List<String> values = new ArrayList<>(List.of("0", "0.0", "-0.0", "24999.00", "0.1", "0.30", "-12.5", "+3.25",
+            ".5", "5.", "1e3", "2.5E-3", "123456789012345.6", "1234567890123456.7", "0.00000000000000000000001",
+            "Infinity", "NaN"));
+        Random random = new Random(13);
+        for (int i = 0; i < 5000; i++) {
+            double price = random.nextDouble() * Math.pow(10, random.nextInt(9));
+            values.add(String.format(Locale.ROOT, "%." + random.nextInt(6) + "f", price));
+            values.add(Double.toString(price));
+        }
+        for (String value : values) {
+            double expected = Double.parseDouble(value);
+            double parsed = CsvReader.ofLine(value).getDouble(0);
+            assertEquals(Double.doubleToLongBits(expected), Double.doubleToLongBits(parsed));
+        }
+        for (String value : List.of("", "-", "1.2.3", "12a")) {
+            CsvReader csv = CsvReader.ofLine(value + ",x");
+            assertThrows(NumberFormatException.class, () -> csv.getDouble(0));
+        }
+    }
+
+    private static boolean fitsInt(String value) {
+        long parsed = Long.parseLong(value);
+        return parsed >= Integer.MIN_VALUE && parsed <= Integer.MAX_VALUE;
+    }
+
+    private static List<List<String>> records(String text) throws IOException {
+        List<List<String>> records = new ArrayList<>();
+        try (CsvReader csv = new CsvReader(new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8)))) {
+            while (csv.next()) {
+                List<String> fields = new ArrayList<>();
+                for (int i = 0; i < csv.fieldCount(); i++) {
+                    fields.add(csv.getString(i));
+                }
+                records.add(fields);
+            }
+        }
+        return records;
+    }
+
+    // Hands out at most a few bytes per read, so records end up split across fills
+    private static final class TrickleInputStream extends InputStream {
+        private final byte[] bytes;
+        private final int step;
+        private int position;
+
+        TrickleInputStream(byte[] bytes, int step) {
+            this.bytes = bytes;
+            this.step = step;
+        }
+
+        @Override
+        public int read() {
+            return position < bytes.length ? bytes[position++] & 0xff : -1;
+        }
+
+        @Override
+        public int read(byte[] target, int offset, int length) {
+            if (position == bytes.length) {
+                return -1;
+            }
+            int count = Math.min(Math.min(length, step), bytes.length - position);
+            System.arraycopy(bytes, position, target, offset, count);
+            position += count;
+            return count;
+        }
+    }
+}
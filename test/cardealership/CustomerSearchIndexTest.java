@@ -0,0 +1,107 @@
+package cardealership;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/** {@link CustomerSearchIndex} against the linear scan of the old search box. */
+class CustomerSearchIndexTest {
+    private static final String[] NAMES = {"Anna Berg", "Theo", "Maria de la Cruz", "anne", "Bob Annison", "Zoë Ång"};
+    private static final String[] DOMAINS = {"example.com", "mail.org", "ANNA.net"};
+
+    @Test
+    void findsNameEmailAndPhoneSubstrings() {
+        CustomerSearchIndex index = new CustomerSearchIndex(List.of(
+            customer("Anna Berg", "anna@example.com", "555-0101"),
+            customer("Theo", "theo@mail.org", "555-0199"),
+            customer("Bob Annison", "bob@example.com", "555-0142")));
+
+        assertEquals(List.of("Anna Berg", "Bob Annison"), names(index.search("ANN")));
+        assertEquals(List.of("Theo"), names(index.search("mail.o")));
+        assertEquals(List.of("Bob Annison"), names(index.search("0142")));
+        assertEquals(List.of("Anna Berg", "Theo", "Bob Annison"), names(index.search("55")));
+        assertEquals(List.of(), names(index.search("berg@")));
+    }
+
+    @Test
+    void queryDoesNotMatchAcrossFields() {
+        CustomerSearchIndex index = new CustomerSearchIndex(List.of(customer("Theo", "x@y.z", "123")));
+
+        assertEquals(List.of(), index.search("theox"));
+        assertEquals(List.of(), index.search("y.z1"));
+    }
+
+    @Test
+    void emptyQueryReturnsEveryoneInOrder() {
+        CustomerSearchIndex index = new CustomerSearchIndex();
+        index.add(customer("B", "b@example.com", "2"));
+        index.add(customer("A", "a@example.com", "1"));
+
+        assertEquals(List.of("B", "A"), names(index.search("")));
+        assertEquals(List.of("B", "A"), names(index.search(null)));
+        assertEquals(2, index.size());
+    }
+
+    @Test
+    void matchesTheLinearScanOnRandomCustomers() {
+        Random random = new Random(42);
+        List<Customer> customers = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            String name = NAMES[random.nextInt(NAMES.length)] + (random.nextBoolean() ? "" : " " + i);
+            String email = name.replace(' ', '.').toLowerCase(Locale.ROOT)
+                + "@" + DOMAINS[random.nextInt(DOMAINS.length)];
+            customers.add(customer(name, email, "555-" + (1000 + random.nextInt(9000))));
+        }
+        CustomerSearchIndex index = new CustomerSearchIndex(customers.subList(0, 250));
+        for (Customer customer : customers.subList(250, customers.size())) {
+            index.add(customer);
+        }
+
+        for (int i = 0; i < 2000; i++) {
+            Customer source = customers.get(random.nextInt(customers.size()));
+            String field = switch (random.nextInt(3)) {
+                case 0 -> source.getName();
+                case 1 -> source.getEmail();
+                default -> source.getPhone();
+            };
+            int start = random.nextInt(field.length());
+            int end = Math.min(field.length(), start + 1 + random.nextInt(6));
+            String query = field.substring(start, end);
+            if (random.nextBoolean()) {
+                query = query.toUpperCase(Locale.ROOT);
+            }
+            assertEquals(scan(customers, query), index.search(query));
+        }
+    }
+
+    // The search box before the index
+    private static List<Customer> scan(List<Customer> customers, String query) {
+        String lower = query.toLowerCase(Locale.ROOT);
+        List<Customer> matches = new ArrayList<>();
+        for (Customer customer : customers) {
+            if (customer.getName().toLowerCase(Locale.ROOT).contains(lower)
+                    || customer.getEmail().toLowerCase(Locale.ROOT).contains(lower)
+                    || customer.getPhone().contains(query)) {
+                matches.add(customer);
+            }
+        }
+        return matches;
+    }
+
+    private static Customer customer(String name, String email, String phone) {
+        return new Customer(name, 30, "Address", phone, email);
+    }
+
+    private static List<String> names(List<Customer> customers) {
+        List<String> names = new ArrayList<>();
+        for (Customer customer : customers) {
+            names.add(customer.getName());
+        }
+        return names;
+    }
+}
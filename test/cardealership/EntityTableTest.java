@@ -0,0 +1,137 @@
+package cardealership;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/** Id-addressed storage of {@link EntityTable} and the isolation of its copy-on-write snapshots. */
+class EntityTableTest {
+    // EntityTable.CHUNK_SIZE
+    private static final int CHUNK = 1024;
+
+    private final EntityTable<String> table = new EntityTable<>();
+
+    @Test
+    void recordsAreFoundByIdAndListedInIdOrder() {
+        table.put(3, "c");
+        table.put(1, "a");
+        table.put(5000, "e");
+
+        assertEquals("a", table.get(1));
+        assertNull(table.get(2));
+        assertNull(table.get(0));
+        assertNull(table.get(-1));
+        assertNull(table.get(1 << 20));
+        assertEquals(List.of("a", "c", "e"), table.values());
+        assertEquals(3, table.size());
+    }
+
+    @Test
+    void replacingAndRemovingKeepTheSize() {
+        table.put(1, "a");
+        table.put(1, "b");
+        assertEquals(1, table.size());
+
+        assertEquals("b", table.remove(1));
+        assertNull(table.remove(1));
+        assertFalse(table.contains(1));
+        assertEquals(0, table.size());
+    }
+
+    @Test
+    void invalidIdIsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> table.put(0, "x"));
+        assertThrows(IllegalArgumentException.class, () -> table.put(-5, "x"));
+    }
+
+    @Test
+    void snapshotDoesNotSeeLaterChanges() {
+        table.put(1, "a");
+        table.put(2, "b");
+        EntityTable.Snapshot<String> snapshot = table.snapshot();
+
+        table.put(1, "a2");
+        table.remove(2);
+        table.put(3, "c");
+        table.put(3 * CHUNK, "far");
+
+        assertEquals("a", snapshot.get(1));
+        assertEquals("b", snapshot.get(2));
+        assertNull(snapshot.get(3));
+        assertNull(snapshot.get(3 * CHUNK));
+        assertEquals(2, snapshot.size());
+        assertEquals(List.of("a", "b"), snapshot.values());
+        assertEquals(List.of("a2", "c", "far"), table.values());
+    }
+
+    @Test
+    void everySnapshotKeepsItsOwnVersion() {
+        table.put(1, "v0");
+        EntityTable.Snapshot<String> first = table.snapshot();
+        table.put(1, "v1");
+        EntityTable.Snapshot<String> second = table.snapshot();
+        table.put(1, "v2");
+        // Two snapshots in a row share the chunk; the write after them must still copy it
+        EntityTable.Snapshot<String> third = table.snapshot();
+        EntityTable.Snapshot<String> fourth = table.snapshot();
+        table.put(1, "v3");
+
+        assertEquals("v0", first.get(1));
+        assertEquals("v1", second.get(1));
+        assertEquals("v2", third.get(1));
+        assertEquals("v2", fourth.get(1));
+        assertEquals("v3", table.get(1));
+    }
+
+    @Test
+    void untouchedChunksAreSharedAndTouchedOnesCopied() {
+        table.put(1, "a");
+        table.put(CHUNK + 1, "b");
+        EntityTable.Snapshot<String> snapshot = table.snapshot();
+
+        table.put(2, "a2");
+        table.put(3, "a3");
+
+        assertEquals(List.of("a", "b"), snapshot.values());
+        assertEquals(List.of("a", "a2", "a3", "b"), table.values());
+    }
+
+    @Test
+    void randomChangesMatchAMapAtEverySnapshot() {
+        Random random = new Random(11);
+        TreeMap<Integer, String> model = new TreeMap<>();
+        List<EntityTable.Snapshot<String>> snapshots = new ArrayList<>();
+        List<List<String>> expected = new ArrayList<>();
+
+        for (int step = 0; step < 20_000; step++) {
+            int id = 1 + random.nextInt(5 * CHUNK);
+            if (random.nextInt(4) == 0) {
+                assertEquals(model.remove(id), table.remove(id));
+            } else {
+                String record = id + "@" + step;
+                model.put(id, record);
+                table.put(id, record);
+            }
+            if (step % 1000 == 0) {
+                snapshots.add(table.snapshot());
+                expected.add(new ArrayList<>(model.values()));
+            }
+        }
+
+        assertEquals(new ArrayList<>(model.values()), table.values());
+        for (int i = 0; i < snapshots.size(); i++) {
+            assertEquals(expected.get(i), snapshots.get(i).values());
+            assertEquals(expected.get(i).size(), snapshots.get(i).size());
+        }
+        assertTrue(snapshots.size() > 1);
+    }
+}
@@ -0,0 +1,115 @@
+package cardealership;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/** Block-wise id hand-out of {@link IdAllocator} across clean and crashed restarts. */
+class IdAllocatorTest {
+    // IdAllocator.BLOCK
+    private static final int BLOCK = 256;
+
+    @TempDir
+    Path directory;
+
+    private final List<IOException> errors = new ArrayList<>();
+
+    @Test
+    void idsStartAtOneAndAreDensePerKind() {
+        IdAllocator ids = allocator();
+
+        assertEquals(1, ids.next(IdAllocator.Kind.CAR));
+        assertEquals(2, ids.next(IdAllocator.Kind.CAR));
+        assertEquals(1, ids.next(IdAllocator.Kind.CUSTOMER));
+        assertEquals(3, ids.allocate(IdAllocator.Kind.CAR, 10));
+        assertEquals(13, ids.next(IdAllocator.Kind.CAR));
+        assertEquals(List.of(), errors);
+    }
+
+    @Test
+    void cleanRestartContinuesWithTheExactNextId() {
+        IdAllocator ids = allocator();
+        for (int i = 0; i < 5; i++) {
+            ids.next(IdAllocator.Kind.SALE);
+        }
+        ids.close();
+
+        assertEquals(6, allocator().next(IdAllocator.Kind.SALE));
+    }
+
+    @Test
+    void crashSkipsAtMostOneBlock() {
+        IdAllocator ids = allocator();
+        int last = 0;
+        for (int i = 0; i < 300; i++) {
+            last = ids.next(IdAllocator.Kind.CAR);
+        }
+        // No close: the file still holds the bound of the block in use
+
+        int first = allocator().next(IdAllocator.Kind.CAR);
+        assertTrue(first > last);
+        assertTrue(first <= last + 1 + BLOCK);
+    }
+
+    @Test
+    void fileIsOnlyRewrittenWhenABlockRunsOut() throws IOException {
+        IdAllocator ids = allocator();
+        ids.next(IdAllocator.Kind.CAR);
+        String afterFirst = read();
+        for (int i = 0; i < BLOCK - 1; i++) {
+            ids.next(IdAllocator.Kind.CAR);
+        }
+
+        assertEquals(afterFirst, read());
+        ids.next(IdAllocator.Kind.CAR);
+        ids.next(IdAllocator.Kind.CAR);
+        assertFalse(afterFirst.equals(read()));
+    }
+
+    @Test
+    void observedIdsAreNeverHandedOut() {
+        IdAllocator ids = allocator();
+        ids.observe(IdAllocator.Kind.CUSTOMER, 41);
+        ids.observe(IdAllocator.Kind.CUSTOMER, 7);
+
+        assertEquals(42, ids.next(IdAllocator.Kind.CUSTOMER));
+        ids.close();
+        assertEquals(43, allocator().next(IdAllocator.Kind.CUSTOMER));
+    }
+
+    @Test
+    void closedAllocatorReopensFromTheFile() {
+        IdAllocator ids = allocator();
+        ids.next(IdAllocator.Kind.CAR);
+        ids.close();
+
+        assertEquals(2, ids.next(IdAllocator.Kind.CAR));
+    }
+
+    @Test
+    void damagedFileStartsOverAboveTheObservedIds() throws IOException {
+        Files.writeString(directory.resolve(IdAllocator.FILE_NAME), "car x\n", StandardCharsets.UTF_8);
+        IdAllocator ids = allocator();
+        ids.observe(IdAllocator.Kind.CAR, 9);
+
+        assertEquals(10, ids.next(IdAllocator.Kind.CAR));
+    }
+
+    private IdAllocator allocator() {
+        return new IdAllocator(directory.resolve(IdAllocator.FILE_NAME), errors::add);
+    }
+
+    private String read() throws IOException {
+        return Files.readString(directory.resolve(IdAllocator.FILE_NAME), StandardCharsets.UTF_8);
+    }
+}
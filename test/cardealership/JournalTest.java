@@ -0,0 +1,134 @@
+package cardealership;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/** Replay and compaction of a {@link Journal} of plain strings. */
+class JournalTest {
+    private static final long NEVER = Long.MAX_VALUE;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void replayAppliesAddsAndRemovesToTheBase() throws IOException {
+        Journal<String> journal = journal(NEVER, null);
+        assertEquals(List.of("a", "b"), journal.replay(() -> List.of("a", "b")));
+        journal.add("c");
+        journal.remove("a");
+
+        assertEquals(List.of("b", "c"), journal(NEVER, null).replay(JournalTest::noBase));
+    }
+
+    @Test
+    void firstReplayWritesTheSnapshotAndLaterOnesSkipTheBase() throws IOException {
+        journal(NEVER, null).replay(() -> List.of("a"));
+
+        assertTrue(Files.exists(directory.resolve("test.snapshot")));
+        assertEquals(List.of("a"), journal(NEVER, null).replay(JournalTest::noBase));
+    }
+
+    @Test
+    void removeTakesOutOneOfEqualRecords() throws IOException {
+        Journal<String> journal = journal(NEVER, null);
+        journal.replay(() -> List.of("a", "b", "a"));
+        journal.remove("a");
+
+        assertEquals(List.of("b", "a"), journal(NEVER, null).replay(JournalTest::noBase));
+    }
+
+    @Test
+    void compactionFoldsSealedSegmentsIntoTheSnapshot() throws IOException {
+        Journal<String> journal = journal(NEVER, null);
+        journal.replay(ArrayList::new);
+        journal.addAll(List.of("a", "b"));
+        journal.remove("a");
+        journal.compact();
+        journal.add("c");
+
+        assertEquals(List.of("test.journal.2"), segments());
+        assertTrue(Files.readString(directory.resolve("test.snapshot")).startsWith("#journal 1"));
+        assertEquals(List.of("b", "c"), journal(NEVER, null).replay(JournalTest::noBase));
+    }
+
+    @Test
+    void segmentPastTheThresholdIsCompactedInTheBackground() throws Exception {
+        ExecutorService compactor = Executors.newSingleThreadExecutor();
+        Journal<String> journal = journal(1, compactor);
+        journal.replay(ArrayList::new);
+        journal.add("a");
+        compactor.shutdown();
+        assertTrue(compactor.awaitTermination(10, TimeUnit.SECONDS));
+
+        assertEquals(List.of(), segments());
+        assertEquals(List.of("a"), journal(NEVER, null).replay(JournalTest::noBase));
+    }
+
+    @Test
+    void replaceDiscardsTheSegments() throws IOException {
+        Journal<String> journal = journal(NEVER, null);
+        journal.replay(() -> List.of("a"));
+        journal.add("b");
+        journal.replace(List.of("x", "y"));
+
+        assertEquals(List.of(), segments());
+        assertEquals(List.of("x", "y"), journal(NEVER, null).replay(JournalTest::noBase));
+    }
+
+    @Test
+    void removalGroupIsRedoneOnlyUntilFolded() throws IOException {
+        Journal<String> journal = journal(NEVER, null);
+        journal.replay(() -> List.of("a", "b", "c"));
+        int[] position = new int[1];
+        long[] offset = new long[1];
+        journal.removeAll(List.of("a"), (segment, at) -> {
+            position[0] = segment;
+            offset[0] = at;
+        });
+
+        // A crash before the group reached the disk: redoing it writes it once
+        Files.delete(directory.resolve("test.journal." + position[0]));
+        journal.redoRemovals(position[0], offset[0], List.of("a"));
+        journal.redoRemovals(position[0], offset[0], List.of("a"));
+        assertEquals(List.of("b", "c"), journal(NEVER, null).replay(JournalTest::noBase));
+
+        journal.compact();
+        journal.redoRemovals(position[0], offset[0], List.of("b"));
+        assertFalse(Files.exists(directory.resolve("test.journal." + position[0])));
+        assertEquals(List.of("b", "c"), journal(NEVER, null).replay(JournalTest::noBase));
+    }
+
+    private Journal<String> journal(long threshold, ExecutorService compactor) {
+        return new Journal<>(directory, "test", Function.identity(), Function.identity(), threshold, compactor);
+    }
+
+    private static List<String> noBase() {
+        throw new AssertionError("the base is only read before the first snapshot");
+    }
+
+    private List<String> segments() throws IOException {
+        List<String> names = new ArrayList<>();
+        try (Stream<Path> files = Files.list(directory)) {
+            files.map(path -> path.getFileName().toString())
+                 .filter(name -> name.startsWith("test.journal."))
+                 .sorted()
+                 .forEach(names::add);
+        }
+        return names;
+    }
+}
@@ -0,0 +1,129 @@
+package cardealership;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/** {@link PricingRules}: the default tiers against the rules they replaced, and reading {@code pricing.txt}. */
+class PricingRulesTest {
+    private static final double CENT = 1e-6;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void defaultTiersSwitchExactlyAtTheOldThresholds() {
+        PricingRules rules = PricingRules.DEFAULT;
+        for (double threshold : new double[] {25000, 50000, 100000}) {
+            double below = Math.nextDown(threshold);
+            assertEquals(oldDiscountedTotal(below), below * (1 - rules.volumeDiscount(below)), CENT);
+            assertEquals(oldDiscountedTotal(threshold), threshold * (1 - rules.volumeDiscount(threshold)), CENT);
+        }
+        assertEquals(0, rules.volumeDiscount(0), 0);
+        assertEquals(0.20, rules.volumeDiscount(1e9), 0);
+    }
+
+    @Test
+    void defaultQuotesMatchTheOldPricing() {
+        PricingRules rules = PricingRules.DEFAULT;
+        for (double basePrice = 0; basePrice <= 120000; basePrice += 117.25) {
+            Quote quote = rules.quote(basePrice, 0, null, 0);
+            double subtotal = basePrice * 1.07;
+            assertEquals(basePrice * 0.07, quote.getTax(), CENT);
+            assertEquals(subtotal, quote.getSubtotal(), CENT);
+            assertEquals(oldDiscountedTotal(subtotal), quote.getFinalTotal(), CENT);
+        }
+    }
+
+    @Test
+    void quoteTotalsAgreeWithQuote() {
+        PricingRules rules = PricingRules.DEFAULT;
+        double[] baseTotals = {0, 1000, 23364.49, 23364.50, 46728.98, 93457.95, 250000};
+        double[] finalTotals = new double[baseTotals.length];
+        rules.quoteTotals(baseTotals, null, 0, finalTotals);
+
+        for (int i = 0; i < baseTotals.length; i++) {
+            assertEquals(rules.quote(baseTotals[i], 0, null, 0).getFinalTotal(), finalTotals[i], CENT);
+        }
+    }
+
+    @Test
+    void missingFileMeansTheDefaults() throws IOException {
+        assertEquals(PricingRules.DEFAULT, PricingRules.read(directory.resolve(PricingRules.FILE_NAME)));
+    }
+
+    @Test
+    void fileRulesReplaceTaxAndTiers() throws IOException {
+        PricingRules rules = read(
+            "# rules for the test",
+            "tax,,0.05",
+            "tax,Oslo,0.25",
+            "volume,10000,0.01",
+            "volume,20000,0.02",
+            "customer,5000,0.03",
+            "promotion,Toyota,0.10");
+
+        assertEquals(0.05, rules.taxRate(null), 0);
+        assertEquals(0.25, rules.taxRate("OSLO"), 0);
+        assertEquals(0.05, rules.taxRate("Bergen"), 0);
+        assertEquals(0, rules.volumeDiscount(9999.99), 0);
+        assertEquals(0.01, rules.volumeDiscount(10000), 0);
+        assertEquals(0.02, rules.volumeDiscount(100000), 0);
+        assertEquals(0, rules.customerDiscount(4999), 0);
+        assertEquals(0.03, rules.customerDiscount(5000), 0);
+        assertEquals(0.10, rules.promotion("toyota"), 0);
+        assertEquals(0, rules.promotion("Ford"), 0);
+    }
+
+    @Test
+    void fileWithoutVolumeRulesKeepsTheDefaultTiers() throws IOException {
+        PricingRules rules = read("tax,,0.10");
+
+        assertEquals(0.05, rules.volumeDiscount(25000), 0);
+        assertEquals(0.20, rules.volumeDiscount(100000), 0);
+    }
+
+    @Test
+    void discountsAddUpButNeverExceedTheSubtotal() throws IOException {
+        PricingRules rules = read("tax,,0", "volume,0,0.5", "customer,0,0.4", "promotion,Toyota,0.5");
+        Car car = new Car("Corolla", "Toyota", 1000);
+
+        Quote quote = rules.quote(List.of(car), null, 0);
+        assertEquals(1000, quote.getDiscount(), CENT);
+        assertEquals(0, quote.getFinalTotal(), CENT);
+    }
+
+    @Test
+    void badLinesAreRejected() {
+        assertThrows(IOException.class, () -> read("volume,abc,0.1"));
+        assertThrows(IOException.class, () -> read("volume,1000,1.5"));
+        assertThrows(IOException.class, () -> read("rebate,1000,0.1"));
+        assertThrows(IOException.class, () -> read("tax,0.07"));
+    }
+
+    // Pricing.calculateDiscountedTotal before the rules could be configured
+    private static double oldDiscountedTotal(double total) {
+        if (total >= 100000) {
+            return total * 0.8;
+        } else if (total >= 50000) {
+            return total * 0.9;
+        } else if (total >= 25000) {
+            return total * 0.95;
+        }
+        return total;
+    }
+
+    private PricingRules read(String... lines) throws IOException {
+        Path file = directory.resolve(PricingRules.FILE_NAME);
+        Files.writeString(file, String.join("\n", lines) + "\n", StandardCharsets.UTF_8);
+        return PricingRules.read(file);
+    }
+}
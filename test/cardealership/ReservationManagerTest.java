@@ -0,0 +1,166 @@
+package cardealership;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/** Reservations of {@link ReservationManager}, on a clock the tests move by hand. */
+class ReservationManagerTest {
+    private static final long TIMEOUT = 1000;
+
+    private final AtomicLong now = new AtomicLong(10_000);
+    private final ReservationManager reservations = new ReservationManager(TIMEOUT, now::get);
+
+    @Test
+    void onlyOneSessionHoldsACar() {
+        Car car = car(1);
+
+        assertTrue(reservations.reserve(car, "a"));
+        assertFalse(reservations.reserve(car, "b"));
+        assertTrue(reservations.reserve(car, "a"));
+        assertEquals(CarStatus.RESERVED, reservations.getStatus(car));
+        assertTrue(reservations.isAvailableTo(car, "a"));
+        assertFalse(reservations.isAvailableTo(car, "b"));
+    }
+
+    @Test
+    void onlyTheHolderCanRelease() {
+        Car car = car(1);
+        reservations.reserve(car, "a");
+
+        assertFalse(reservations.release(car, "b"));
+        assertTrue(reservations.release(car, "a"));
+        assertEquals(CarStatus.AVAILABLE, reservations.getStatus(car));
+        assertTrue(reservations.reserve(car, "b"));
+    }
+
+    @Test
+    void reservationExpiresAfterTheTimeout() {
+        Car car = car(1);
+        reservations.reserve(car, "a");
+
+        now.addAndGet(TIMEOUT - 1);
+        assertFalse(reservations.reserve(car, "b"));
+        now.addAndGet(1);
+        assertEquals(CarStatus.AVAILABLE, reservations.getStatus(car));
+        assertTrue(reservations.reserve(car, "b"));
+        assertFalse(reservations.isAvailableTo(car, "a"));
+    }
+
+    @Test
+    void reservingAgainExtendsTheReservation() {
+        Car car = car(1);
+        reservations.reserve(car, "a");
+        now.addAndGet(TIMEOUT - 1);
+        reservations.reserve(car, "a");
+        now.addAndGet(TIMEOUT - 1);
+
+        assertFalse(reservations.reserve(car, "b"));
+    }
+
+    @Test
+    void commitSellsEveryCar() {
+        List<Car> cars = List.of(car(1), car(2));
+        reservations.reserve(cars.get(0), "a");
+        reservations.reserve(cars.get(1), "a");
+
+        assertTrue(reservations.commit(cars, "a"));
+        assertEquals(CarStatus.SOLD, reservations.getStatus(cars.get(0)));
+        assertEquals(CarStatus.SOLD, reservations.getStatus(cars.get(1)));
+        now.addAndGet(10 * TIMEOUT);
+        assertFalse(reservations.reserve(cars.get(0), "b"));
+    }
+
+    @Test
+    void commitRollsBackWhenOneCarIsNoLongerHeld() {
+        List<Car> cars = List.of(car(1), car(2), car(3));
+        reservations.reserve(cars.get(0), "a");
+        reservations.reserve(cars.get(1), "a");
+        reservations.reserve(cars.get(2), "b");
+
+        assertFalse(reservations.commit(cars, "a"));
+        assertEquals(CarStatus.RESERVED, reservations.getStatus(cars.get(0)));
+        assertEquals(CarStatus.RESERVED, reservations.getStatus(cars.get(1)));
+        assertTrue(reservations.isAvailableTo(cars.get(0), "a"));
+        assertTrue(reservations.release(cars.get(1), "a"));
+    }
+
+    @Test
+    void commitFailsOnAnExpiredReservation() {
+        List<Car> cars = List.of(car(1), car(2));
+        reservations.reserve(cars.get(0), "a");
+        now.addAndGet(TIMEOUT / 2);
+        reservations.reserve(cars.get(1), "a");
+        now.addAndGet(TIMEOUT / 2);
+
+        assertFalse(reservations.commit(cars, "a"));
+        assertEquals(CarStatus.AVAILABLE, reservations.getStatus(cars.get(0)));
+        assertEquals(CarStatus.RESERVED, reservations.getStatus(cars.get(1)));
+    }
+
+    @Test
+    void withdrawTakesOnlyAFreeCar() {
+        Car held = car(1);
+        Car free = car(2);
+        reservations.reserve(held, "a");
+
+        assertFalse(reservations.withdraw(held));
+        assertTrue(reservations.withdraw(free));
+        assertFalse(reservations.reserve(free, "a"));
+        reservations.forget(free);
+        assertTrue(reservations.reserve(free, "a"));
+    }
+
+    @Test
+    void concurrentSessionsNeverShareACar() throws Exception {
+        int sessions = 8;
+        List<Car> cars = new ArrayList<>();
+        for (int i = 1; i <= 200; i++) {
+            cars.add(car(i));
+        }
+        AtomicInteger[] winners = new AtomicInteger[cars.size()];
+        for (int i = 0; i < winners.length; i++) {
+            winners[i] = new AtomicInteger();
+        }
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        for (int s = 0; s < sessions; s++) {
+            String session = "session-" + s;
+            threads.add(Thread.ofPlatform().start(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                for (int i = 0; i < cars.size(); i++) {
+                    if (reservations.reserve(cars.get(i), session)) {
+                        winners[i].incrementAndGet();
+                    }
+                }
+            }));
+        }
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        for (AtomicInteger winner : winners) {
+            assertEquals(1, winner.get());
+        }
+    }
+
+    private static Car car(int id) {
+        Car car = new Car("Model " + id, "Brand", 1000 * id);
+        car.setId(id);
+        return car;
+    }
+}
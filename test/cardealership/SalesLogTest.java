@@ -0,0 +1,161 @@
+package cardealership;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/** Monthly segments of the {@link SalesLog}, its index and the range reports read from it. */
+class SalesLogTest {
+    private static final long ALL_FROM = Long.MIN_VALUE;
+    private static final long ALL_TO = Long.MAX_VALUE;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void firstSaleOfANewMonthCompressesThePreviousOne() throws IOException {
+        SalesLog log = log();
+        append(log, day(2026, 1, 5), day(2026, 1, 20));
+        append(log, day(2026, 2, 1));
+
+        assertFalse(Files.exists(directory.resolve("sales-2026-01.txt")));
+        assertTrue(Files.exists(directory.resolve("sales-2026-01.txt.gz")));
+        assertTrue(Files.exists(directory.resolve("sales-2026-02.txt")));
+        assertEquals(List.of(day(2026, 1, 5), day(2026, 1, 20), day(2026, 2, 1)), times(log.read(ALL_FROM, ALL_TO)));
+    }
+
+    @Test
+    void saleDatedBeforeTheLatestMonthGoesToTheLatestSegment() throws IOException {
+        SalesLog log = log();
+        append(log, day(2026, 2, 1));
+        SalesLog.Position position = log.position(day(2026, 1, 31));
+
+        assertEquals("2026-02", position.segment);
+        assertEquals(Files.size(directory.resolve("sales-2026-02.txt")), position.offset);
+    }
+
+    @Test
+    void onlySegmentsOverlappingTheRangeAreSelected() throws IOException {
+        SalesLog log = log();
+        append(log, day(2026, 1, 5));
+        append(log, day(2026, 2, 10), day(2026, 2, 20));
+        append(log, day(2026, 3, 1));
+
+        assertEquals(List.of("2026-02"), keys(log.segments(day(2026, 2, 12), day(2026, 2, 15))));
+        assertEquals(List.of("2026-01", "2026-02"), keys(log.segments(day(2026, 1, 1), day(2026, 2, 10))));
+        assertEquals(List.of(), keys(log.segments(day(2026, 1, 6), day(2026, 2, 9))));
+        assertEquals(List.of(day(2026, 2, 20)), times(log.read(day(2026, 2, 11), day(2026, 2, 28))));
+    }
+
+    @Test
+    void indexIsReadBackAndCheckedAgainstTheFiles() throws IOException {
+        SalesLog log = log();
+        append(log, day(2026, 1, 5));
+        append(log, day(2026, 2, 10));
+        List<String> index = Files.readAllLines(directory.resolve(SalesLog.INDEX));
+        assertEquals(2, index.size());
+        assertTrue(index.get(1).startsWith("2026-02 " + day(2026, 2, 10) + " " + day(2026, 2, 10) + " 1 "));
+
+        // A sale that reached the segment but not the index, as after a crash
+        Files.writeString(directory.resolve("sales-2026-02.txt"), line(day(2026, 2, 25)) + "\n",
+            StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+        SalesLog reopened = log();
+
+        assertEquals(List.of("2026-02"), keys(reopened.segments(day(2026, 2, 21), day(2026, 2, 28))));
+        assertEquals(2, reopened.read(day(2026, 2, 1), day(2026, 2, 28)).size());
+    }
+
+    @Test
+    void damagedIndexIsRebuilt() throws IOException {
+        SalesLog log = log();
+        append(log, day(2026, 1, 5));
+        append(log, day(2026, 2, 10));
+        Files.writeString(directory.resolve(SalesLog.INDEX), "garbage\n", StandardCharsets.UTF_8);
+
+        assertEquals(List.of("2026-01"), keys(log().segments(day(2026, 1, 1), day(2026, 1, 31))));
+    }
+
+    @Test
+    void reportsCountTheSalesOfTheRange() throws IOException {
+        SalesLog log = log();
+        append(log, day(2026, 1, 5), day(2026, 1, 25));
+        append(log, day(2026, 2, 10), day(2026, 2, 20));
+
+        assertEquals(4, SalesAnalytics.analyze(log, ALL_FROM, ALL_TO).getTotal().getSales());
+        assertEquals(2, SalesAnalytics.analyze(log, day(2026, 1, 20), day(2026, 2, 15)).getTotal().getSales());
+        assertEquals(0, SalesAnalytics.analyze(log, day(2026, 3, 1), day(2026, 3, 31)).getTotal().getSales());
+    }
+
+    @Test
+    void undatedLinesGoWithTheirSegment() throws IOException {
+        Files.writeString(directory.resolve("sales.txt"), undatedLine() + "\n", StandardCharsets.UTF_8);
+        Files.writeString(directory.resolve("sales-2026-01.txt"),
+            line(day(2026, 1, 5)) + "\n" + line(day(2026, 1, 25)) + "\n" + undatedLine() + "\n",
+            StandardCharsets.UTF_8);
+        SalesLog log = log();
+        long from = day(2026, 1, 1);
+        long to = day(2026, 1, 20);
+
+        // The undated line of January counts as made at its first sale, the legacy file as made at 0
+        assertEquals(2, log.read(from, to).size());
+        assertEquals(2, SalesAnalytics.analyze(log, from, to).getTotal().getSales());
+        assertEquals(4, log.read(ALL_FROM, ALL_TO).size());
+        assertEquals(4, SalesAnalytics.analyze(log, ALL_FROM, ALL_TO).getTotal().getSales());
+        assertEquals(List.of(SalesLog.LEGACY_KEY), keys(log.segments(0, 0)));
+    }
+
+    private SalesLog log() {
+        return new SalesLog(directory, StringDictionary.open(directory));
+    }
+
+    // Appends one sale per timestamp, all at the position of the first
+    private static void append(SalesLog log, long... timestamps) throws IOException {
+        List<String> lines = new ArrayList<>();
+        for (long timestamp : timestamps) {
+            lines.add(line(timestamp));
+        }
+        log.append(log.position(timestamps[0]), lines);
+    }
+
+    // A sale line of the layout with a timestamp and the customer's name and email
+    private static String line(long timestamp) {
+        return timestamp + ",tx-" + timestamp + ",Toyota,Corolla,Ann,ann@example.com,20000.00,1400.00,0.00,21400.00";
+    }
+
+    private static String undatedLine() {
+        return "Toyota,Corolla,Ann,ann@example.com,20000.00,1400.00,0.00,21400.00";
+    }
+
+    private static long day(int year, int month, int day) {
+        return LocalDate.of(year, month, day).atTime(12, 0).atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    private static List<Long> times(List<Sale> sales) {
+        List<Long> times = new ArrayList<>();
+        for (Sale sale : sales) {
+            times.add(sale.getTimestamp());
+        }
+        return times;
+    }
+
+    private static List<String> keys(List<SalesLog.Segment> segments) {
+        List<String> keys = new ArrayList<>();
+        for (SalesLog.Segment segment : segments) {
+            keys.add(segment.key);
+        }
+        return keys;
+    }
+}
@@ -0,0 +1,290 @@
+package cardealership;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/** Ordering, coalescing and error handling of {@link WriteBehindStorage}. */
+class WriteBehindStorageTest {
+    // Filled on the writer thread, where a thrown assertion would only stop the writer
+    private final List<Exception> errors = Collections.synchronizedList(new ArrayList<>());
+
+    @Test
+    void writesReachTheBackendInOrder() throws IOException {
+        RecordingStorage backend = new RecordingStorage();
+        WriteBehindStorage storage = new WriteBehindStorage(backend, errors::add);
+        storage.addCar(car(1));
+        storage.removeCar(car(1));
+        storage.addCustomer(customer(2));
+        storage.addCar(car(3));
+        storage.flush();
+
+        assertEquals(List.of("addCar 1", "removeCar 1", "addCustomer 2", "addCar 3"), backend.calls());
+        storage.close();
+        assertEquals(List.of(), errors);
+    }
+
+    @Test
+    void snapshotsQueuedBackToBackBecomeOneWrite() throws Exception {
+        RecordingStorage backend = new RecordingStorage();
+        WriteBehindStorage storage = new WriteBehindStorage(backend, errors::add);
+        backend.holdNextWrite();
+        storage.addCar(car(1));
+        backend.awaitHeld();
+        storage.saveCars(List.of(car(1)));
+        storage.saveCars(List.of(car(1), car(2)));
+        storage.saveCars(List.of(car(1), car(2), car(3)));
+        backend.release();
+        storage.flush();
+
+        assertEquals(List.of("addCar 1", "saveCars 3"), backend.calls());
+        storage.close();
+        assertEquals(List.of(), errors);
+    }
+
+    @Test
+    void snapshotsWithAWriteBetweenAreNotMerged() throws Exception {
+        RecordingStorage backend = new RecordingStorage();
+        WriteBehindStorage storage = new WriteBehindStorage(backend, errors::add);
+        backend.holdNextWrite();
+        storage.addCar(car(1));
+        backend.awaitHeld();
+        storage.saveCars(List.of(car(1)));
+        storage.addCar(car(2));
+        storage.saveCars(List.of(car(1), car(2)));
+        storage.saveCustomers(List.of(customer(1)));
+        backend.release();
+        storage.flush();
+
+        assertEquals(List.of("addCar 1", "saveCars 1", "addCar 2", "saveCars 2", "saveCustomers 1"),
+            backend.calls());
+        storage.close();
+        assertEquals(List.of(), errors);
+    }
+
+    @Test
+    void snapshotIsCopiedWhenQueued() throws IOException {
+        RecordingStorage backend = new RecordingStorage();
+        WriteBehindStorage storage = new WriteBehindStorage(backend, errors::add);
+        List<Car> cars = new ArrayList<>(List.of(car(1)));
+        storage.saveCars(cars);
+        cars.add(car(2));
+        storage.flush();
+
+        assertEquals(List.of("saveCars 1"), backend.calls());
+        storage.close();
+        assertEquals(List.of(), errors);
+    }
+
+    @Test
+    void readsWaitForTheQueuedWrites() throws Exception {
+        RecordingStorage backend = new RecordingStorage();
+        WriteBehindStorage storage = new WriteBehindStorage(backend, errors::add);
+        backend.holdNextWrite();
+        storage.addCar(car(1));
+        backend.awaitHeld();
+        storage.addCar(car(2));
+        Thread releaser = Thread.ofPlatform().start(() -> {
+            sleep(50);
+            backend.release();
+        });
+
+        assertEquals(2, storage.loadCars().size());
+        releaser.join();
+        storage.close();
+        assertEquals(List.of(), errors);
+    }
+
+    @Test
+    void failedWriteIsReportedAndLaterWritesGoOn() throws IOException {
+        RecordingStorage backend = new RecordingStorage();
+        WriteBehindStorage storage = new WriteBehindStorage(backend, errors::add);
+        backend.failNextWrite();
+        storage.addCar(car(1));
+        storage.addCar(car(2));
+        storage.flush();
+
+        assertEquals(1, errors.size());
+        assertTrue(errors.get(0).getMessage().startsWith("Error saving car: "));
+        assertEquals(List.of("addCar 2"), backend.calls());
+        storage.close();
+    }
+
+    @Test
+    void closeWritesEverythingStillQueued() throws Exception {
+        RecordingStorage backend = new RecordingStorage();
+        WriteBehindStorage storage = new WriteBehindStorage(backend, errors::add, 2);
+        backend.holdNextWrite();
+        storage.addCar(car(1));
+        backend.awaitHeld();
+        storage.addCar(car(2));
+        storage.addCar(car(3));
+        backend.release();
+        storage.close();
+
+        assertEquals(List.of("addCar 1", "addCar 2", "addCar 3"), backend.calls());
+        assertTrue(backend.closed);
+        assertEquals(List.of(), errors);
+    }
+
+    private static Car car(int id) {
+        Car car = new Car("Model " + id, "Brand", 1000 * id);
+        car.setId(id);
+        return car;
+    }
+
+    private static Customer customer(int id) {
+        Customer customer = new Customer("Name " + id, 30, "Address", "555-0100", "name" + id + "@example.com");
+        customer.setId(id);
+        return customer;
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Records every write; the next write can be held back or made to fail
+    private static final class RecordingStorage implements Storage {
+        private final List<String> calls = Collections.synchronizedList(new ArrayList<>());
+        private final List<Car> cars = Collections.synchronizedList(new ArrayList<>());
+        private volatile CountDownLatch held;
+        private volatile CountDownLatch gate;
+        private volatile boolean holdNext;
+        private volatile boolean failNext;
+        volatile boolean closed;
+
+        List<String> calls() {
+            return new ArrayList<>(calls);
+        }
+
+        void holdNextWrite() {
+            held = new CountDownLatch(1);
+            gate = new CountDownLatch(1);
+            holdNext = true;
+        }
+
+        void awaitHeld() throws InterruptedException {
+            assertTrue(held.await(10, TimeUnit.SECONDS));
+        }
+
+        void release() {
+            gate.countDown();
+        }
+
+        void failNextWrite() {
+            failNext = true;
+        }
+
+        private void write(String call) throws IOException {
+            if (holdNext) {
+                holdNext = false;
+                held.countDown();
+                try {
+                    gate.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            if (failNext) {
+                failNext = false;
+                throw new IOException("disk full");
+            }
+            calls.add(call);
+        }
+
+        @Override
+        public CarDealership loadDealership() {
+            return null;
+        }
+
+        @Override
+        public void saveDealership(CarDealership dealership) throws IOException {
+            write("saveDealership");
+        }
+
+        @Override
+        public List<Car> loadCars() {
+            return new ArrayList<>(cars);
+        }
+
+        @Override
+        public void saveCars(List<Car> list) throws IOException {
+            write("saveCars " + list.size());
+        }
+
+        @Override
+        public void addCar(Car car) throws IOException {
+            write("addCar " + car.getId());
+            cars.add(car);
+        }
+
+        @Override
+        public void addCars(List<Car> list) throws IOException {
+            write("addCars " + list.size());
+            cars.addAll(list);
+        }
+
+        @Override
+        public void removeCar(Car car) throws IOException {
+            write("removeCar " + car.getId());
+            cars.remove(car);
+        }
+
+        @Override
+        public List<Customer> loadCustomers() {
+            return new ArrayList<>();
+        }
+
+        @Override
+        public void saveCustomers(List<Customer> customers) throws IOException {
+            write("saveCustomers " + customers.size());
+        }
+
+        @Override
+        public void addCustomer(Customer customer) throws IOException {
+            write("addCustomer " + customer.getId());
+        }
+
+        @Override
+        public List<Sale> loadSales() {
+            return new ArrayList<>();
+        }
+
+        @Override
+        public void saveSale(Sale sale) throws IOException {
+            write("saveSale " + sale.getId());
+        }
+
+        @Override
+        public void saveCheckout(List<Sale> sales) throws IOException {
+            write("saveCheckout " + sales.size());
+        }
+
+        @Override
+        public List<Testimony> loadVideoTestimonies() {
+            return new ArrayList<>();
+        }
+
+        @Override
+        public void saveVideoTestimony(Customer customer, String filePath, String comments) throws IOException {
+            write("saveVideoTestimony " + customer.getId());
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+        }
+    }
+}